@@ -0,0 +1,178 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/** Tests of running many commands as one batch.
+ *  @author Aniruddh Khanwale
+ */
+public class BatchTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Runs the commands SCRIPT as a batch in the current repository. */
+    private static void batch(String script) {
+        InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream(
+                script.getBytes(StandardCharsets.UTF_8)));
+        try {
+            Main.main("batch");
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+    /** Returns a new repository, made the current one, whose working
+     *  directory holds the untracked files "a" and "b". */
+    private static File newRepo() throws IOException {
+        File root = UnitTest.tempDirectory("gitlet-batch");
+        Main.setRoot(root);
+        Main.main("init");
+        Utils.writeContents(Utils.join(root, "a"), "a");
+        Utils.writeContents(Utils.join(root, "b"), "b");
+        return root;
+    }
+
+    /** Returns a description of the state of the repository in ROOT that
+     *  does not depend on when its commits were made: the current branch,
+     *  the stage, the working files, and the message and files of the
+     *  commit each branch names. */
+    private static String state(File root) {
+        File gitletDir = Utils.join(root, ".gitlet");
+        ObjectStore commits = new ObjectStore(Utils.join(gitletDir,
+                "commits"));
+        ObjectStore trees = new ObjectStore(Utils.join(gitletDir, "trees"));
+        StagingArea stage = new StagingArea(gitletDir);
+        StringBuilder result = new StringBuilder();
+        result.append(Utils.readContentsAsString(
+                Utils.join(gitletDir, "current-branch"))).append('\n')
+                .append(stage.getStagedFiles()).append('\n')
+                .append(stage.getRemovedFiles()).append('\n')
+                .append(Utils.plainFilenamesIn(root)).append('\n');
+        File branches = Utils.join(gitletDir, "branches");
+        for (String branch : Utils.plainFilenamesIn(branches)) {
+            Commit commit = Commit.read(commits, trees,
+                    Utils.readContentsAsString(Utils.join(branches, branch)));
+            result.append(branch).append(": ")
+                    .append(commit.getCommitMessage()).append(' ')
+                    .append(commit.getBlobs()).append('\n');
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testBatchMatchesSeparateCommands() throws IOException {
+        try {
+            File separate = newRepo();
+            for (String[] command : COMMANDS) {
+                Main.main(command);
+            }
+            File root = newRepo();
+            batch("# setup\n"
+                    + "add a\n"
+                    + "add missing\n"
+                    + "add b\n"
+                    + "commit \"two files, \\\"a\\\" and b\"\n"
+                    + "checkpoint\n"
+                    + "rm b\n"
+                    + "branch dev\n");
+            File gitletDir = Utils.join(root, ".gitlet");
+            String head = Utils.readContentsAsString(
+                    Utils.join(gitletDir, "HEAD"));
+            Commit commit = Commit.read(new ObjectStore(Utils.join(gitletDir,
+                    "commits")), new ObjectStore(
+                    Utils.join(gitletDir, "trees")), head);
+            assertEquals("two files, \"a\" and b", commit.getCommitMessage());
+            assertEquals(head, Utils.readContentsAsString(
+                    Utils.join(gitletDir, "branches", "dev")));
+            assertEquals(1, new StagingArea(gitletDir).size());
+            assertEquals(state(separate), state(root));
+        } finally {
+            Main.setRoot(new File("."));
+        }
+    }
+
+    @Test
+    public void testBatchGoesOnAfterAncestorMerge() throws IOException {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            File gitletDir = Utils.join(newRepo(), ".gitlet");
+            System.setOut(new PrintStream(out, true));
+            batch("branch old\n"
+                    + "merge old\n"
+                    + "add a\n"
+                    + "commit after\n");
+            assertTrue(out.toString().contains(
+                    "Given branch is an ancestor of the current branch."));
+            String head = Utils.readContentsAsString(
+                    Utils.join(gitletDir, "HEAD"));
+            Commit commit = Commit.read(
+                    new ObjectStore(Utils.join(gitletDir, "commits")),
+                    new ObjectStore(Utils.join(gitletDir, "trees")), head);
+            assertEquals("after", commit.getCommitMessage());
+            assertEquals(0, new StagingArea(gitletDir).size());
+        } finally {
+            System.setOut(stdout);
+            Main.setRoot(new File("."));
+        }
+    }
+
+    @Test
+    public void testParallelAddsInAndOutOfBatch() throws IOException {
+        try {
+            File root = newRepo();
+            Main.main("config", Config.WORKERS, "8");
+            for (int i = 0; i < MANY; i += 1) {
+                Utils.writeContents(Utils.join(root, "f" + i), "one " + i);
+            }
+            batch("add -A\n"
+                    + "commit many\n");
+            File gitletDir = Utils.join(root, ".gitlet");
+            Commit commit = Commit.read(
+                    new ObjectStore(Utils.join(gitletDir, "commits")),
+                    new ObjectStore(Utils.join(gitletDir, "trees")),
+                    Utils.readContentsAsString(
+                            Utils.join(gitletDir, "HEAD")));
+            assertEquals("many", commit.getCommitMessage());
+            assertEquals(MANY + 2, commit.getBlobs().size());
+
+            Main.main("config", Config.FSYNC, "false");
+            for (int i = 0; i < MANY; i += 1) {
+                Utils.writeContents(Utils.join(root, "f" + i), "two " + i);
+            }
+            Main.main("add", "-A");
+            assertEquals(MANY, new StagingArea(gitletDir).size());
+        } finally {
+            Main.setRoot(new File("."));
+        }
+    }
+
+    /** Number of files added at once by testParallelAddsInAndOutOfBatch. */
+    private static final int MANY = 3000;
+
+    /** The commands of the batch in testBatchMatchesSeparateCommands,
+     *  less the one that fails, which would end the JVM if run on its
+     *  own. */
+    private static final String[][] COMMANDS = {
+        {"add", "a"},
+        {"add", "b"},
+        {"commit", "two files, \"a\" and b"},
+        {"rm", "b"},
+        {"branch", "dev"},
+    };
+}
@@ -0,0 +1,647 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/** Timing harness for gitlet's storage paths. Run as
+ *      java gitlet.Benchmark [NAME...]
+ *  to run the named benchmarks, or all of them if none are named. Each
+ *  measurement is printed on one line as the benchmark name, its
+ *  parameters as KEY=VALUE pairs, and the median time of several runs in
+ *  milliseconds.
+ *  @author Aniruddh Khanwale
+ */
+public class Benchmark {
+
+    /** Runs the benchmarks named in ARGS, or all of them.
+     * @param args benchmark names. */
+    public static void main(String... args) throws IOException {
+        List<String> names = Arrays.asList(args);
+        if (names.isEmpty() || names.contains("parallel")) {
+            parallel();
+        }
+        if (names.isEmpty() || names.contains("delta")) {
+            delta();
+        }
+        if (names.isEmpty() || names.contains("chunk")) {
+            chunk();
+        }
+        if (names.isEmpty() || names.contains("fsync")) {
+            fsync();
+        }
+        if (names.isEmpty() || names.contains("codec")) {
+            codec();
+        }
+        if (names.isEmpty() || names.contains("repo")) {
+            repo();
+        }
+        if (names.isEmpty() || names.contains("batch")) {
+            batch();
+        }
+    }
+
+    /** Compares storing and then materializing a wide tree of files with
+     *  one worker against the full worker pool. */
+    static void parallel() throws IOException {
+        File work = scratchDirectory();
+        File tree = Utils.join(work, "tree");
+        tree.mkdir();
+        ArrayList<File> files = new ArrayList<>();
+        Random random = new Random(61);
+        for (int i = 0; i < PARALLEL_FILES; i += 1) {
+            byte[] contents = new byte[PARALLEL_FILE_SIZE];
+            random.nextBytes(contents);
+            Arrays.fill(contents, 0, contents.length / 2, (byte) 'x');
+            File file = Utils.join(tree, "f" + i);
+            Utils.writeContents(file, contents);
+            files.add(file);
+        }
+        int cores = new WorkerPool(0).workers();
+        for (int workers : new int[] {1, Math.max(2, cores)}) {
+            WorkerPool pool = new WorkerPool(workers);
+            File objects = Utils.join(work, "objects");
+            ObjectStore[] store = new ObjectStore[1];
+            List<String> hashes = new ArrayList<>();
+            double stage = time(() -> {
+                Utils.deleteRecursively(objects);
+                objects.mkdir();
+                store[0] = new ObjectStore(objects);
+            }, () -> {
+                hashes.clear();
+                hashes.addAll(pool.map(files,
+                    file -> new Blob(file, store[0]).getHash()));
+            });
+            report("parallel-stage", stage, "workers", workers,
+                    "files", files.size(), "size", PARALLEL_FILE_SIZE);
+            double checkout = time(() -> { }, () -> {
+                ArrayList<Integer> positions = new ArrayList<>();
+                for (int i = 0; i < files.size(); i += 1) {
+                    positions.add(i);
+                }
+                pool.map(positions, i -> {
+                    Blob.writeTo(store[0], hashes.get(i), files.get(i));
+                    return null;
+                });
+            });
+            report("parallel-checkout", checkout, "workers", workers,
+                    "files", files.size(), "size", PARALLEL_FILE_SIZE);
+        }
+        Utils.deleteRecursively(work);
+    }
+
+    /** Compares the time and space taken to store a series of small edits
+     *  to a large file as whole blobs and as delta blobs. */
+    static void delta() throws IOException {
+        File work = scratchDirectory();
+        File file = Utils.join(work, "data");
+        Random random = new Random(61);
+        byte[] contents = new byte[DELTA_FILE_SIZE];
+        for (int i = 0; i < contents.length; i += 1) {
+            contents[i] = (byte) ('a' + random.nextInt(26));
+        }
+        for (int depth : new int[] {0, 10}) {
+            File objects = Utils.join(work, "objects");
+            long[] bytes = new long[1];
+            double ms = time(() -> {
+                Utils.deleteRecursively(objects);
+                objects.mkdir();
+            }, () -> {
+                ObjectStore store = new ObjectStore(objects);
+                Random edits = new Random(62);
+                byte[] version = contents.clone();
+                String previous = null;
+                for (int i = 0; i < DELTA_EDITS; i += 1) {
+                    version[edits.nextInt(version.length)] = '!';
+                    Utils.writeContents(file, version);
+                    previous = new Blob(file, store, previous, depth)
+                            .getHash();
+                }
+                bytes[0] = 0;
+                for (File object : objects.listFiles()) {
+                    bytes[0] += object.length();
+                }
+            });
+            report("delta-store", ms, "depth", depth, "edits", DELTA_EDITS,
+                    "size", DELTA_FILE_SIZE, "bytes", bytes[0]);
+        }
+        Utils.deleteRecursively(work);
+    }
+
+    /** Compares the time and space taken to store a series of versions
+     *  of a large file, each with a few bytes inserted, as whole blobs, as
+     *  delta blobs and as chunked blobs. */
+    static void chunk() throws IOException {
+        File work = scratchDirectory();
+        File file = Utils.join(work, "data");
+        byte[] contents = new byte[DELTA_FILE_SIZE];
+        new Random(61).nextBytes(contents);
+        String[] modes = {"whole", "delta", "chunked"};
+        for (String mode : modes) {
+            File objects = Utils.join(work, "objects");
+            long[] bytes = new long[1];
+            double ms = time(() -> {
+                Utils.deleteRecursively(objects);
+                objects.mkdir();
+            }, () -> {
+                ObjectStore store = new ObjectStore(objects);
+                Random edits = new Random(62);
+                byte[] version = contents;
+                String previous = null;
+                for (int i = 0; i < DELTA_EDITS; i += 1) {
+                    int at = edits.nextInt(version.length);
+                    byte[] insert = new byte[CHUNK_INSERT];
+                    edits.nextBytes(insert);
+                    byte[] next = new byte[version.length + CHUNK_INSERT];
+                    System.arraycopy(version, 0, next, 0, at);
+                    System.arraycopy(insert, 0, next, at, CHUNK_INSERT);
+                    System.arraycopy(version, at, next, at + CHUNK_INSERT,
+                            version.length - at);
+                    version = next;
+                    Utils.writeContents(file, version);
+                    previous = new Blob(file, store, previous,
+                            mode.equals("delta") ? 10 : 0,
+                            mode.equals("chunked")).getHash();
+                }
+                bytes[0] = 0;
+                for (File object : objects.listFiles()) {
+                    bytes[0] += object.length();
+                }
+            });
+            report("chunk-store", ms, "mode", mode, "edits", DELTA_EDITS,
+                    "size", DELTA_FILE_SIZE, "bytes", bytes[0]);
+        }
+        Utils.deleteRecursively(work);
+    }
+
+    /** Measures the cost of durability: a series of ref updates written
+     *  in place, atomically without forcing, and atomically with forcing,
+     *  and the same number of journaled commit-style updates. */
+    static void fsync() throws IOException {
+        File work = scratchDirectory();
+        File ref = Utils.join(work, "ref");
+        File stage = Utils.join(work, "stage");
+        double plain = time(() -> { }, () -> {
+            for (int i = 0; i < FSYNC_UPDATES; i += 1) {
+                Utils.writeContents(ref, Utils.sha1("" + i));
+            }
+        });
+        report("fsync-ref", plain, "mode", "in-place",
+                "updates", FSYNC_UPDATES);
+        for (boolean sync : new boolean[] {false, true}) {
+            Utils.setSync(sync);
+            double atomic = time(() -> { }, () -> {
+                for (int i = 0; i < FSYNC_UPDATES; i += 1) {
+                    Utils.writeAtomically(ref, Utils.sha1("" + i));
+                }
+            });
+            report("fsync-ref", atomic, "mode", "atomic", "sync", sync,
+                    "updates", FSYNC_UPDATES);
+            double journaled = time(() -> { }, () -> {
+                for (int i = 0; i < FSYNC_UPDATES; i += 1) {
+                    Utils.writeContents(stage, "staged");
+                    Journal journal = new Journal(work);
+                    journal.write(ref, Utils.sha1("" + i));
+                    journal.write(Utils.join(work, "HEAD"),
+                            Utils.sha1("" + i));
+                    journal.delete(stage);
+                    journal.commit();
+                }
+            });
+            report("fsync-journal", journaled, "sync", sync,
+                    "updates", FSYNC_UPDATES);
+        }
+        Utils.setSync(true);
+        Utils.deleteRecursively(work);
+    }
+
+    /** Compares writing and reading commits and trees in the Codec format
+     *  against Java serialization of the same fields, the format gitlet
+     *  used before. */
+    static void codec() throws IOException {
+        File work = scratchDirectory();
+        ObjectStore trees = new ObjectStore(work);
+        TreeMap<String, String> changes = new TreeMap<>();
+        for (int i = 0; i < CODEC_TREE_ENTRIES; i += 1) {
+            changes.put("file" + i + ".java", Utils.sha1("blob" + i));
+        }
+        String root = Tree.update(trees, null, changes);
+        byte[] treeBytes = trees.read(root);
+        Tree tree = Tree.decode(treeBytes);
+        SerializedTree oldTree = new SerializedTree();
+        oldTree._files.putAll(changes);
+        byte[] oldTreeBytes = Utils.serialize(oldTree);
+        byte[] commitBytes = new Codec.Encoder(Codec.COMMIT)
+                .signed(System.currentTimeMillis()).string("Fix the parser.")
+                .hash(root).hash(Utils.sha1("parent")).string("master")
+                .toByteArray();
+        Commit commit = Commit.decode(commitBytes, Utils.sha1(commitBytes));
+        SerializedCommit oldCommit = new SerializedCommit();
+        oldCommit._time = commit.getCommitTime();
+        oldCommit._message = commit.getCommitMessage();
+        oldCommit._tree = root;
+        oldCommit._parent = commit.getParentUID();
+        oldCommit._branch = commit.getBranch();
+        byte[] oldCommitBytes = Utils.serialize(oldCommit);
+        codecCase("codec-commit", "codec", "write", commitBytes.length,
+                () -> commit.encode());
+        codecCase("codec-commit", "codec", "read", commitBytes.length,
+                () -> Commit.decode(commitBytes, root));
+        codecCase("codec-commit", "java", "write", oldCommitBytes.length,
+                () -> Utils.serialize(oldCommit));
+        codecCase("codec-commit", "java", "read", oldCommitBytes.length,
+                () -> Utils.deserialize(oldCommitBytes,
+                        SerializedCommit.class));
+        codecCase("codec-tree", "codec", "write", treeBytes.length,
+                () -> tree.encode());
+        codecCase("codec-tree", "codec", "read", treeBytes.length,
+                () -> Tree.decode(treeBytes));
+        codecCase("codec-tree", "java", "write", oldTreeBytes.length,
+                () -> Utils.serialize(oldTree));
+        codecCase("codec-tree", "java", "read", oldTreeBytes.length,
+                () -> Utils.deserialize(oldTreeBytes, SerializedTree.class));
+        Utils.deleteRecursively(work);
+    }
+
+    /** Times and reports CODEC_ROUNDS runs of BODY as benchmark NAME,
+     *  which handles objects of BYTES bytes in format FORMAT by OP.
+     * @param name the benchmark name.
+     * @param format "codec" or "java".
+     * @param op "read" or "write".
+     * @param bytes the size of one encoded object.
+     * @param body the encoding or decoding of one object. */
+    private static void codecCase(String name, String format, String op,
+                                  int bytes, Runnable body) {
+        double ms = time(() -> { }, () -> {
+            for (int i = 0; i < CODEC_ROUNDS; i += 1) {
+                body.run();
+            }
+        });
+        report(name, ms, "format", format, "op", op, "bytes", bytes,
+                "rounds", CODEC_ROUNDS);
+    }
+
+    /** The fields of a commit, as gitlet used to store them with Java
+     *  serialization. */
+    private static class SerializedCommit implements Serializable {
+        /** Commit time. */
+        private long _time;
+        /** Commit message. */
+        private String _message;
+        /** Commit id. */
+        private String _hash;
+        /** Root tree hash. */
+        private String _tree;
+        /** Parent id. */
+        private String _parent;
+        /** Branch name. */
+        private String _branch;
+    }
+
+    /** The fields of a tree, as it would be stored with Java
+     *  serialization. */
+    private static class SerializedTree implements Serializable {
+        /** Blob hashes, by name. */
+        private TreeMap<String, String> _files = new TreeMap<>();
+        /** Tree hashes, by name. */
+        private TreeMap<String, String> _dirs = new TreeMap<>();
+    }
+
+    /** Times gitlet commands, run through Main as from the command line,
+     *  on synthetic repositories of each size in REPO_SCALES. */
+    static void repo() throws IOException {
+        for (int[] scale : REPO_SCALES) {
+            File work = scratchDirectory();
+            Main.setRoot(work);
+            try {
+                repo(work, scale[0], scale[1]);
+            } finally {
+                Main.setRoot(new File("."));
+                Utils.deleteRecursively(work);
+            }
+        }
+    }
+
+    /** Compares making a series of small commits, with files forced to
+     *  disk, by one call of Main per command and by one batch. */
+    static void batch() throws IOException {
+        for (boolean batched : new boolean[] {false, true}) {
+            File work = scratchDirectory();
+            Main.setRoot(work);
+            try {
+                gitlet("init");
+                int[] round = {0};
+                StringBuilder script = new StringBuilder();
+                double ms = time(() -> {
+                    round[0] += 1;
+                    script.setLength(0);
+                    for (int i = 0; i < BATCH_COMMITS; i += 1) {
+                        String name = "f" + i;
+                        Utils.writeContents(Utils.join(work, name),
+                                "round " + round[0] + " of " + name);
+                        script.append("add ").append(name).append('\n')
+                                .append("commit \"Change ").append(name)
+                                .append(".\"\n");
+                    }
+                }, () -> {
+                    if (batched) {
+                        InputStream stdin = System.in;
+                        System.setIn(new ByteArrayInputStream(script
+                                .toString().getBytes(StandardCharsets.UTF_8)));
+                        try {
+                            gitlet("batch");
+                        } finally {
+                            System.setIn(stdin);
+                        }
+                        return;
+                    }
+                    for (int i = 0; i < BATCH_COMMITS; i += 1) {
+                        gitlet("add", "f" + i);
+                        gitlet("commit", "Change f" + i + ".");
+                    }
+                });
+                report("batch-commits", ms, "mode",
+                        batched ? "batch" : "separate",
+                        "commits", BATCH_COMMITS);
+            } finally {
+                Main.setRoot(new File("."));
+                Utils.deleteRecursively(work);
+            }
+        }
+    }
+
+    /** Builds a repository in WORK with a history of about COMMITS
+     *  commits over FILES files, then times commands on it.
+     * @param work the working directory of the repository.
+     * @param commits the number of commits to make.
+     * @param files the number of files to track. */
+    private static void repo(File work, int commits, int files) {
+        Random random = new Random(61);
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < files; i += 1) {
+            String name = "d" + (i / REPO_DIR_FILES) + "/f" + i + ".txt";
+            File file = Utils.join(work, name);
+            file.getParentFile().mkdirs();
+            StringBuilder text = new StringBuilder();
+            for (int line = 0; line < REPO_FILE_LINES; line += 1) {
+                text.append("line ").append(line).append(" of ")
+                        .append(name).append('\n');
+            }
+            Utils.writeContents(file, text.toString());
+            names.add(name);
+        }
+        gitlet("init");
+        gitlet("config", Config.FSYNC, "false");
+        gitlet(command("add", names));
+        gitlet("commit", "Add files.");
+        List<String> mainline = names.subList(0, files / 2);
+        List<String> topic = names.subList(files / 2, files);
+        for (int made = 1; made < commits; made += 1) {
+            if (made == commits / 2) {
+                gitlet("branch", "dev");
+            }
+            if (made % REPO_MERGE_EVERY == 0 && made + 3 <= commits) {
+                mergeTopic(work, "topic" + made, mainline, topic, random);
+                made += 2;
+            } else {
+                change(work, mainline, random, "Change " + made + ".");
+            }
+        }
+        Object[] params = {"commits", commits, "files", files};
+        String devHead = Utils.readContentsAsString(
+                Utils.join(work, ".gitlet", "branches", "dev"));
+        String masterHead = Utils.readContentsAsString(
+                Utils.join(work, ".gitlet", "branches", "master"));
+        repoCase("repo-status", params, () -> { }, () -> gitlet("status"));
+        repoCase("repo-log", params, () -> { }, () -> gitlet("log"));
+        repoCase("repo-log-path", params, () -> { },
+                () -> gitlet("log", names.get(0)));
+        repoCase("repo-blame", params,
+                () -> Blame.clear(Utils.join(work, ".gitlet")),
+                () -> gitlet("blame", names.get(0)));
+        repoCase("repo-blame-cached", params, () -> { },
+                () -> gitlet("blame", names.get(0)));
+        repoCase("repo-global-log", params, () -> { },
+                () -> gitlet("global-log"));
+        repoCase("repo-find", params, () -> { },
+                () -> gitlet("find", "Change 1."));
+        repoCase("repo-checkout", params, () -> { }, () -> {
+            gitlet("checkout", "dev");
+            gitlet("checkout", "master");
+        });
+        repoCase("repo-reset", params, () -> { }, () -> {
+            gitlet("reset", devHead);
+            gitlet("reset", masterHead);
+        });
+        int[] round = {0};
+        repoCase("repo-merge", params, () -> {
+            round[0] += 1;
+            String branch = "bench" + round[0];
+            gitlet("branch", branch);
+            gitlet("checkout", branch);
+            change(work, topic, random, "Topic " + branch + ".");
+            gitlet("checkout", "master");
+            change(work, mainline, random, "Mainline " + branch + ".");
+        }, () -> gitlet("merge", "bench" + round[0]));
+        List<String> edited = names.subList(0, REPO_EDITS);
+        repoCase("repo-add", params, () -> edit(work, edited, random),
+                () -> gitlet(command("add", edited)));
+        repoCase("repo-commit", params, () -> {
+            edit(work, edited, random);
+            gitlet(command("add", edited));
+        }, () -> gitlet("commit", "Benchmark commit."));
+    }
+
+    /** Makes a topic branch TOPICBRANCH with a commit changing files in
+     *  TOPIC, a commit on master changing files in MAINLINE, and merges
+     *  the topic into master, making three commits in all.
+     * @param work the working directory.
+     * @param topicBranch the name of the topic branch.
+     * @param mainline the files changed on master.
+     * @param topic the files changed on the topic branch.
+     * @param random the source of the changes. */
+    private static void mergeTopic(File work, String topicBranch,
+                                   List<String> mainline, List<String> topic,
+                                   Random random) {
+        gitlet("branch", topicBranch);
+        gitlet("checkout", topicBranch);
+        change(work, topic, random, "Work on " + topicBranch + ".");
+        gitlet("checkout", "master");
+        change(work, mainline, random, "Meanwhile on master.");
+        gitlet("merge", topicBranch);
+    }
+
+    /** Edits and commits REPO_EDITS of the files NAMES in WORK, chosen
+     *  with RANDOM, with commit message MESSAGE.
+     * @param work the working directory.
+     * @param names the files that may be changed.
+     * @param random the source of the changes.
+     * @param message the commit message. */
+    private static void change(File work, List<String> names, Random random,
+                               String message) {
+        ArrayList<String> chosen = new ArrayList<>();
+        for (int i = 0; i < REPO_EDITS; i += 1) {
+            String name = names.get(random.nextInt(names.size()));
+            if (!chosen.contains(name)) {
+                chosen.add(name);
+            }
+        }
+        edit(work, chosen, random);
+        gitlet(command("add", chosen));
+        gitlet("commit", message);
+    }
+
+    /** Replaces one line of each of the files NAMES in WORK with a line
+     *  chosen with RANDOM.
+     * @param work the working directory.
+     * @param names the files to change.
+     * @param random the source of the new lines. */
+    private static void edit(File work, List<String> names, Random random) {
+        for (String name : names) {
+            File file = Utils.join(work, name);
+            String[] lines = Utils.readContentsAsString(file).split("\n");
+            lines[random.nextInt(lines.length)] =
+                    "edited " + random.nextLong();
+            Utils.writeContents(file, String.join("\n", lines) + "\n");
+        }
+    }
+
+    /** Returns the arguments of the gitlet command COMMAND applied to
+     *  OPERANDS.
+     * @param command the command name.
+     * @param operands its operands. */
+    private static String[] command(String command, List<String> operands) {
+        ArrayList<String> result = new ArrayList<>();
+        result.add(command);
+        result.addAll(operands);
+        return result.toArray(new String[0]);
+    }
+
+    /** Runs the gitlet command ARGS, discarding its standard output.
+     * @param args the command and its operands. */
+    private static void gitlet(String... args) {
+        PrintStream stdout = System.out;
+        System.setOut(QUIET);
+        try {
+            Main.main(args);
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    /** Times and reports runs of BODY as benchmark NAME with parameters
+     *  PARAMS, doing SETUP, untimed, before each run.
+     * @param name the benchmark name.
+     * @param params parameter names and values.
+     * @param setup work to do before each run.
+     * @param body the commands to time. */
+    private static void repoCase(String name, Object[] params,
+                                 Runnable setup, Runnable body) {
+        report(name, time(setup, body), params);
+    }
+
+    /** Returns the median time in milliseconds of timed runs of BODY,
+     *  after untimed warm-up runs. SETUP runs, untimed, before each run.
+     * @param setup work to do before each run.
+     * @param body the work to time. */
+    static double time(Runnable setup, Runnable body) {
+        for (int i = 0; i < WARMUP; i += 1) {
+            setup.run();
+            body.run();
+        }
+        double[] times = new double[RUNS];
+        for (int i = 0; i < RUNS; i += 1) {
+            setup.run();
+            long start = System.nanoTime();
+            body.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    /** Prints one measurement of benchmark NAME taking MILLIS, with
+     *  parameters PARAMS given as alternating names and values.
+     * @param name the benchmark name.
+     * @param millis the median time.
+     * @param params parameter names and values. */
+    static void report(String name, double millis, Object... params) {
+        StringBuilder line = new StringBuilder(name);
+        for (int i = 0; i + 1 < params.length; i += 2) {
+            line.append(' ').append(params[i]).append('=')
+                    .append(params[i + 1]);
+        }
+        line.append(String.format(" ms=%.2f", millis));
+        System.out.println(line);
+    }
+
+    /** Returns a new, empty temporary directory. */
+    static File scratchDirectory() throws IOException {
+        return Files.createTempDirectory("gitlet-bench").toFile();
+    }
+
+    /** Number of untimed runs before measuring. */
+    private static final int WARMUP = 2;
+
+    /** Number of timed runs. */
+    private static final int RUNS = 5;
+
+    /** Number of files in the parallel benchmark tree. */
+    private static final int PARALLEL_FILES = 2000;
+
+    /** Size in bytes of each file in the parallel benchmark tree. */
+    private static final int PARALLEL_FILE_SIZE = 32 * 1024;
+
+    /** Size in bytes of the file edited in the delta benchmark. */
+    private static final int DELTA_FILE_SIZE = 4 << 20;
+
+    /** Number of bytes inserted into each version in the chunk
+     *  benchmark. */
+    private static final int CHUNK_INSERT = 16;
+
+    /** Number of commits made in each run of the batch benchmark. */
+    private static final int BATCH_COMMITS = 50;
+
+    /** Number of updates timed in the fsync benchmark. */
+    private static final int FSYNC_UPDATES = 100;
+
+    /** Number of versions stored in the delta benchmark. */
+    private static final int DELTA_EDITS = 20;
+
+    /** Sizes of the repositories of the repo benchmark, as pairs of
+     *  commit and file counts. */
+    private static final int[][] REPO_SCALES = {{100, 200}, {400, 2000}};
+
+    /** Number of files in each directory of a benchmark repository. */
+    private static final int REPO_DIR_FILES = 50;
+
+    /** Number of lines in each file of a benchmark repository. */
+    private static final int REPO_FILE_LINES = 40;
+
+    /** Number of files changed by each benchmark commit. */
+    private static final int REPO_EDITS = 5;
+
+    /** Number of commits between merges of topic branches. */
+    private static final int REPO_MERGE_EVERY = 10;
+
+    /** A stream that discards what gitlet commands print. */
+    private static final PrintStream QUIET =
+            new PrintStream(OutputStream.nullOutputStream());
+
+    /** Number of objects encoded or decoded per codec measurement. */
+    private static final int CODEC_ROUNDS = 20000;
+
+    /** Number of files in the tree of the codec benchmark. */
+    private static final int CODEC_TREE_ENTRIES = 100;
+}
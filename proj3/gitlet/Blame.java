@@ -0,0 +1,236 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** Finds the commit that last changed each line of a file, by walking
+ *  the first-parent history back from a commit one version of the file at
+ *  a time. Commits that did not change the file are passed over using the
+ *  commit graph's changed-path filters, or a lookup of the file in their
+ *  parents' trees. At each older version, only lines not yet attributed
+ *  are carried back through a line diff; a line with no match in the older
+ *  version is attributed to the commit that introduced the newer one. The
+ *  walk ends as soon as every line is attributed, and lines left at the
+ *  start of the history, or of a shallow one, are attributed to its
+ *  oldest commit.
+ *
+ *  The result for the version a walk starts from is cached in
+ *  .gitlet/blame, under the hash of the version's blob hash and path,
+ *  together with the commit that introduced the version. A later walk that
+ *  reaches the same version, introduced by the same commit, takes the
+ *  attribution of its remaining lines from the cache and stops there.
+ *  @author Aniruddh Khanwale
+ */
+class Blame {
+
+    /** A blamer for the repository in GITLETDIR, whose history is GRAPH
+     *  and whose objects are in COMMITS, TREES and BLOBS.
+     * @param gitletDir the .gitlet directory.
+     * @param graph the commit graph.
+     * @param commits the commit store.
+     * @param trees the tree store.
+     * @param blobs the blob store. */
+    Blame(File gitletDir, CommitGraph graph, ObjectStore commits,
+          ObjectStore trees, ObjectStore blobs) {
+        _dir = Utils.join(gitletDir, DIR);
+        _graph = graph;
+        _commits = commits;
+        _trees = trees;
+        _blobs = blobs;
+    }
+
+    /** Deletes the cached blames of the repository in GITLETDIR, which
+     *  may name commits that are about to be removed.
+     * @param gitletDir the .gitlet directory. */
+    static void clear(File gitletDir) {
+        File dir = Utils.join(gitletDir, DIR);
+        List<String> names = Utils.plainFilenamesIn(dir);
+        if (names != null) {
+            for (String name : names) {
+                Utils.join(dir, name).delete();
+            }
+        }
+    }
+
+    /** Returns the ids of the commits that last changed each line of the
+     *  file at PATH in the commit at HEAD, or null if the commit has no
+     *  such file.
+     * @param head the position of a commit in the graph.
+     * @param path a path relative to the working directory. */
+    String[] origins(int head, String path) {
+        String headBlob = Tree.lookup(_trees, tree(head), path);
+        if (headBlob == null) {
+            return null;
+        }
+        String blob = headBlob;
+        List<String> lines = Diff.lines(Blob.readString(_blobs, blob));
+        String[] result = new String[lines.size()];
+        int[] pending = new int[lines.size()];
+        for (int i = 0; i < pending.length; i += 1) {
+            pending[i] = i;
+        }
+        int remaining = pending.length;
+        String headIntro = null;
+        int pos = head;
+        while (remaining > 0) {
+            int intro = pos;
+            String older = null;
+            for (int parent = _graph.parent(intro);
+                 parent != CommitGraph.NONE; parent = _graph.parent(intro)) {
+                if (_graph.mayChange(intro, path)) {
+                    older = Tree.lookup(_trees, tree(parent), path);
+                    if (!blob.equals(older)) {
+                        break;
+                    }
+                }
+                older = null;
+                intro = parent;
+            }
+            String introId = _graph.id(intro);
+            String[] cached = readCache(blob, path, introId, lines.size());
+            if (headIntro == null) {
+                headIntro = introId;
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            if (cached != null || older == null) {
+                for (int i = 0; i < pending.length; i += 1) {
+                    if (pending[i] >= 0) {
+                        result[pending[i]] = cached != null ? cached[i]
+                                : introId;
+                    }
+                }
+                break;
+            }
+            List<String> olderLines =
+                    Diff.lines(Blob.readString(_blobs, older));
+            int[] matches = new Diff(olderLines, lines).bMatches();
+            int[] carried = new int[olderLines.size()];
+            Arrays.fill(carried, -1);
+            for (int i = 0; i < pending.length; i += 1) {
+                if (pending[i] < 0) {
+                    continue;
+                } else if (matches[i] < 0) {
+                    result[pending[i]] = introId;
+                    remaining -= 1;
+                } else {
+                    carried[matches[i]] = pending[i];
+                }
+            }
+            pending = carried;
+            lines = olderLines;
+            blob = older;
+            pos = _graph.parent(intro);
+        }
+        if (headIntro != null) {
+            writeCache(headBlob, path, headIntro, result);
+        }
+        return result;
+    }
+
+    /** Returns the root tree of the commit at POS.
+     * @param pos a position in the graph. */
+    private String tree(int pos) {
+        return Commit.read(_commits, _graph.id(pos)).getTree();
+    }
+
+    /** Returns the file in which the blame of BLOB at PATH is cached.
+     * @param blob a blob hash.
+     * @param path a path relative to the working directory. */
+    private File cacheFile(String blob, String path) {
+        return Utils.join(_dir, Utils.sha1(blob, path));
+    }
+
+    /** Returns the cached origins of the LINES lines of BLOB at PATH, in
+     *  the version introduced by the commit INTRO, or null if there are
+     *  none.
+     * @param blob a blob hash.
+     * @param path a path relative to the working directory.
+     * @param intro the id of the commit that introduced the version.
+     * @param lines the number of lines in BLOB. */
+    private String[] readCache(String blob, String path, String intro,
+                               int lines) {
+        File file = cacheFile(blob, path);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            Codec.Decoder in = new Codec.Decoder(Utils.readContents(file),
+                    Codec.BLAME);
+            if (!intro.equals(in.hash())) {
+                return null;
+            }
+            int count = in.count();
+            if (count > lines) {
+                return null;
+            }
+            String[] commits = new String[count];
+            for (int i = 0; i < commits.length; i += 1) {
+                commits[i] = in.hash();
+            }
+            if (in.count() != lines) {
+                return null;
+            }
+            String[] result = new String[lines];
+            for (int i = 0; i < lines; i += 1) {
+                result[i] = commits[in.count()];
+            }
+            in.end();
+            return result;
+        } catch (IllegalArgumentException
+                 | ArrayIndexOutOfBoundsException excp) {
+            return null;
+        }
+    }
+
+    /** Caches ORIGINS as the blame of BLOB at PATH, in the version
+     *  introduced by the commit INTRO. The distinct commits are written
+     *  once each, and each line as the index of its commit.
+     * @param blob a blob hash.
+     * @param path a path relative to the working directory.
+     * @param intro the id of the commit that introduced the version.
+     * @param origins the commit that last changed each line. */
+    private void writeCache(String blob, String path, String intro,
+                            String[] origins) {
+        HashMap<String, Integer> indices = new HashMap<>();
+        for (String origin : origins) {
+            indices.putIfAbsent(origin, indices.size());
+        }
+        String[] commits = new String[indices.size()];
+        for (String origin : indices.keySet()) {
+            commits[indices.get(origin)] = origin;
+        }
+        Codec.Encoder out = new Codec.Encoder(Codec.BLAME).hash(intro)
+                .varint(commits.length);
+        for (String commit : commits) {
+            out.hash(commit);
+        }
+        out.varint(origins.length);
+        for (String origin : origins) {
+            out.varint(indices.get(origin));
+        }
+        _dir.mkdir();
+        Utils.writeAtomically(cacheFile(blob, path), out.toByteArray());
+    }
+
+    /** Name of the directory of cached blames. */
+    private static final String DIR = "blame";
+
+    /** The directory of cached blames. */
+    private final File _dir;
+
+    /** The commit graph. */
+    private final CommitGraph _graph;
+
+    /** The commit store. */
+    private final ObjectStore _commits;
+
+    /** The tree store. */
+    private final ObjectStore _trees;
+
+    /** The blob store. */
+    private final ObjectStore _blobs;
+}
@@ -0,0 +1,88 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/** Tests of line attribution by blame.
+ *  @author Aniruddh Khanwale
+ */
+public class BlameTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Writes CONTENTS to NAME in the working directory ROOT and commits
+     *  it with MESSAGE. */
+    private static void commit(File root, String name, String contents,
+                               String message) {
+        Utils.writeContents(Utils.join(root, name), contents);
+        Main.main("add", name);
+        Main.main("commit", message);
+    }
+
+    /** Returns the origins of the lines of NAME at the head of the
+     *  repository in ROOT. */
+    private static String[] blame(File root, String name) {
+        File gitletDir = Utils.join(root, ".gitlet");
+        ObjectStore commits = new ObjectStore(Utils.join(gitletDir,
+                "commits"));
+        CommitGraph graph = new CommitGraph(gitletDir, commits);
+        Blame blame = new Blame(gitletDir, graph, commits,
+                new ObjectStore(Utils.join(gitletDir, "trees")),
+                new ObjectStore(Utils.join(gitletDir, "blobs")));
+        return blame.origins(graph.ensure(Utils.readContentsAsString(
+                Utils.join(gitletDir, "HEAD"))), name);
+    }
+
+    /** Returns the ids of the first-parent history of the repository in
+     *  ROOT, newest first. */
+    private static String[] history(File root) {
+        File gitletDir = Utils.join(root, ".gitlet");
+        CommitGraph graph = new CommitGraph(gitletDir, new ObjectStore(
+                Utils.join(gitletDir, "commits")));
+        String[] result = new String[graph.size()];
+        int pos = graph.ensure(Utils.readContentsAsString(
+                Utils.join(gitletDir, "HEAD")));
+        for (int i = 0; pos != CommitGraph.NONE; i += 1) {
+            result[i] = graph.id(pos);
+            pos = graph.parent(pos);
+        }
+        return result;
+    }
+
+    @Test
+    public void testLinesAttributedToLastChange() throws IOException {
+        File root = UnitTest.tempDirectory("gitlet-blame");
+        Main.setRoot(root);
+        try {
+            Main.main("init");
+            commit(root, "f", "a\nb\nc\n", "one");
+            commit(root, "f", "a\nB\nc\nd\n", "two");
+            commit(root, "g", "x\n", "three");
+            String[] ids = history(root);
+            String one = ids[2], two = ids[1];
+            assertArrayEquals(new String[] {one, two, one, two},
+                    blame(root, "f"));
+            assertArrayEquals(new String[] {ids[0]}, blame(root, "g"));
+            assertNull(blame(root, "missing"));
+
+            commit(root, "f", "z\na\nB\nc\nd\n", "four");
+            String four = history(root)[0];
+            String[] expected = {four, one, two, one, two};
+            assertArrayEquals(expected, blame(root, "f"));
+            assertArrayEquals(expected, blame(root, "f"));
+            Blame.clear(Utils.join(root, ".gitlet"));
+            assertArrayEquals(expected, blame(root, "f"));
+        } finally {
+            Main.setRoot(new File("."));
+        }
+    }
+}
@@ -1,37 +1,399 @@
 package gitlet;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.Serializable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
-/** The class designed to track blobs, or files.
+/** The class designed to track blobs, or files. A stored blob begins with
+ * a type byte. A FULL blob continues with the deflate-compressed file
+ * contents. A DELTA blob continues with the 20-byte id of a base blob, a
+ * byte giving its depth (one more than the base's, where a FULL blob has
+ * depth 0) and a deflate-compressed Delta rebuilding the contents from the
+ * base. A CHUNKED blob continues with the 20-byte ids of the blobs whose
+ * contents, in order, make up its own; these chunks are cut by a Chunker,
+ * so each is stored once however many files and versions share it.
+ * Whatever its type, a blob is named by the SHA-1 hash of the
+ * uncompressed contents. FULL and CHUNKED blobs are streamed in and out,
+ * so they never need to fit in memory and may hold any bytes.
  * @author Aniruddh Khanwale */
-public class Blob implements Serializable {
+public class Blob {
     /** Constructs a new blob object, given the file to convert to a blob,
-     * and the directory in which to store it.
+     * and the store in which to keep it.
      * @param toBlobify the file to write to a blob.
-     * @param blobDir the directory in which to persist the blob.
+     * @param blobStore the store in which to persist the blob.
      */
-    Blob(File toBlobify, File blobDir) {
-        _blobDir = blobDir;
+    Blob(File toBlobify, ObjectStore blobStore) {
+        this(toBlobify, blobStore, null, 0);
+    }
+
+    /** Constructs a new blob object, given the file to convert to a blob,
+     * and the store in which to keep it. If BASE, the hash of an earlier
+     * version of the file, is not null, the blob is stored as a delta
+     * against BASE when that is smaller and keeps chains of deltas no
+     * longer than MAXDEPTH.
+     * @param toBlobify the file to write to a blob.
+     * @param blobStore the store in which to persist the blob.
+     * @param base the hash of a blob to delta against, or null.
+     * @param maxDepth the longest allowed delta chain; 0 for none.
+     */
+    Blob(File toBlobify, ObjectStore blobStore, String base, int maxDepth) {
+        this(toBlobify, blobStore, base, maxDepth, false);
+    }
+
+    /** Constructs a new blob object, given the file to convert to a blob,
+     * and the store in which to keep it. If CHUNKED and the file is at
+     * least MIN_CHUNKED_SIZE bytes, it is stored as a list of chunks.
+     * Otherwise, if BASE, the hash of an earlier version of the file, is
+     * not null, the blob is stored as a delta against BASE when that is
+     * smaller and keeps chains of deltas no longer than MAXDEPTH. The
+     * form is chosen before the file is read, which it is only once, and
+     * the hash is taken from the same pass.
+     * @param toBlobify the file to write to a blob.
+     * @param blobStore the store in which to persist the blob.
+     * @param base the hash of a blob to delta against, or null.
+     * @param maxDepth the longest allowed delta chain; 0 for none.
+     * @param chunked true iff large files are to be chunked.
+     */
+    Blob(File toBlobify, ObjectStore blobStore, String base, int maxDepth,
+         boolean chunked) {
         if (!toBlobify.isFile()) {
             throw new GitletException("File does not exist.");
+        }
+        name = toBlobify.getName();
+        long length = toBlobify.length();
+        if (chunked && length >= MIN_CHUNKED_SIZE) {
+            writeChunked(toBlobify, blobStore);
+        } else if (base != null && maxDepth > 0 && length <= MAX_DELTA_SIZE) {
+            writeDeltaOrFull(toBlobify, blobStore, base, maxDepth);
         } else {
-            name = toBlobify.getName();
-            blobFile = toBlobify;
-            blobString = Utils.readContentsAsString(toBlobify);
-            hash = Utils.sha1(Utils.serialize(this));
+            writeFull(toBlobify, blobStore);
         }
-        if (!Utils.join(_blobDir, hash).exists()) {
-            persist();
+    }
+
+    /** Stores FILE in BLOBSTORE as a FULL blob, streaming it through the
+     * digest and the compressor together.
+     * @param file the file being stored.
+     * @param blobStore the store in which blobs are persisted. */
+    private void writeFull(File file, ObjectStore blobStore) {
+        File tmp = blobStore.tempFile();
+        MessageDigest md = sha1Digest();
+        try (InputStream in = new DigestInputStream(
+                new FileInputStream(file), md);
+             OutputStream out = new BufferedOutputStream(
+                     new FileOutputStream(tmp))) {
+            out.write(FULL);
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out);
+            in.transferTo(deflated);
+            deflated.finish();
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
         }
+        hash = Utils.toHex(md.digest());
+        blobStore.moveIn(hash, tmp);
     }
 
-    /** Implements persistence for the blob, writing it to a file
-     * named by the blob hash.
-     */
-    void persist() {
-        Utils.writeObject(Utils.join(_blobDir, hash), this);
+    /** Stores FILE in BLOBSTORE as a list of chunks, each stored as a FULL
+     * blob unless it is already there, taking the hash of the whole from
+     * the chunks as they are cut. A file that makes a single chunk is
+     * thereby stored as a FULL blob.
+     * @param file the file being stored.
+     * @param blobStore the store in which blobs are persisted. */
+    private void writeChunked(File file, ObjectStore blobStore) {
+        ByteArrayOutputStream list = new ByteArrayOutputStream();
+        list.write(CHUNKED);
+        MessageDigest md = sha1Digest();
+        int count = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            Chunker chunker = new Chunker(in);
+            for (byte[] chunk = chunker.next(); chunk != null;
+                 chunk = chunker.next()) {
+                md.update(chunk);
+                list.write(Utils.fromHex(writeChunk(blobStore, chunk)));
+                count += 1;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        hash = Utils.toHex(md.digest());
+        if (count == 0) {
+            writeChunk(blobStore, new byte[0]);
+        } else if (count > 1) {
+            blobStore.write(hash, list.toByteArray());
+        }
+    }
+
+    /** Stores FILE in BLOBSTORE as a delta against the blob BASE, or as a
+     * FULL blob if that is smaller, or if BASE is missing, too large or at
+     * the end of a chain MAXDEPTH long. FILE is read into memory once.
+     * @param file the file being stored.
+     * @param blobStore the store in which blobs are persisted.
+     * @param base the hash of the blob to delta against.
+     * @param maxDepth the longest allowed delta chain. */
+    private void writeDeltaOrFull(File file, ObjectStore blobStore,
+                                  String base, int maxDepth) {
+        byte[] contents = Utils.readContents(file);
+        hash = Utils.sha1(contents);
+        if (blobStore.contains(hash)) {
+            return;
+        }
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        full.write(FULL);
+        try {
+            DeflaterOutputStream deflated = new DeflaterOutputStream(full);
+            deflated.write(contents);
+            deflated.finish();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        byte[] delta = deltaAgainst(contents, blobStore, base, maxDepth);
+        blobStore.write(hash, delta != null && delta.length < full.size()
+                ? delta : full.toByteArray());
+    }
+
+    /** Stores CHUNK in BLOBSTORE as a FULL blob, unless it is already
+     * there, and returns its hash.
+     * @param blobStore the store in which blobs are persisted.
+     * @param chunk the contents of a chunk. */
+    private static String writeChunk(ObjectStore blobStore, byte[] chunk) {
+        String id = Utils.sha1(chunk);
+        if (blobStore.contains(id)) {
+            return id;
+        }
+        File tmp = blobStore.tempFile();
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(tmp))) {
+            out.write(FULL);
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out);
+            deflated.write(chunk);
+            deflated.finish();
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        blobStore.moveIn(id, tmp);
+        return id;
+    }
+
+    /** Returns the stored form of a blob with CONTENTS as a delta against
+     * the blob BASE in BLOBSTORE, or null if BASE is missing or too large,
+     * or the chain through BASE is already MAXDEPTH long.
+     * @param contents the contents being stored.
+     * @param blobStore the store in which blobs are persisted.
+     * @param base the hash of the blob to delta against.
+     * @param maxDepth the longest allowed delta chain. */
+    private static byte[] deltaAgainst(byte[] contents, ObjectStore blobStore,
+                                       String base, int maxDepth) {
+        if (!blobStore.contains(base)) {
+            return null;
+        }
+        int depth = depth(blobStore, base) + 1;
+        if (depth > Math.min(maxDepth, MAX_DEPTH)) {
+            return null;
+        }
+        try (InputStream in = open(blobStore, base)) {
+            byte[] baseContents = in.readNBytes(MAX_DELTA_SIZE + 1);
+            if (baseContents.length > MAX_DELTA_SIZE) {
+                return null;
+            }
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            result.write(DELTA);
+            result.write(Utils.fromHex(base));
+            result.write(depth);
+            DeflaterOutputStream deflated =
+                    new DeflaterOutputStream(result);
+            deflated.write(Delta.encode(baseContents, contents));
+            deflated.finish();
+            return result.toByteArray();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the hash a blob of FILE's current contents would have.
+     * @param file the file to hash.
+     * @return the hash of its contents. */
+    static String hashOf(File file) {
+        MessageDigest md = sha1Digest();
+        try (InputStream in = new DigestInputStream(
+                new FileInputStream(file), md)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return Utils.toHex(md.digest());
+    }
+
+    /** Returns a stream of the uncompressed contents of the blob named
+     * HASH in BLOBSTORE. Commits only record blob hashes, so this is the
+     * one place file contents are loaded.
+     * @param blobStore the store in which blobs are persisted.
+     * @param hash the hash of the blob to read.
+     * @return the blob's contents. */
+    static InputStream open(ObjectStore blobStore, String hash) {
+        InputStream raw = blobStore.open(hash);
+        try {
+            int type = raw.read();
+            if (type == FULL) {
+                return new BufferedInputStream(new InflaterInputStream(raw));
+            } else if (type == DELTA) {
+                try (InputStream in = raw) {
+                    String base = Utils.toHex(in.readNBytes(ID_BYTES));
+                    in.read();
+                    byte[] baseContents;
+                    try (InputStream baseIn = open(blobStore, base)) {
+                        baseContents = baseIn.readAllBytes();
+                    }
+                    return new ByteArrayInputStream(Delta.apply(
+                            baseContents, new InflaterInputStream(in)));
+                }
+            } else if (type == CHUNKED) {
+                List<String> chunks = chunkIds(raw);
+                return new BufferedInputStream(new SequenceInputStream(
+                        new Enumeration<InputStream>() {
+                            @Override
+                            public boolean hasMoreElements() {
+                                return _next < chunks.size();
+                            }
+
+                            @Override
+                            public InputStream nextElement() {
+                                _next += 1;
+                                return open(blobStore, chunks.get(_next - 1));
+                            }
+
+                            /** Index of the next chunk to open. */
+                            private int _next;
+                        }));
+            }
+            raw.close();
+            throw new IllegalArgumentException("bad blob " + hash);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
     }
+
+    /** Returns the hashes of the blobs that the stored form of the blob
+     * named HASH in BLOBSTORE refers to: its delta base, its chunks, or
+     * none if it is stored whole.
+     * @param blobStore the store in which blobs are persisted.
+     * @param hash the hash of a blob. */
+    static List<String> references(ObjectStore blobStore, String hash) {
+        try (InputStream raw = blobStore.open(hash)) {
+            int type = raw.read();
+            if (type == DELTA) {
+                return List.of(Utils.toHex(raw.readNBytes(ID_BYTES)));
+            } else if (type == CHUNKED) {
+                return chunkIds(raw);
+            }
+            return List.of();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns true iff the blob named HASH in BLOBSTORE is stored as a
+     * list of chunks.
+     * @param blobStore the store in which blobs are persisted.
+     * @param hash the hash of a blob. */
+    static boolean isChunked(ObjectStore blobStore, String hash) {
+        try (InputStream raw = blobStore.open(hash)) {
+            return raw.read() == CHUNKED;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the hashes of the chunks of a CHUNKED blob, read from RAW,
+     * its stored form after the type byte, which this closes.
+     * @param raw the stored blob, past its type byte. */
+    private static List<String> chunkIds(InputStream raw) throws IOException {
+        byte[] ids;
+        try (InputStream in = raw) {
+            ids = in.readAllBytes();
+        }
+        if (ids.length % ID_BYTES != 0) {
+            throw new IllegalArgumentException("bad chunked blob");
+        }
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < ids.length; i += ID_BYTES) {
+            result.add(Utils.toHex(
+                    Arrays.copyOfRange(ids, i, i + ID_BYTES)));
+        }
+        return result;
+    }
+
+    /** Returns the length of the delta chain of the blob named HASH in
+     * BLOBSTORE: 0 for a blob stored whole.
+     * @param blobStore the store in which blobs are persisted.
+     * @param hash the hash of a blob. */
+    static int depth(ObjectStore blobStore, String hash) {
+        try (InputStream raw = blobStore.open(hash)) {
+            if (raw.read() != DELTA) {
+                return 0;
+            }
+            raw.skipNBytes(ID_BYTES);
+            return raw.read();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Streams the contents of the blob named HASH in BLOBSTORE into FILE,
+     * replacing it if it exists.
+     * @param blobStore the store in which blobs are persisted.
+     * @param hash the hash of the blob to write.
+     * @param file the file to overwrite. */
+    static void writeTo(ObjectStore blobStore, String hash, File file) {
+        try (InputStream in = open(blobStore, hash)) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the contents of the blob named HASH in BLOBSTORE as a
+     * String. Only for text that is about to be shown or merged.
+     * @param blobStore the store in which blobs are persisted.
+     * @param hash the hash of the blob to read.
+     * @return the String contents of the file. */
+    static String readString(ObjectStore blobStore, String hash) {
+        try (InputStream in = open(blobStore, hash)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a new SHA-1 message digest. */
+    private static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
     /** Returns the blobs hash code.
      * @return the hash of the blob*/
     String getHash() {
@@ -44,28 +406,31 @@ public class Blob implements Serializable {
         return name;
     }
 
-    /** SHA-1 hashcode of the blob object.
-     * @return the String contents of the file. */
-    String getBlobString() {
-        return blobString;
-    }
+    /** Type byte of a blob stored as its whole, compressed contents. */
+    static final int FULL = 0;
 
-    @Override
-    public boolean equals(Object o) {
-        return hash.equals(((Blob) o).getHash());
-    }
-    /** The file being turned into a blob. */
-    private File blobFile;
-    /** The hash of this blob. */
-    private String hash;
+    /** Type byte of a blob stored as a delta against another blob. */
+    static final int DELTA = 1;
 
-    /** The filename of this blob object. */
-    private String name;
+    /** Type byte of a blob stored as a list of chunks. */
+    static final int CHUNKED = 2;
+
+    /** Smallest file that is chunked. */
+    private static final int MIN_CHUNKED_SIZE = 4 * Chunker.NORMAL_SIZE;
+
+    /** Largest file, or base, that is delta-compressed; deltas are built
+     * in memory. */
+    private static final int MAX_DELTA_SIZE = 16 << 20;
 
+    /** Longest delta chain that can be recorded in a depth byte. */
+    private static final int MAX_DEPTH = 255;
 
-    /** The string within the blobFile. */
-    private String blobString;
+    /** Number of bytes in a binary blob id. */
+    private static final int ID_BYTES = ObjectStore.ID_BYTES;
 
-    /** The filepath this blob will be stored in. */
-    private File _blobDir;
+    /** The hash of this blob, taken over the file contents alone. */
+    private String hash;
+
+    /** The filename of this blob object. */
+    private String name;
 }
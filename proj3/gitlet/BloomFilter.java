@@ -0,0 +1,97 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/** A Bloom filter over strings: a bit array in which each key sets
+ *  HASHES bits, so that a key whose bits are not all set was certainly
+ *  not added, while one whose bits are all set probably was. The filter
+ *  has BITS_PER_KEY bits for each key added, which keeps the chance of a
+ *  false positive near one in a hundred.
+ *
+ *  Bit positions come from one 64-bit hash of the key's UTF-8 bytes, FNV-1a
+ *  followed by a final mix, split into two halves H1 and H2; the I-th bit
+ *  is H1 + I * H2 modulo the size of the filter. Bit K is bit K % 8 of
+ *  byte K / 8. A filter with no bits contains nothing.
+ *  @author Aniruddh Khanwale
+ */
+class BloomFilter {
+
+    /** A filter holding KEYS.
+     * @param keys the strings to add. */
+    BloomFilter(Collection<String> keys) {
+        _bits = new byte[(keys.size() * BITS_PER_KEY + 7) / 8];
+        for (String key : keys) {
+            long hash = hash(key);
+            for (int i = 0; i < HASHES; i += 1) {
+                int bit = bit(hash, i);
+                _bits[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+    }
+
+    /** The filter whose bit array is BITS.
+     * @param bits the bytes of a filter, as returned by toByteArray. */
+    BloomFilter(byte[] bits) {
+        _bits = bits;
+    }
+
+    /** Returns false if KEY was certainly not added to this filter.
+     * @param key a string. */
+    boolean mightContain(String key) {
+        if (_bits.length == 0) {
+            return false;
+        }
+        long hash = hash(key);
+        for (int i = 0; i < HASHES; i += 1) {
+            int bit = bit(hash, i);
+            if ((_bits[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the bit array of this filter, which the caller must not
+     *  modify. */
+    byte[] toByteArray() {
+        return _bits;
+    }
+
+    /** Returns the position of the I-th bit set by a key with hash HASH.
+     * @param hash the hash of the key.
+     * @param i the index of the bit, from 0 to HASHES - 1. */
+    private int bit(long hash, int i) {
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + i * h2, _bits.length * 8);
+    }
+
+    /** Returns the 64-bit hash of KEY.
+     * @param key a string. */
+    private static long hash(String key) {
+        long h = FNV_OFFSET;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** Number of bits set by each key. */
+    private static final int HASHES = 7;
+
+    /** Number of bits in the filter for each key. */
+    private static final int BITS_PER_KEY = 10;
+
+    /** Starting value of the FNV-1a hash. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /** Multiplier of the FNV-1a hash. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** The bit array. */
+    private final byte[] _bits;
+}
@@ -0,0 +1,56 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests of the Bloom filters of changed paths.
+ *  @author Aniruddh Khanwale
+ */
+public class BloomFilterTest {
+
+    /** Returns N distinct paths starting with PREFIX. */
+    private static List<String> paths(String prefix, int n) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i += 1) {
+            result.add(prefix + "/f" + i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testAddedKeysAlwaysFound() {
+        List<String> keys = paths("src/main", 500);
+        BloomFilter filter = new BloomFilter(keys);
+        for (String key : keys) {
+            assertTrue(key, filter.mightContain(key));
+        }
+        BloomFilter read = new BloomFilter(filter.toByteArray().clone());
+        for (String key : keys) {
+            assertTrue(key, read.mightContain(key));
+        }
+    }
+
+    @Test
+    public void testFalsePositivesRare() {
+        BloomFilter filter = new BloomFilter(paths("a", 200));
+        int hits = 0;
+        for (String key : paths("b", 10000)) {
+            if (filter.mightContain(key)) {
+                hits += 1;
+            }
+        }
+        assertTrue("false positives: " + hits, hits < 300);
+    }
+
+    @Test
+    public void testEmptyFilterHoldsNothing() {
+        BloomFilter filter = new BloomFilter(new ArrayList<>());
+        assertEquals(0, filter.toByteArray().length);
+        assertFalse(filter.mightContain(""));
+        assertFalse(filter.mightContain("a"));
+    }
+}
@@ -0,0 +1,139 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Splits a stream into chunks at content-defined boundaries, in the
+ *  manner of FastCDC, so that an insertion or deletion in a file moves
+ *  only the boundaries near it and the chunks elsewhere come out the same
+ *  as before.
+ *
+ *  A gear hash is rolled over the bytes after the first MIN_SIZE of a
+ *  chunk: each byte shifts the hash left one bit and adds a fixed random
+ *  value for that byte, so the top bits of the hash depend on about the
+ *  last 64 bytes. The chunk ends after the first byte at which the hash's
+ *  masked bits are all zero. Before NORMAL_SIZE the mask is SMALL_MASK,
+ *  which is rarely matched, and after it LARGE_MASK, which is matched
+ *  often, so that chunk sizes cluster around NORMAL_SIZE. No chunk is
+ *  longer than MAX_SIZE, and only the last may be shorter than MIN_SIZE.
+ *  @author Aniruddh Khanwale
+ */
+class Chunker {
+
+    /** Shortest chunk, other than the last. */
+    static final int MIN_SIZE = 2 << 10;
+
+    /** Size around which chunk sizes cluster. */
+    static final int NORMAL_SIZE = 8 << 10;
+
+    /** Longest chunk. */
+    static final int MAX_SIZE = 64 << 10;
+
+    /** A chunker of the bytes of IN, which the caller must close.
+     * @param in the stream to split. */
+    Chunker(InputStream in) {
+        _in = in;
+    }
+
+    /** Returns the next chunk, or null at the end of the stream. */
+    byte[] next() {
+        if (!_eof && _end - _start < MAX_SIZE) {
+            fill();
+        }
+        if (_start == _end) {
+            return null;
+        }
+        int length = cut(_buf, _start, _end - _start);
+        byte[] result = Arrays.copyOfRange(_buf, _start, _start + length);
+        _start += length;
+        return result;
+    }
+
+    /** Returns the length of the chunk that starts at START in BUF, given
+     *  that LENGTH bytes from there on are available, all of them if the
+     *  stream ends there, or at least MAX_SIZE if it does not.
+     * @param buf the bytes being split.
+     * @param start the start of the chunk.
+     * @param length the number of bytes available. */
+    static int cut(byte[] buf, int start, int length) {
+        if (length <= MIN_SIZE) {
+            return length;
+        }
+        int end = Math.min(length, MAX_SIZE);
+        int normal = Math.min(end, NORMAL_SIZE);
+        long hash = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i += 1) {
+            hash = (hash << 1) + GEAR[buf[start + i] & 0xff];
+            if ((hash & SMALL_MASK) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i += 1) {
+            hash = (hash << 1) + GEAR[buf[start + i] & 0xff];
+            if ((hash & LARGE_MASK) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /** Moves the unread bytes to the front of the buffer and reads until
+     *  it is full or the stream ends. */
+    private void fill() {
+        System.arraycopy(_buf, _start, _buf, 0, _end - _start);
+        _end -= _start;
+        _start = 0;
+        try {
+            while (_end < _buf.length) {
+                int n = _in.read(_buf, _end, _buf.length - _end);
+                if (n < 0) {
+                    _eof = true;
+                    return;
+                }
+                _end += n;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Mask of the hash bits tested before NORMAL_SIZE: 15 bits, so a
+     *  boundary is found at a given byte with probability 1/32768. */
+    private static final long SMALL_MASK = -1L << 49;
+
+    /** Mask of the hash bits tested from NORMAL_SIZE on: 11 bits, so a
+     *  boundary is found at a given byte with probability 1/2048. */
+    private static final long LARGE_MASK = -1L << 53;
+
+    /** Seed of the gear values, which fixes where chunks are cut and so
+     *  must never change. */
+    private static final long GEAR_SEED = 0x6769746c6574L;
+
+    /** The value added to the hash for each byte value. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(GEAR_SEED);
+        for (int i = 0; i < GEAR.length; i += 1) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /** The stream being split. */
+    private final InputStream _in;
+
+    /** Buffered bytes of the stream, unread from _start to _end. */
+    private final byte[] _buf = new byte[MAX_SIZE];
+
+    /** Position in _buf of the first unread byte. */
+    private int _start;
+
+    /** Position in _buf after the last buffered byte. */
+    private int _end;
+
+    /** True iff the stream has ended. */
+    private boolean _eof;
+}
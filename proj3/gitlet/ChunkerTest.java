@@ -0,0 +1,119 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of content-defined chunking and chunked blobs.
+ *  @author Aniruddh Khanwale
+ */
+public class ChunkerTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Returns N random bytes drawn with SEED. */
+    private static byte[] random(int n, long seed) {
+        byte[] result = new byte[n];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+
+    /** Returns the chunks of CONTENTS. */
+    private static List<byte[]> chunks(byte[] contents) {
+        Chunker chunker = new Chunker(new ByteArrayInputStream(contents));
+        ArrayList<byte[]> result = new ArrayList<>();
+        for (byte[] chunk = chunker.next(); chunk != null;
+             chunk = chunker.next()) {
+            result.add(chunk);
+        }
+        return result;
+    }
+
+    /** Returns CONTENTS with INSERT inserted at AT. */
+    private static byte[] insert(byte[] contents, int at, byte[] insert) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        result.write(contents, 0, at);
+        result.write(insert, 0, insert.length);
+        result.write(contents, at, contents.length - at);
+        return result.toByteArray();
+    }
+
+    @Test
+    public void testChunksCoverInputWithinBounds() {
+        byte[] contents = random(1 << 20, 1);
+        List<byte[]> chunks = chunks(contents);
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i += 1) {
+            byte[] chunk = chunks.get(i);
+            assertTrue(chunk.length <= Chunker.MAX_SIZE);
+            assertTrue(i == chunks.size() - 1
+                    || chunk.length >= Chunker.MIN_SIZE);
+            joined.write(chunk, 0, chunk.length);
+        }
+        assertArrayEquals(contents, joined.toByteArray());
+        int average = contents.length / chunks.size();
+        assertTrue("average " + average, average > Chunker.NORMAL_SIZE / 2
+                && average < 2 * Chunker.NORMAL_SIZE);
+        assertTrue(chunks(new byte[0]).isEmpty());
+    }
+
+    @Test
+    public void testInsertionChangesFewChunks() {
+        byte[] contents = random(1 << 20, 2);
+        HashSet<String> before = new HashSet<>();
+        for (byte[] chunk : chunks(contents)) {
+            before.add(Utils.sha1(chunk));
+        }
+        List<byte[]> after = chunks(insert(contents, 300000,
+                random(100, 3)));
+        int fresh = 0;
+        for (byte[] chunk : after) {
+            if (!before.contains(Utils.sha1(chunk))) {
+                fresh += 1;
+            }
+        }
+        assertTrue("new chunks: " + fresh, fresh <= 3);
+    }
+
+    @Test
+    public void testChunkedBlobsShareChunks() throws IOException {
+        File dir = UnitTest.tempDirectory("gitlet-chunks");
+        ObjectStore store = new ObjectStore(Utils.join(dir, "blobs"));
+        store.getDirectory().mkdir();
+        File file = Utils.join(dir, "data");
+        byte[] one = random(256 << 10, 4);
+        Utils.writeContents(file, one);
+        String first = new Blob(file, store, null, 0, true).getHash();
+        assertTrue(Blob.isChunked(store, first));
+        int stored = store.ids().size();
+        assertEquals(stored - 1, Blob.references(store, first).size());
+        byte[] two = insert(one, 1000, random(10, 5));
+        Utils.writeContents(file, two);
+        String second = new Blob(file, store, null, 0, true).getHash();
+        assertTrue(store.ids().size() - stored <= 3);
+        try (InputStream in = Blob.open(store, first)) {
+            assertArrayEquals(one, in.readAllBytes());
+        }
+        try (InputStream in = Blob.open(store, second)) {
+            assertArrayEquals(two, in.readAllBytes());
+        }
+        Utils.writeContents(file, "small");
+        assertFalse(Blob.isChunked(store,
+                new Blob(file, store, null, 0, true).getHash()));
+    }
+}
@@ -0,0 +1,105 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/** Tests of shallow and lazy clones.
+ *  @author Aniruddh Khanwale
+ */
+public class CloneTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Writes CONTENTS to NAME in the working directory ROOT, commits it
+     *  with MESSAGE and returns the new head. */
+    private static String commit(File root, String name, String contents,
+                                 String message) {
+        Utils.writeContents(Utils.join(root, name), contents);
+        Main.main("add", name);
+        Main.main("commit", message);
+        return Utils.readContentsAsString(
+                Utils.join(root, ".gitlet", "HEAD"));
+    }
+
+    /** Returns the ids of the objects in the store NAME of the repository
+     *  in ROOT. */
+    private static TreeSet<String> ids(File root, String name) {
+        return new TreeSet<>(new ObjectStore(
+                Utils.join(root, ".gitlet", name)).ids());
+    }
+
+    @Test
+    public void testShallowCloneCopiesDepthGenerations() throws IOException {
+        File origin = UnitTest.tempDirectory("gitlet-origin");
+        File copy = UnitTest.tempDirectory("gitlet-clone");
+        try {
+            Main.setRoot(origin);
+            Main.main("init");
+            commit(origin, "f", "1", "one");
+            commit(origin, "f", "2", "two");
+            String three = commit(origin, "f", "3", "three");
+            String four = commit(origin, "g", "4", "four");
+            Main.setRoot(copy);
+            Main.main("clone", "--depth", "2",
+                    Utils.join(origin, ".gitlet").getPath());
+            assertEquals(Set.of(three, four), ids(copy, "commits"));
+            File gitletDir = Utils.join(copy, ".gitlet");
+            assertEquals(Set.of(three), CommitGraph.shallow(gitletDir));
+            CommitGraph graph = new CommitGraph(gitletDir, new ObjectStore(
+                    Utils.join(gitletDir, "commits")));
+            int head = graph.ensure(four);
+            assertEquals(2, graph.size());
+            assertEquals(three, graph.id(graph.parent(head)));
+            assertEquals(CommitGraph.NONE,
+                    graph.parent(graph.parent(head)));
+            assertEquals("3", Utils.readContentsAsString(
+                    Utils.join(copy, "f")));
+        } finally {
+            Main.setRoot(new File("."));
+        }
+    }
+
+    @Test
+    public void testLazyCloneFaultsBlobsIn() throws IOException {
+        File origin = UnitTest.tempDirectory("gitlet-origin");
+        File lazy = UnitTest.tempDirectory("gitlet-lazy");
+        File full = UnitTest.tempDirectory("gitlet-full");
+        try {
+            Main.setRoot(origin);
+            Main.main("init");
+            String one = commit(origin, "f", "old", "one");
+            commit(origin, "g", "g", "two");
+            commit(origin, "f", "new", "three");
+            String old = Utils.sha1("old"), now = Utils.sha1("new"),
+                    g = Utils.sha1("g");
+            assertEquals(Set.of(old, now, g), ids(origin, "blobs"));
+            String source = Utils.join(origin, ".gitlet").getPath();
+
+            Main.setRoot(full);
+            Main.main("clone", source);
+            assertEquals(Set.of(old, now, g), ids(full, "blobs"));
+
+            Main.setRoot(lazy);
+            Main.main("clone", "--lazy", source);
+            assertEquals(Set.of(now, g), ids(lazy, "blobs"));
+            assertEquals(ids(origin, "commits"), ids(lazy, "commits"));
+            Main.main("checkout", one, "--", "f");
+            assertEquals("old", Utils.readContentsAsString(
+                    Utils.join(lazy, "f")));
+            assertEquals(Set.of(old, now, g), ids(lazy, "blobs"));
+        } finally {
+            Main.setRoot(new File("."));
+        }
+    }
+}
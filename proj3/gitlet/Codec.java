@@ -0,0 +1,262 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** The binary format of the objects and files gitlet writes: commits,
+ *  trees, the stage, the index and cached blames. Each encoding starts
+ *  with a byte naming the kind of object and a byte giving the format
+ *  version, followed by the object's fields in a fixed order:
+ *
+ *    - whole numbers as unsigned LEB128 varints, 7 bits to a byte, low
+ *      bits first, with signed values zigzag-encoded first;
+ *    - strings as a varint of their UTF-8 length plus one, 0 standing for
+ *      null, then the UTF-8 bytes;
+ *    - hashes as a byte 0 for null, or 1 followed by the 20 raw bytes.
+ *
+ *  Unlike Java serialization, an encoding holds no class descriptors or
+ *  field names, so it is small, quick to read and write, and depends on
+ *  nothing but the field values; the ids of commits and trees, which are
+ *  hashes of their encodings, are therefore stable across JVMs.
+ *  @author Aniruddh Khanwale
+ */
+class Codec {
+
+    /** Kind byte of a commit. */
+    static final int COMMIT = 1;
+
+    /** Kind byte of a merge commit. */
+    static final int MERGE_COMMIT = 2;
+
+    /** Kind byte of an initial commit. */
+    static final int INITIAL_COMMIT = 3;
+
+    /** Kind byte of a tree. */
+    static final int TREE = 4;
+
+    /** Kind byte of a staging area. */
+    static final int STAGE = 5;
+
+    /** Kind byte of an index. */
+    static final int INDEX = 6;
+
+    /** Kind byte of a cached blame. */
+    static final int BLAME = 7;
+
+    /** Version of the format written, and the only one read. */
+    static final int VERSION = 1;
+
+    /** Returns the kind byte of the encoding BYTES.
+     * @param bytes an encoded object. */
+    static int kind(byte[] bytes) {
+        if (bytes.length < 2) {
+            throw new IllegalArgumentException("truncated object");
+        }
+        return bytes[0];
+    }
+
+    /** Builds the encoding of one object. */
+    static class Encoder {
+
+        /** An encoding of an object of kind KIND, holding just its
+         *  header so far.
+         * @param kind the kind byte. */
+        Encoder(int kind) {
+            put(kind);
+            put(VERSION);
+        }
+
+        /** Appends the non-negative number VALUE.
+         * @param value the number to write.
+         * @return this encoder. */
+        Encoder varint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                put((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            put((int) value);
+            return this;
+        }
+
+        /** Appends the possibly negative number VALUE.
+         * @param value the number to write.
+         * @return this encoder. */
+        Encoder signed(long value) {
+            return varint((value << 1) ^ (value >> 63));
+        }
+
+        /** Appends the string VALUE, which may be null.
+         * @param value the string to write.
+         * @return this encoder. */
+        Encoder string(String value) {
+            if (value == null) {
+                return varint(0);
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, _buf, _size, utf8.length);
+            _size += utf8.length;
+            return this;
+        }
+
+        /** Appends the hash VALUE, a 40-digit hex string, or null.
+         * @param value the hash to write.
+         * @return this encoder. */
+        Encoder hash(String value) {
+            if (value == null) {
+                put(0);
+                return this;
+            }
+            put(1);
+            ensure(ObjectStore.ID_BYTES);
+            for (int i = 0; i < ObjectStore.ID_BYTES; i += 1) {
+                _buf[_size + i] = (byte)
+                        ((Character.digit(value.charAt(2 * i), 16) << 4)
+                        | Character.digit(value.charAt(2 * i + 1), 16));
+            }
+            _size += ObjectStore.ID_BYTES;
+            return this;
+        }
+
+        /** Returns the encoding built so far. */
+        byte[] toByteArray() {
+            return Arrays.copyOf(_buf, _size);
+        }
+
+        /** Appends the byte B.
+         * @param b the byte to write. */
+        private void put(int b) {
+            ensure(1);
+            _buf[_size] = (byte) b;
+            _size += 1;
+        }
+
+        /** Makes room for N more bytes.
+         * @param n the number of bytes about to be written. */
+        private void ensure(int n) {
+            if (_size + n > _buf.length) {
+                _buf = Arrays.copyOf(_buf,
+                        Math.max(2 * _buf.length, _size + n));
+            }
+        }
+
+        /** The encoding, in its first _size bytes. */
+        private byte[] _buf = new byte[INITIAL_BYTES];
+
+        /** Number of bytes written. */
+        private int _size;
+    }
+
+    /** Reads the fields of one encoded object, in the order they were
+     *  written. All methods throw IllegalArgumentException if the
+     *  encoding is malformed. */
+    static class Decoder {
+
+        /** A decoder of BYTES, which must be the encoding of an object of
+         *  kind KIND in the current version.
+         * @param bytes an encoded object.
+         * @param kind the expected kind byte. */
+        Decoder(byte[] bytes, int kind) {
+            if (kind(bytes) != kind) {
+                throw new IllegalArgumentException("unexpected object kind "
+                        + bytes[0]);
+            } else if (bytes[1] != VERSION) {
+                throw new IllegalArgumentException("unsupported version "
+                        + bytes[1]);
+            }
+            _bytes = bytes;
+            _pos = 2;
+        }
+
+        /** Returns the next non-negative number. */
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                int b = get();
+                result |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+
+        /** Returns the next number that was written as a count, which
+         *  must fit in an int. */
+        int count() {
+            long result = varint();
+            if (result > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("malformed count");
+            }
+            return (int) result;
+        }
+
+        /** Returns the next possibly negative number. */
+        long signed() {
+            long raw = varint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        /** Returns the next string, or null. */
+        String string() {
+            int length = count();
+            if (length == 0) {
+                return null;
+            }
+            length -= 1;
+            check(length);
+            String result = new String(_bytes, _pos, length,
+                    StandardCharsets.UTF_8);
+            _pos += length;
+            return result;
+        }
+
+        /** Returns the next hash as a 40-digit hex string, or null. */
+        String hash() {
+            if (get() == 0) {
+                return null;
+            }
+            check(ObjectStore.ID_BYTES);
+            char[] hex = new char[2 * ObjectStore.ID_BYTES];
+            for (int i = 0; i < ObjectStore.ID_BYTES; i += 1) {
+                int b = _bytes[_pos + i] & 0xff;
+                hex[2 * i] = Character.forDigit(b >>> 4, 16);
+                hex[2 * i + 1] = Character.forDigit(b & 0xf, 16);
+            }
+            _pos += ObjectStore.ID_BYTES;
+            return new String(hex);
+        }
+
+        /** Checks that every byte of the encoding has been read. */
+        void end() {
+            if (_pos != _bytes.length) {
+                throw new IllegalArgumentException("trailing bytes");
+            }
+        }
+
+        /** Returns the next byte, as an unsigned value. */
+        private int get() {
+            check(1);
+            _pos += 1;
+            return _bytes[_pos - 1] & 0xff;
+        }
+
+        /** Checks that N more bytes remain.
+         * @param n the number of bytes about to be read. */
+        private void check(int n) {
+            if (n > _bytes.length - _pos) {
+                throw new IllegalArgumentException("truncated object");
+            }
+        }
+
+        /** The encoding. */
+        private final byte[] _bytes;
+
+        /** Position of the next byte to read. */
+        private int _pos;
+    }
+
+    /** Initial size of an encoder's buffer. */
+    private static final int INITIAL_BYTES = 128;
+}
@@ -0,0 +1,108 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** Tests of the binary object format.
+ *  @author Aniruddh Khanwale
+ */
+public class CodecTest {
+
+    @Test
+    public void testFieldsRoundTrip() {
+        long[] numbers = {0, 1, 127, 128, 300, Long.MAX_VALUE};
+        long[] signed = {0, -1, 1, -64, 64, Long.MIN_VALUE, Long.MAX_VALUE};
+        String hash = Utils.sha1("x");
+        Codec.Encoder out = new Codec.Encoder(Codec.TREE);
+        for (long n : numbers) {
+            out.varint(n);
+        }
+        for (long n : signed) {
+            out.signed(n);
+        }
+        out.string(null).string("").string("caf\u00e9 \u2603")
+                .hash(null).hash(hash);
+        byte[] bytes = out.toByteArray();
+        assertEquals(Codec.TREE, Codec.kind(bytes));
+        assertEquals(Codec.VERSION, bytes[1]);
+        Codec.Decoder in = new Codec.Decoder(bytes, Codec.TREE);
+        for (long n : numbers) {
+            assertEquals(n, in.varint());
+        }
+        for (long n : signed) {
+            assertEquals(n, in.signed());
+        }
+        assertNull(in.string());
+        assertEquals("", in.string());
+        assertEquals("caf\u00e9 \u2603", in.string());
+        assertNull(in.hash());
+        assertEquals(hash, in.hash());
+        in.end();
+    }
+
+    @Test
+    public void testSmallValuesAreOneByte() {
+        assertEquals(3, new Codec.Encoder(Codec.TREE).varint(127)
+                .toByteArray().length);
+        assertEquals(4, new Codec.Encoder(Codec.TREE).varint(128)
+                .toByteArray().length);
+        assertEquals(3, new Codec.Encoder(Codec.TREE).signed(-1)
+                .toByteArray().length);
+    }
+
+    @Test
+    public void testCommitsRoundTrip() {
+        String parent = Utils.sha1("parent"), other = Utils.sha1("other");
+        byte[] bytes = new Codec.Encoder(Codec.MERGE_COMMIT)
+                .signed(1234).string("Merged dev into master.")
+                .hash(Utils.sha1("tree")).hash(parent).string("master")
+                .hash(other).toByteArray();
+        Commit commit = Commit.decode(bytes, Utils.sha1(bytes));
+        assertTrue(commit instanceof MergeCommit);
+        assertEquals(other, ((MergeCommit) commit).getSecondaryParentUID());
+        assertEquals(parent, commit.getParentUID());
+        assertEquals(1234, commit.getCommitTime());
+        assertArrayEquals(bytes, commit.encode());
+        InitialCommit initial = new InitialCommit("initial commit", 0);
+        initial.commit();
+        Commit read = Commit.decode(initial.encode(), initial.getHash());
+        assertTrue(read instanceof InitialCommit);
+        assertNull(read.getParentUID());
+        assertNull(read.getTree());
+        assertEquals(initial.getHash(), Utils.sha1(read.encode()));
+    }
+
+    @Test
+    public void testMalformedEncodingsRejected() {
+        byte[] bytes = new Codec.Encoder(Codec.TREE).string("abc")
+                .toByteArray();
+        assertRejected(Arrays.copyOf(bytes, bytes.length - 1), Codec.TREE);
+        assertRejected(bytes, Codec.STAGE);
+        byte[] future = bytes.clone();
+        future[1] = Codec.VERSION + 1;
+        assertRejected(future, Codec.TREE);
+        Codec.Decoder in = new Codec.Decoder(bytes, Codec.TREE);
+        try {
+            in.end();
+            fail("trailing bytes accepted");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("abc", in.string());
+        }
+    }
+
+    /** Asserts that BYTES cannot be decoded as one string in an object of
+     *  kind KIND.
+     * @param bytes an encoding.
+     * @param kind the kind to decode it as. */
+    private static void assertRejected(byte[] bytes, int kind) {
+        try {
+            new Codec.Decoder(bytes, kind).string();
+            fail("malformed encoding accepted");
+        } catch (IllegalArgumentException excp) {
+            return;
+        }
+    }
+}
@@ -2,15 +2,17 @@ package gitlet;
 
 
 import java.io.File;
-import java.io.Serializable;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.TreeMap;
 
 /**
  * The Commit class stores instances of commits.
  * @author Aniruddh Khanwale
  */
-public class Commit implements Serializable, Dumpable {
+public class Commit implements Dumpable {
 
     /** The epoch time in Milliseconds at which this commit was made. **/
     private long commitTime;
@@ -18,11 +20,19 @@ public class Commit implements Serializable, Dumpable {
     /** The commit message. **/
     private String commitMessage;
 
-    /** The SHA-1 hash of this commit used for identification purposes.*/
+    /** The SHA-1 hash of this commit used for identification purposes:
+     * the hash of its encoding, which does not include this field. */
     private String hash;
 
-    /** Stores the staging area associated with this commit. */
-    private StagingArea myStage;
+    /** The hash of the root tree of the files tracked by this commit, or
+     * null if it tracks none. Trees live in .gitlet/trees. */
+    private String tree = null;
+
+    /** The store from which this commit's trees are read. */
+    private ObjectStore trees;
+
+    /** The manifest of this commit, once flattened from its tree. */
+    private TreeMap<String, String> blobs;
 
     /** The parent commit. */
     private String parentUID = null;
@@ -30,9 +40,6 @@ public class Commit implements Serializable, Dumpable {
     /** The branch this commit was made on. */
     private String branch = "master";
 
-    /** The directory in which to persist the commit object. */
-    private File commitDir;
-
     /** Default constructor, allowing for extension. */
     public Commit() {
 
@@ -46,21 +53,99 @@ public class Commit implements Serializable, Dumpable {
         setCommitTime(unixTime);
     }
 
-    /** Performs the commit operation.
+    /** Returns the commit ID in COMMITS, whose trees are in TREES.
+     *
+     * @param commits The commit store
+     * @param trees The tree store
+     * @param id The full id of the commit
+     */
+    static Commit read(ObjectStore commits, ObjectStore trees, String id) {
+        Commit result = decode(commits.read(id), id);
+        result.trees = trees;
+        return result;
+    }
+
+    /** Returns the commit ID in COMMITS, for use where only its metadata
+     * and root tree hash, not its files, are needed.
+     *
+     * @param commits The commit store
+     * @param id The full id of the commit
+     */
+    static Commit read(ObjectStore commits, String id) {
+        return read(commits, null, id);
+    }
+
+    /** Returns the commit with id ID whose encoding is BYTES.
+     *
+     * @param bytes The encoded commit
+     * @param id The full id of the commit
+     */
+    static Commit decode(byte[] bytes, String id) {
+        int kind = Codec.kind(bytes);
+        if (kind != Codec.COMMIT && kind != Codec.MERGE_COMMIT
+                && kind != Codec.INITIAL_COMMIT) {
+            throw new IllegalArgumentException("not a commit: " + id);
+        }
+        Codec.Decoder in = new Codec.Decoder(bytes, kind);
+        long time = in.signed();
+        String message = in.string();
+        String root = in.hash();
+        String parent = in.hash();
+        String branchName = in.string();
+        Commit result;
+        if (kind == Codec.MERGE_COMMIT) {
+            result = new MergeCommit(message, time, in.hash());
+        } else if (kind == Codec.INITIAL_COMMIT) {
+            result = new InitialCommit(message, time);
+        } else {
+            result = new Commit(message, time);
+        }
+        in.end();
+        result.tree = root;
+        result.parentUID = parent;
+        result.branch = branchName;
+        result.hash = id;
+        return result;
+    }
+
+    /** Returns the encoding of this commit: its time, message, root tree,
+     * parent and branch, and the merged-in parent of a merge commit. */
+    byte[] encode() {
+        Codec.Encoder out = new Codec.Encoder(
+                this instanceof MergeCommit ? Codec.MERGE_COMMIT
+                : this instanceof InitialCommit ? Codec.INITIAL_COMMIT
+                : Codec.COMMIT);
+        out.signed(commitTime).string(commitMessage).hash(tree)
+                .hash(parentUID).string(branch);
+        if (this instanceof MergeCommit) {
+            out.hash(((MergeCommit) this).getSecondaryParentUID());
+        }
+        return out.toByteArray();
+    }
+
+    /** Performs the commit operation: records the tracked files of STAGE
+     * and the head of BRANCH1 as parent, and computes the hash. Only the
+     * trees of directories containing staged or removed files are written
+     * to TREES1; all others are shared with the parent. Moving the branch
+     * and HEAD, and clearing the stage, are left to the caller.
      *
      * @param stage The current staging area
      * @param branch1 The branch to which this commit is being made.
+     * @param trees1 The tree store
      */
-    void commit(StagingArea stage, String branch1) {
+    void commit(StagingArea stage, String branch1, ObjectStore trees1) {
         branch = branch1;
-        myStage = stage;
-        File branchPath = Utils.join(myStage.getGitletDir(),
+        trees = trees1;
+        TreeMap<String, String> changes = new TreeMap<>(
+                stage.getStagedFiles());
+        for (String name : stage.getRemovedFiles()) {
+            changes.put(name, null);
+        }
+        tree = Tree.update(trees, stage.getHeadTree(), changes);
+        File branchPath = Utils.join(stage.getGitletDir(),
                 "branches", branch1);
-        commitDir = Utils.join(myStage.getGitletDir(), "commits");
-        myStage.getStagePath().delete();
         parentUID = Utils.readContentsAsString(branchPath);
         setHash();
-        Utils.writeContents(myStage.getHeadPath(), hash);
     }
 
     /** Return the commit time of this commit. */
@@ -97,11 +182,23 @@ public class Commit implements Serializable, Dumpable {
 
     /** Set the default hash value of this commit. */
     void setHash() {
-        hash = Utils.sha1(Utils.serialize(this));
+        hash = Utils.sha1(encode());
+    }
+    /** Return the manifest of the commit, mapping file paths to blob
+     * hashes. This reads every tree of the commit, so commands that
+     * only need a few paths, or the differences from another commit, use
+     * getTree instead. */
+    TreeMap<String, String> getBlobs() {
+        if (blobs == null) {
+            blobs = Tree.flatten(trees, tree);
+        }
+        return blobs;
     }
-    /** Return the stage of the commit. */
-    StagingArea getStage() {
-        return myStage;
+
+    /** Return the hash of the root tree, or null if no files are
+     * tracked. */
+    String getTree() {
+        return tree;
     }
 
     /** Returns the branch on which this commit was made. */
@@ -111,36 +208,39 @@ public class Commit implements Serializable, Dumpable {
     /** Formats the string into the proper format for the commit.
      * @return The formatted time string */
     public String timeToString() {
-        SimpleDateFormat sdf =
-                new SimpleDateFormat("E MMM dd HH:mm:ss yyyy Z");
-        return sdf.format(new Date(getCommitTime()));
+        return DATE_FORMAT.format(Instant.ofEpochMilli(getCommitTime()));
     }
 
     @Override
     public void dump() {
         System.out.println(commitMessage + "at " + timeToString());
         System.out.println("HEAD was at" + parentUID);
-        System.out.println("NEW HEAD is" + hash + ", "
-                + Utils.readContentsAsString(myStage.getHeadPath()));
+        System.out.println("NEW HEAD is" + hash);
+        System.out.println("Tree: " + tree);
         System.out.println("+++++");
     }
 
-    /** Writes the commit to a file in the commit directory.
-     * @param commitDir1 The directory to which to write the commit. */
-    void persist(File commitDir1) {
-        Utils.writeObject(Utils.join(commitDir1, hash), this);
+    /** Writes the commit to the commit store.
+     * @param commitStore The store to which to write the commit. */
+    void persist(ObjectStore commitStore) {
+        commitStore.write(hash, encode());
     }
 
-    /** Prints out the log of this commit.
+    /** Writes the log entry of this commit to OUT.
+     * @param out The writer to which log output goes.
      * @return The parent ID of this commit, to be used for looping. */
-    String log() {
-        System.out.println("===");
-        System.out.println("commit " + hash);
-        System.out.println("Date: " + timeToString());
-        System.out.println(commitMessage);
-        System.out.println();
+    String log(PrintWriter out) {
+        out.println("===");
+        out.println("commit " + hash);
+        out.println("Date: " + timeToString());
+        out.println(commitMessage);
+        out.println();
         return parentUID;
     }
 
-
+    /** The format of commit times in logs, shared by all commits. Unlike
+     * SimpleDateFormat, a DateTimeFormatter may be reused freely. */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+            .ofPattern("E MMM dd HH:mm:ss yyyy Z")
+            .withZone(ZoneId.systemDefault());
 }
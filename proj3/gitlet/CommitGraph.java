@@ -0,0 +1,513 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/** A compact, persistent copy of the shape of the commit history. Each
+ *  commit is given an int position; parents are stored as positions,
+ *  alongside commit times and generation numbers (one more than the
+ *  largest generation of any parent; 1 for the initial commit). Ancestry
+ *  questions are answered from these arrays without reading any commit
+ *  objects.
+ *
+ *  The file .gitlet/commit-graph is a 4-byte magic number followed by
+ *  one fixed-size record per commit, in position order. Records are only
+ *  ever appended, and a commit is always appended after its parents. A
+ *  record torn off the end by a crash is ignored, and overwritten by the
+ *  next one appended.
+ *
+ *  Alongside it, .gitlet/commit-graph-paths holds for each commit a Bloom
+ *  filter of the paths it changed relative to its first parent, along
+ *  with every directory above them, so that a walk looking for the
+ *  commits that touched a path can pass over most of the others without
+ *  reading their trees. After its own magic number, the file holds one
+ *  record per commit: the commit's position, the length in bytes of its
+ *  filter, and the filter. A length of -1 marks a commit that changed more
+ *  than MAX_CHANGED_PATHS paths, whose filter is not kept. A commit with
+ *  no record, such as one added before the file existed, may have changed
+ *  any path. A torn last record, and any record for a position the graph
+ *  file does not reach, are cut off before the next record is appended.
+ *
+ *  A shallow repository lists in .gitlet/shallow, one per line, the
+ *  commits whose parents it does not have. The graph treats those
+ *  commits as having no parents, so walks end at the shallow boundary.
+ *  @author Aniruddh Khanwale
+ */
+class CommitGraph {
+
+    /** Position used for a missing parent. */
+    static final int NONE = -1;
+
+    /** Loads the commit graph of the repository in GITLETDIR, whose commit
+     *  objects are kept in COMMITSTORE.
+     * @param gitletDir the .gitlet directory.
+     * @param commitStore the store of commit objects. */
+    CommitGraph(File gitletDir, ObjectStore commitStore) {
+        _file = Utils.join(gitletDir, "commit-graph");
+        _pathsFile = Utils.join(gitletDir, PATHS);
+        _commitStore = commitStore;
+        _treeStore = new ObjectStore(Utils.join(gitletDir, "trees"));
+        _shallow = shallow(gitletDir);
+        if (_file.length() >= 4) {
+            ByteBuffer buf = ByteBuffer.wrap(Utils.readContents(_file));
+            if (buf.getInt() != MAGIC) {
+                throw new IllegalArgumentException("corrupt commit graph");
+            }
+            byte[] id = new byte[ObjectStore.ID_BYTES];
+            while (buf.remaining() >= RECORD_BYTES) {
+                buf.get(id);
+                append(Utils.toHex(id), buf.getInt(), buf.getInt(),
+                        buf.getLong(), buf.getInt());
+            }
+        } else {
+            _pathsFile.delete();
+        }
+    }
+
+    /** Deletes the commit graph of the repository in GITLETDIR, so that
+     *  it is rebuilt, by ensure, from the commits that remain.
+     * @param gitletDir the .gitlet directory. */
+    static void clear(File gitletDir) {
+        Utils.join(gitletDir, "commit-graph").delete();
+        Utils.join(gitletDir, PATHS).delete();
+    }
+
+    /** Returns the shallow commits of the repository in GITLETDIR: those
+     *  whose parents it does not have.
+     * @param gitletDir the .gitlet directory. */
+    static TreeSet<String> shallow(File gitletDir) {
+        TreeSet<String> result = new TreeSet<>();
+        File file = Utils.join(gitletDir, SHALLOW);
+        if (file.isFile()) {
+            for (String id : Utils.readContentsAsString(file).split("\n")) {
+                if (!id.isEmpty()) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Adds IDS to the shallow commits of the repository in GITLETDIR.
+     * @param gitletDir the .gitlet directory.
+     * @param ids commits whose parents the repository does not have. */
+    static void addShallow(File gitletDir, Collection<String> ids) {
+        TreeSet<String> all = shallow(gitletDir);
+        if (all.addAll(ids)) {
+            StringBuilder text = new StringBuilder();
+            for (String id : all) {
+                text.append(id).append('\n');
+            }
+            Utils.writeAtomically(Utils.join(gitletDir, SHALLOW),
+                    text.toString());
+        }
+    }
+
+    /** Returns the number of commits in the graph. */
+    int size() {
+        return _ids.size();
+    }
+
+    /** Returns the position of commit ID, or NONE if it is not in the
+     *  graph.
+     * @param id a full commit id. */
+    int position(String id) {
+        Integer pos = _positions.get(id);
+        return pos == null ? NONE : pos;
+    }
+
+    /** Returns the id of the commit at POS.
+     * @param pos a position in the graph. */
+    String id(int pos) {
+        return _ids.get(pos);
+    }
+
+    /** Returns the position of the first parent of POS, or NONE.
+     * @param pos a position in the graph. */
+    int parent(int pos) {
+        return _parents[2 * pos];
+    }
+
+    /** Returns the position of the second (merged-in) parent of POS, or
+     *  NONE.
+     * @param pos a position in the graph. */
+    int secondParent(int pos) {
+        return _parents[2 * pos + 1];
+    }
+
+    /** Returns the generation number of POS.
+     * @param pos a position in the graph. */
+    int generation(int pos) {
+        return _generations[pos];
+    }
+
+    /** Returns the commit time of POS.
+     * @param pos a position in the graph. */
+    long time(int pos) {
+        return _times[pos];
+    }
+
+    /** Adds COMMIT, whose parents must already be in the graph, and
+     *  appends it to the graph file. Does nothing if COMMIT is present.
+     * @param commit the commit to add.
+     * @return the position of COMMIT. */
+    int add(Commit commit) {
+        int pos = position(commit.getHash());
+        if (pos != NONE) {
+            return pos;
+        }
+        List<String> parents = parentIds(commit);
+        int p0 = parents.isEmpty() ? NONE : parentPosition(parents.get(0));
+        int p1 = parents.size() < 2 ? NONE : parentPosition(parents.get(1));
+        int gen = 1 + Math.max(p0 == NONE ? 0 : generation(p0),
+                p1 == NONE ? 0 : generation(p1));
+        if (_filters == null) {
+            loadPaths();
+        }
+        pos = append(commit.getHash(), p0, p1, commit.getCommitTime(), gen);
+        ByteBuffer record = ByteBuffer.allocate(4 + RECORD_BYTES);
+        if (pos == 0) {
+            record.putInt(MAGIC);
+        }
+        record.put(Utils.fromHex(commit.getHash())).putInt(p0).putInt(p1)
+                .putLong(commit.getCommitTime()).putInt(gen);
+        Utils.writeAt(_file, pos == 0 ? 0 : 4 + (long) pos * RECORD_BYTES,
+                Arrays.copyOf(record.array(), record.position()));
+        addPaths(pos, commit, p0);
+        return pos;
+    }
+
+    /** Returns false if the commit at POS certainly did not change PATH,
+     *  or any file below it, relative to its first parent. Reads no trees
+     *  or commits.
+     * @param pos a position in the graph.
+     * @param path the path of a file or directory. */
+    boolean mayChange(int pos, String path) {
+        if (_filters == null) {
+            loadPaths();
+        }
+        BloomFilter filter = _filters.get(pos);
+        return filter == null || filter.mightContain(path);
+    }
+
+    /** Returns the position of commit ID, first adding it and any of its
+     *  ancestors missing from the graph by reading their commit objects.
+     *  This is only needed for history written before the graph existed.
+     * @param id a full commit id. */
+    int ensure(String id) {
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        pending.push(id);
+        while (!pending.isEmpty()) {
+            String top = pending.peek();
+            if (position(top) != NONE) {
+                pending.pop();
+                continue;
+            }
+            Commit commit = Commit.read(_commitStore, top);
+            boolean ready = true;
+            for (String parent : parentIds(commit)) {
+                if (position(parent) == NONE) {
+                    pending.push(parent);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                add(commit);
+                pending.pop();
+            }
+        }
+        return position(id);
+    }
+
+    /** Returns the merge bases of CURRENT and GIVEN: common ancestors that
+     *  are not ancestors of any other common ancestor. The walk visits
+     *  commits in decreasing generation order and stops as soon as every
+     *  commit left to visit is known to be below a common ancestor, so it
+     *  never explores history older than the merge bases. Since a commit's
+     *  place in the queue depends only on its generation, a queued commit
+     *  that gains marks stays where it is, and a count of the queued
+     *  commits not yet marked STALE tells when to stop.
+     * @param current position of the current branch head.
+     * @param given position of the given branch head. */
+    List<Integer> mergeBases(int current, int given) {
+        ArrayList<Integer> result = new ArrayList<>();
+        HashMap<Integer, Integer> flags = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) ->
+                generation(b) - generation(a));
+        flags.put(current, FROM_CURRENT | QUEUED);
+        flags.merge(given, FROM_GIVEN | QUEUED, (x, y) -> x | y);
+        queue.add(current);
+        if (given != current) {
+            queue.add(given);
+        }
+        int nonStale = queue.size();
+        while (nonStale > 0) {
+            int pos = queue.poll();
+            int mark = flags.get(pos) & ~QUEUED;
+            if ((mark & STALE) == 0) {
+                nonStale -= 1;
+                if ((mark & (FROM_CURRENT | FROM_GIVEN))
+                        == (FROM_CURRENT | FROM_GIVEN)) {
+                    result.add(pos);
+                    mark |= STALE;
+                }
+            }
+            flags.put(pos, mark);
+            for (int parent : new int[] {parent(pos), secondParent(pos)}) {
+                if (parent == NONE) {
+                    continue;
+                }
+                int old = flags.getOrDefault(parent, 0);
+                if ((old & mark) == mark) {
+                    continue;
+                }
+                int marked = old | mark;
+                if ((old & QUEUED) == 0) {
+                    queue.add(parent);
+                    marked |= QUEUED;
+                    if ((marked & STALE) == 0) {
+                        nonStale += 1;
+                    }
+                } else if ((old & STALE) == 0 && (marked & STALE) != 0) {
+                    nonStale -= 1;
+                }
+                flags.put(parent, marked);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the member of CANDIDATES nearest to START by a breadth-first
+     *  walk of parent links, which never descends below the lowest
+     *  generation among CANDIDATES. Ties go to the first found, with first
+     *  parents explored before second parents.
+     * @param start the position at which to start.
+     * @param candidates the positions being searched for. */
+    int nearest(int start, List<Integer> candidates) {
+        int floor = Integer.MAX_VALUE;
+        for (int c : candidates) {
+            floor = Math.min(floor, generation(c));
+        }
+        boolean[] seen = new boolean[size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        seen[start] = true;
+        while (!queue.isEmpty()) {
+            int pos = queue.poll();
+            if (candidates.contains(pos)) {
+                return pos;
+            }
+            for (int parent : new int[] {parent(pos), secondParent(pos)}) {
+                if (parent != NONE && !seen[parent]
+                        && generation(parent) >= floor) {
+                    seen[parent] = true;
+                    queue.add(parent);
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** Returns true iff ANCESTOR is START or one of its ancestors. The
+     *  walk never descends below the generation of ANCESTOR.
+     * @param ancestor the position of the possible ancestor.
+     * @param start the position at which to start. */
+    boolean isAncestor(int ancestor, int start) {
+        return nearest(start, List.of(ancestor)) == ancestor;
+    }
+
+    /** Records in the paths file, and in memory if it has been loaded, the
+     *  filter of the paths changed by COMMIT, at POS, relative to the
+     *  commit at P0.
+     * @param pos the position of COMMIT.
+     * @param commit a commit just added to the graph.
+     * @param p0 the position of its first parent, or NONE. */
+    private void addPaths(int pos, Commit commit, int p0) {
+        String parentTree = p0 == NONE ? null
+                : Commit.read(_commitStore, id(p0)).getTree();
+        HashSet<String> keys = new HashSet<>();
+        for (String path : Tree.diff(_treeStore, parentTree,
+                commit.getTree()).keySet()) {
+            keys.add(path);
+            int slash = path.lastIndexOf('/');
+            while (slash > 0 && keys.add(path.substring(0, slash))) {
+                slash = path.lastIndexOf('/', slash - 1);
+            }
+        }
+        BloomFilter filter = keys.size() > MAX_CHANGED_PATHS ? null
+                : new BloomFilter(keys);
+        byte[] bits = filter == null ? new byte[0] : filter.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(12 + bits.length);
+        if (_pathsEnd == 0) {
+            record.putInt(PATHS_MAGIC);
+        }
+        record.putInt(pos).putInt(filter == null ? -1 : bits.length)
+                .put(bits);
+        Utils.writeAt(_pathsFile, _pathsEnd,
+                Arrays.copyOf(record.array(), record.position()));
+        _pathsEnd += record.position();
+        if (filter != null) {
+            _filters.put(pos, filter);
+        }
+    }
+
+    /** Reads the filters of the paths file into _filters, and sets
+     *  _pathsEnd to the end of the last whole record for a commit in the
+     *  graph. */
+    private void loadPaths() {
+        _filters = new HashMap<>();
+        _pathsEnd = 0;
+        if (_pathsFile.length() < 4) {
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Utils.readContents(_pathsFile));
+        if (buf.getInt() != PATHS_MAGIC) {
+            throw new IllegalArgumentException("corrupt commit graph paths");
+        }
+        _pathsEnd = buf.position();
+        while (buf.remaining() >= 8) {
+            int pos = buf.getInt();
+            int length = buf.getInt();
+            if (length > buf.remaining() || pos < 0 || pos >= size()) {
+                break;
+            } else if (length >= 0) {
+                byte[] bits = new byte[length];
+                buf.get(bits);
+                _filters.put(pos, new BloomFilter(bits));
+            }
+            _pathsEnd = buf.position();
+        }
+    }
+
+    /** Returns the ids of COMMIT's parents, or none if COMMIT is
+     *  shallow.
+     * @param commit a commit. */
+    private List<String> parentIds(Commit commit) {
+        ArrayList<String> result = new ArrayList<>();
+        if (_shallow.contains(commit.getHash())) {
+            return result;
+        }
+        if (commit.getParentUID() != null) {
+            result.add(commit.getParentUID());
+        }
+        if (commit instanceof MergeCommit) {
+            result.add(((MergeCommit) commit).getSecondaryParentUID());
+        }
+        return result;
+    }
+
+    /** Returns the position of the parent ID, or NONE if ID is null.
+     * @param id a parent commit id, or null. */
+    private int parentPosition(String id) {
+        if (id == null) {
+            return NONE;
+        }
+        int pos = position(id);
+        if (pos == NONE) {
+            throw new IllegalArgumentException("parent not in commit graph");
+        }
+        return pos;
+    }
+
+    /** Adds an in-memory entry for commit ID with parents P0 and P1, TIME
+     *  and generation GEN.
+     * @param id the commit id.
+     * @param p0 the first parent's position.
+     * @param p1 the second parent's position.
+     * @param time the commit time.
+     * @param gen the generation number.
+     * @return the position of the new entry. */
+    private int append(String id, int p0, int p1, long time, int gen) {
+        int pos = _ids.size();
+        if (pos == _times.length) {
+            int cap = 2 * pos + 16;
+            _parents = Arrays.copyOf(_parents, 2 * cap);
+            _times = Arrays.copyOf(_times, cap);
+            _generations = Arrays.copyOf(_generations, cap);
+        }
+        _ids.add(id);
+        _positions.put(id, pos);
+        _parents[2 * pos] = p0;
+        _parents[2 * pos + 1] = p1;
+        _times[pos] = time;
+        _generations[pos] = gen;
+        return pos;
+    }
+
+    /** Mark for commits reachable from the current branch. */
+    private static final int FROM_CURRENT = 1;
+
+    /** Mark for commits reachable from the given branch. */
+    private static final int FROM_GIVEN = 2;
+
+    /** Mark for commits below an already-found merge base. */
+    private static final int STALE = 4;
+
+    /** Mark for commits waiting in the queue of mergeBases. */
+    private static final int QUEUED = 8;
+
+    /** First four bytes of the graph file. */
+    private static final int MAGIC = 0x47475048;
+
+    /** Bytes per commit record: id, two parents, time and generation. */
+    private static final int RECORD_BYTES = ObjectStore.ID_BYTES + 20;
+
+    /** First four bytes of the paths file. */
+    private static final int PATHS_MAGIC = 0x47475046;
+
+    /** Name of the file of changed-path filters. */
+    private static final String PATHS = "commit-graph-paths";
+
+    /** Largest number of changed paths, counting directories, for which a
+     *  commit's filter is kept. */
+    private static final int MAX_CHANGED_PATHS = 512;
+
+    /** Name of the file listing shallow commits. */
+    private static final String SHALLOW = "shallow";
+
+    /** The graph file. */
+    private final File _file;
+
+    /** The file of changed-path filters. */
+    private final File _pathsFile;
+
+    /** The store from which missing commits are read. */
+    private final ObjectStore _commitStore;
+
+    /** The store of the trees of the commits. */
+    private final ObjectStore _treeStore;
+
+    /** Commits treated as having no parents. */
+    private final TreeSet<String> _shallow;
+
+    /** Commit ids, by position. */
+    private final ArrayList<String> _ids = new ArrayList<>();
+
+    /** Positions, by commit id. */
+    private final HashMap<String, Integer> _positions = new HashMap<>();
+
+    /** Parent positions; the parents of position K are at 2K and 2K+1. */
+    private int[] _parents = new int[0];
+
+    /** Commit times, by position. */
+    private long[] _times = new long[0];
+
+    /** Generation numbers, by position. */
+    private int[] _generations = new int[0];
+
+    /** Changed-path filters, by position, or null until first needed. */
+    private HashMap<Integer, BloomFilter> _filters;
+
+    /** Length of the whole records of the paths file, once _filters is
+     *  loaded. */
+    private long _pathsEnd;
+}
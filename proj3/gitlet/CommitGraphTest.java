@@ -0,0 +1,169 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/** Tests of ancestry queries on the commit graph.
+ *  @author Aniruddh Khanwale
+ */
+public class CommitGraphTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Returns a new .gitlet directory with empty commit and tree
+     *  stores. */
+    private static File newRepo() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-graph");
+        Utils.join(gitletDir, "commits").mkdir();
+        Utils.join(gitletDir, "trees").mkdir();
+        return gitletDir;
+    }
+
+    /** Stores in the repository GITLETDIR a commit with MESSAGE, first
+     *  parent PARENT and second parent SECOND, either of which may be
+     *  null, and returns its id. The commit tracks no files. */
+    private static String commit(File gitletDir, String message,
+                                 String parent, String second) {
+        Codec.Encoder out = new Codec.Encoder(parent == null
+                ? Codec.INITIAL_COMMIT
+                : second == null ? Codec.COMMIT : Codec.MERGE_COMMIT)
+                .signed(0).string(message).hash(null).hash(parent)
+                .string("master");
+        if (second != null) {
+            out.hash(second);
+        }
+        byte[] bytes = out.toByteArray();
+        String id = Utils.sha1(bytes);
+        new ObjectStore(Utils.join(gitletDir, "commits")).write(id, bytes);
+        return id;
+    }
+
+    /** Returns the graph of the repository GITLETDIR. */
+    private static CommitGraph graph(File gitletDir) {
+        return new CommitGraph(gitletDir,
+                new ObjectStore(Utils.join(gitletDir, "commits")));
+    }
+
+    /** Returns the ids of the merge bases of CURRENT and GIVEN in GRAPH,
+     *  sorted. */
+    private static TreeSet<String> bases(CommitGraph graph, String current,
+                                         String given) {
+        TreeSet<String> result = new TreeSet<>();
+        for (int pos : graph.mergeBases(graph.ensure(current),
+                graph.ensure(given))) {
+            result.add(graph.id(pos));
+        }
+        return result;
+    }
+
+    @Test
+    public void testCrissCrossHasTwoBases() throws IOException {
+        File gitletDir = newRepo();
+        String a = commit(gitletDir, "a", null, null);
+        String b = commit(gitletDir, "b", a, null);
+        String c = commit(gitletDir, "c", a, null);
+        String d = commit(gitletDir, "d", b, c);
+        String e = commit(gitletDir, "e", c, b);
+        String f = commit(gitletDir, "f", d, null);
+        CommitGraph graph = graph(gitletDir);
+        assertEquals(new TreeSet<>(List.of(b, c)), bases(graph, d, e));
+        assertEquals(new TreeSet<>(List.of(b, c)), bases(graph, f, e));
+        List<Integer> found = graph.mergeBases(graph.position(f),
+                graph.position(e));
+        assertEquals(b, graph.id(graph.nearest(graph.position(f), found)));
+        assertEquals(c, graph.id(graph.nearest(graph.position(e), found)));
+    }
+
+    @Test
+    public void testAncestorAndDescendant() throws IOException {
+        File gitletDir = newRepo();
+        String a = commit(gitletDir, "a", null, null);
+        String b = commit(gitletDir, "b", a, null);
+        String c = commit(gitletDir, "c", b, null);
+        String side = commit(gitletDir, "side", a, null);
+        String merged = commit(gitletDir, "merged", c, side);
+        CommitGraph graph = graph(gitletDir);
+        assertEquals(new TreeSet<>(List.of(b)), bases(graph, b, c));
+        assertEquals(new TreeSet<>(List.of(b)), bases(graph, c, b));
+        assertEquals(new TreeSet<>(List.of(c)), bases(graph, c, c));
+        assertEquals(new TreeSet<>(List.of(side)),
+                bases(graph, merged, side));
+        assertEquals(new TreeSet<>(List.of(a)), bases(graph, c, side));
+        assertTrue(graph.isAncestor(graph.position(a),
+                graph.position(merged)));
+        assertTrue(graph.isAncestor(graph.position(side),
+                graph.position(merged)));
+        assertFalse(graph.isAncestor(graph.position(merged),
+                graph.position(a)));
+        assertFalse(graph.isAncestor(graph.position(side),
+                graph.position(c)));
+    }
+
+    @Test
+    public void testUnrelatedHistoriesHaveNoBase() throws IOException {
+        File gitletDir = newRepo();
+        String a = commit(gitletDir, "a", null, null);
+        String b = commit(gitletDir, "b", a, null);
+        String other = commit(gitletDir, "other", null, null);
+        CommitGraph graph = graph(gitletDir);
+        assertTrue(bases(graph, b, other).isEmpty());
+    }
+
+    @Test
+    public void testEnsureRebuildsPreGraphHistory() throws IOException {
+        File gitletDir = newRepo();
+        String a = commit(gitletDir, "a", null, null);
+        String b = commit(gitletDir, "b", a, null);
+        String c = commit(gitletDir, "c", a, null);
+        String d = commit(gitletDir, "d", b, c);
+        assertFalse(Utils.join(gitletDir, "commit-graph").exists());
+        CommitGraph graph = graph(gitletDir);
+        assertEquals(0, graph.size());
+        int pos = graph.ensure(d);
+        assertEquals(4, graph.size());
+        assertEquals(3, graph.generation(pos));
+        assertEquals(b, graph.id(graph.parent(pos)));
+        assertEquals(c, graph.id(graph.secondParent(pos)));
+        assertEquals(CommitGraph.NONE, graph.parent(graph.position(a)));
+
+        CommitGraph reopened = graph(gitletDir);
+        assertEquals(4, reopened.size());
+        assertEquals(pos, reopened.position(d));
+        assertEquals(graph.position(c), reopened.secondParent(pos));
+        assertEquals(new TreeSet<>(List.of(a)), bases(reopened, b, c));
+    }
+
+    @Test
+    public void testTornRecordsAreCutOff() throws IOException {
+        File gitletDir = newRepo();
+        String a = commit(gitletDir, "a", null, null);
+        String b = commit(gitletDir, "b", a, null);
+        graph(gitletDir).ensure(a);
+        for (String name : List.of("commit-graph", "commit-graph-paths")) {
+            File file = Utils.join(gitletDir, name);
+            Utils.writeContents(file, Utils.readContents(file),
+                    new byte[] {1, 2, 3, 4, 5});
+        }
+        CommitGraph graph = graph(gitletDir);
+        assertEquals(1, graph.size());
+        graph.ensure(b);
+        assertFalse(graph.mayChange(graph.position(b), "file"));
+        CommitGraph reopened = graph(gitletDir);
+        assertEquals(2, reopened.size());
+        assertEquals(a, reopened.id(reopened.parent(reopened.position(b))));
+        assertEquals(1, reopened.generation(reopened.position(a)));
+        assertEquals(2, reopened.generation(reopened.position(b)));
+        assertFalse(reopened.mayChange(reopened.position(b), "file"));
+    }
+}
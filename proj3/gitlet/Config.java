@@ -0,0 +1,108 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+/** Repository settings, kept as a properties file in .gitlet/config. A
+ *  Java system property named gitlet.KEY overrides the setting KEY, so
+ *  that a single run can be configured with -Dgitlet.KEY=VALUE.
+ *  @author Aniruddh Khanwale
+ */
+class Config {
+
+    /** Number of threads used to hash, compress and write files; 0 means
+     *  one per available processor. */
+    static final String WORKERS = "core.workers";
+
+    /** Whether add stores a changed file as a delta against its previous
+     *  version. */
+    static final String DELTA_BLOBS = "core.deltaBlobs";
+
+    /** Longest chain of deltas add may build (at most 255). */
+    static final String DELTA_DEPTH = "core.deltaDepth";
+
+    /** Whether add stores a large file as a list of content-defined
+     *  chunks, each kept once however many files share it. */
+    static final String CHUNKED_BLOBS = "core.chunkedBlobs";
+
+    /** Whether files are forced to disk before they are renamed into
+     *  place. */
+    static final String FSYNC = "core.fsync";
+
+    /** Size bound in bytes of the in-memory object cache. */
+    static final String CACHE_BYTES = "core.cacheBytes";
+
+    /** Whether to print object cache hit and miss counts after each
+     *  command. */
+    static final String CACHE_STATS = "core.cacheStats";
+
+    /** Name of the remote from which blobs left out of a partial clone
+     *  are fetched when first read. */
+    static final String PROMISOR = "core.promisor";
+
+    /** Reads the settings of the repository in GITLETDIR.
+     * @param gitletDir the .gitlet directory. */
+    static Config read(File gitletDir) {
+        Config result = new Config();
+        result._file = Utils.join(gitletDir, "config");
+        if (result._file.isFile()) {
+            try (Reader in = new FileReader(result._file)) {
+                result._props.load(in);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /** Returns the value of KEY, or DFLT if it is not set.
+     * @param key a setting name.
+     * @param dflt its default value. */
+    String get(String key, String dflt) {
+        return System.getProperty("gitlet." + key,
+                _props.getProperty(key, dflt));
+    }
+
+    /** Returns the integer value of KEY, or DFLT if it is not set.
+     * @param key a setting name.
+     * @param dflt its default value. */
+    int getInt(String key, int dflt) {
+        String value = get(key, null);
+        try {
+            return value == null ? dflt : Integer.parseInt(value.trim());
+        } catch (NumberFormatException excp) {
+            throw Utils.error("Bad value for %s: %s", key, value);
+        }
+    }
+
+    /** Returns the boolean value of KEY, or DFLT if it is not set.
+     * @param key a setting name.
+     * @param dflt its default value. */
+    boolean getBoolean(String key, boolean dflt) {
+        String value = get(key, null);
+        return value == null ? dflt : Boolean.parseBoolean(value.trim());
+    }
+
+    /** Sets KEY to VALUE and writes the settings back to disk.
+     * @param key a setting name.
+     * @param value its new value. */
+    void set(String key, String value) {
+        _props.setProperty(key, value);
+        try (Writer out = new FileWriter(_file)) {
+            _props.store(out, null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The settings file. */
+    private File _file;
+
+    /** The settings read from _file. */
+    private final Properties _props = new Properties();
+}
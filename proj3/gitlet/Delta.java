@@ -0,0 +1,185 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Encoding of one byte sequence, the target, as a list of instructions
+ *  that rebuild it from another, the base. An encoded delta is the target
+ *  length followed by instructions, each either
+ *      COPY OFFSET LENGTH   (copy LENGTH bytes of the base from OFFSET)
+ *  or
+ *      INSERT LENGTH BYTES  (append the LENGTH literal BYTES),
+ *  where every number is an unsigned varint (7 bits per byte, low bits
+ *  first, high bit set on all but the last byte).
+ *
+ *  Matches are found as in git's diff-delta: the base is cut into
+ *  BLOCK-byte blocks, each indexed by its hash, and a rolling hash of each
+ *  BLOCK-byte window of the target is looked up in that index. A match is
+ *  then extended in both directions as far as the bytes agree.
+ *  @author Aniruddh Khanwale
+ */
+class Delta {
+
+    /** Returns a delta that rebuilds TARGET from BASE.
+     * @param base the base bytes.
+     * @param target the bytes to encode. */
+    static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, target.length);
+        HashMap<Long, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        int pending = 0;
+        int i = 0;
+        long h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer at = blocks.get(h);
+            if (at != null && Arrays.equals(base, at, at + BLOCK,
+                    target, i, i + BLOCK)) {
+                int start = at, t = i;
+                while (start > 0 && t > pending
+                        && base[start - 1] == target[t - 1]) {
+                    start -= 1;
+                    t -= 1;
+                }
+                int end = at + BLOCK, u = i + BLOCK;
+                while (end < base.length && u < target.length
+                        && base[end] == target[u]) {
+                    end += 1;
+                    u += 1;
+                }
+                insert(out, target, pending, t);
+                out.write(COPY);
+                writeVarint(out, start);
+                writeVarint(out, end - start);
+                i = pending = u;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+            } else {
+                if (i + BLOCK < target.length) {
+                    h = (h - (target[i] & 0xff) * TOP) * PRIME
+                            + (target[i + BLOCK] & 0xff);
+                }
+                i += 1;
+            }
+        }
+        insert(out, target, pending, target.length);
+        return out.toByteArray();
+    }
+
+    /** Returns the target rebuilt from BASE and the delta read from IN.
+     *  Throws IllegalArgumentException if the delta is malformed.
+     * @param base the base bytes.
+     * @param in a stream of an encoded delta. */
+    static byte[] apply(byte[] base, InputStream in) throws IOException {
+        byte[] result = new byte[readVarint(in)];
+        int pos = 0;
+        for (int op = in.read(); op >= 0; op = in.read()) {
+            if (op == COPY) {
+                int offset = readVarint(in), length = readVarint(in);
+                if (offset + length > base.length
+                        || pos + length > result.length) {
+                    throw new IllegalArgumentException("corrupt delta");
+                }
+                System.arraycopy(base, offset, result, pos, length);
+                pos += length;
+            } else if (op == INSERT) {
+                int length = readVarint(in);
+                if (pos + length > result.length
+                        || in.readNBytes(result, pos, length) != length) {
+                    throw new IllegalArgumentException("corrupt delta");
+                }
+                pos += length;
+            } else {
+                throw new IllegalArgumentException("corrupt delta");
+            }
+        }
+        if (pos != result.length) {
+            throw new IllegalArgumentException("corrupt delta");
+        }
+        return result;
+    }
+
+    /** Writes an instruction to OUT inserting TARGET[FROM .. TO), if that
+     *  is not empty.
+     * @param out the delta being built.
+     * @param target the bytes being encoded.
+     * @param from the first byte to insert.
+     * @param to just past the last byte to insert. */
+    private static void insert(ByteArrayOutputStream out, byte[] target,
+                               int from, int to) {
+        if (from < to) {
+            out.write(INSERT);
+            writeVarint(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    /** Returns the hash of the BLOCK bytes of DATA starting at START.
+     * @param data some bytes.
+     * @param start the first byte to hash. */
+    private static long hash(byte[] data, int start) {
+        long result = 0;
+        for (int k = start; k < start + BLOCK; k += 1) {
+            result = result * PRIME + (data[k] & 0xff);
+        }
+        return result;
+    }
+
+    /** Writes the non-negative VALUE to OUT as a varint.
+     * @param out the output.
+     * @param value the number to write. */
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /** Returns the varint read from IN.
+     * @param in the input. */
+    static int readVarint(InputStream in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IllegalArgumentException("truncated varint");
+            }
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("bad varint");
+    }
+
+    /** Opcode of a copy instruction. */
+    private static final int COPY = 1;
+
+    /** Opcode of an insert instruction. */
+    private static final int INSERT = 2;
+
+    /** Size of the base blocks and of the target window. */
+    private static final int BLOCK = 16;
+
+    /** Multiplier of the polynomial rolling hash. */
+    private static final long PRIME = 1000003;
+
+    /** PRIME to the power BLOCK - 1: the weight of the oldest byte of a
+     *  window. */
+    private static final long TOP;
+
+    static {
+        long top = 1;
+        for (int k = 1; k < BLOCK; k += 1) {
+            top *= PRIME;
+        }
+        TOP = top;
+    }
+}
@@ -0,0 +1,49 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of delta encoding.
+ *  @author Aniruddh Khanwale
+ */
+public class DeltaTest {
+
+    /** Asserts that a delta of TARGET against BASE rebuilds TARGET, and
+     *  returns its length. */
+    private static int roundTrip(byte[] base, byte[] target)
+            throws IOException {
+        byte[] delta = Delta.encode(base, target);
+        assertArrayEquals(target,
+                Delta.apply(base, new ByteArrayInputStream(delta)));
+        return delta.length;
+    }
+
+    @Test
+    public void testSmallEditIsSmall() throws IOException {
+        byte[] base = new byte[100000];
+        new Random(61).nextBytes(base);
+        byte[] target = Arrays.copyOf(base, base.length + 5);
+        System.arraycopy(base, 50000, target, 50005, 50000);
+        System.arraycopy("edit!".getBytes(), 0, target, 50000, 5);
+        assertTrue(roundTrip(base, target) < 100);
+    }
+
+    @Test
+    public void testUnrelatedAndEmpty() throws IOException {
+        byte[] base = new byte[1000];
+        byte[] target = new byte[777];
+        new Random(1).nextBytes(base);
+        new Random(2).nextBytes(target);
+        roundTrip(base, target);
+        roundTrip(new byte[0], target);
+        roundTrip(base, new byte[0]);
+        roundTrip(base, Arrays.copyOf(base, 15));
+    }
+
+}
@@ -0,0 +1,353 @@
+package gitlet;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** A longest-common-subsequence matching of two sequences of lines, found
+ *  with Myers' O(ND) difference algorithm in its linear-space form: the
+ *  sequences are split at a point on an optimal edit path, found by
+ *  running the search from both ends until they meet, and each half is
+ *  compared recursively.
+ *
+ *  Past an edit distance of about four times the square root of the
+ *  range's length, the search stops and splits at the furthest point it
+ *  has reached, as GNU diff does. The result is then a valid matching but
+ *  possibly not a longest one, which bounds the time spent on files that
+ *  have been reordered rather than edited.
+ *
+ *  Before searching, common leading and trailing lines are matched
+ *  directly, and lines that occur in only one sequence are set aside,
+ *  since they can never be matched. A file that has been rewritten
+ *  rather than edited then costs little more than reading it.
+ *  @author Aniruddh Khanwale
+ */
+class Diff {
+
+    /** A matching between lines A and lines B.
+     * @param a the old lines.
+     * @param b the new lines. */
+    Diff(List<String> a, List<String> b) {
+        HashMap<String, Integer> ids = new HashMap<>();
+        int[] x = intern(a, ids), y = intern(b, ids);
+        boolean[] inA = new boolean[ids.size()], inB = new boolean[ids.size()];
+        for (int id : x) {
+            inA[id] = true;
+        }
+        for (int id : y) {
+            inB[id] = true;
+        }
+        int[] xPos = common(x, inB), yPos = common(y, inA);
+        _a = select(x, xPos);
+        _b = select(y, yPos);
+        _matches = new int[_a.length];
+        Arrays.fill(_matches, -1);
+        compare(0, _a.length, 0, _b.length);
+        _bMatches = new int[b.size()];
+        Arrays.fill(_bMatches, -1);
+        int[] matches = new int[a.size()];
+        Arrays.fill(matches, -1);
+        for (int i = 0; i < _matches.length; i += 1) {
+            if (_matches[i] >= 0) {
+                matches[xPos[i]] = yPos[_matches[i]];
+                _bMatches[yPos[_matches[i]]] = xPos[i];
+            }
+        }
+        _aMatches = matches;
+    }
+
+    /** Returns, for each old line, the index of the new line it is
+     *  matched with, or -1 if it was deleted. Matched indices increase. */
+    int[] aMatches() {
+        return _aMatches;
+    }
+
+    /** Returns, for each new line, the index of the old line it is
+     *  matched with, or -1 if it was inserted. */
+    int[] bMatches() {
+        return _bMatches;
+    }
+
+    /** Writes the hunks of a unified diff from A to B to OUT, with
+     *  CONTEXT unchanged lines around each change. Writes nothing if A and
+     *  B are equal.
+     * @param a the old lines.
+     * @param b the new lines.
+     * @param context the number of context lines.
+     * @param out the output. */
+    static void unified(List<String> a, List<String> b, int context,
+                        PrintWriter out) {
+        int[] aMatches = new Diff(a, b).aMatches();
+        ArrayList<int[]> script = new ArrayList<>();
+        for (int i = 0, j = 0; i < a.size() || j < b.size(); ) {
+            if (i < a.size() && aMatches[i] == j) {
+                script.add(new int[] {' ', i, j});
+                i += 1;
+                j += 1;
+            } else if (i < a.size() && aMatches[i] < 0) {
+                script.add(new int[] {'-', i, j});
+                i += 1;
+            } else {
+                script.add(new int[] {'+', i, j});
+                j += 1;
+            }
+        }
+        int start = 0;
+        while (start < script.size()) {
+            while (start < script.size() && script.get(start)[0] == ' ') {
+                start += 1;
+            }
+            if (start == script.size()) {
+                return;
+            }
+            int end = start, lastChange = start;
+            while (end < script.size()
+                    && end - lastChange <= 2 * context) {
+                if (script.get(end)[0] != ' ') {
+                    lastChange = end;
+                }
+                end += 1;
+            }
+            int from = Math.max(0, start - context);
+            int to = Math.min(script.size(), lastChange + 1 + context);
+            writeHunk(a, b, script.subList(from, to), out);
+            start = to;
+        }
+    }
+
+    /** Writes one hunk, made of the edit-script entries HUNK, to OUT.
+     * @param a the old lines.
+     * @param b the new lines.
+     * @param hunk entries of the form {op, old line, new line}.
+     * @param out the output. */
+    private static void writeHunk(List<String> a, List<String> b,
+                                  List<int[]> hunk, PrintWriter out) {
+        int aCount = 0, bCount = 0;
+        for (int[] entry : hunk) {
+            aCount += entry[0] == '+' ? 0 : 1;
+            bCount += entry[0] == '-' ? 0 : 1;
+        }
+        int aStart = hunk.get(0)[1] + (aCount == 0 ? 0 : 1);
+        int bStart = hunk.get(0)[2] + (bCount == 0 ? 0 : 1);
+        out.printf("@@ -%s +%s @@%n", range(aStart, aCount),
+                range(bStart, bCount));
+        for (int[] entry : hunk) {
+            String line = entry[0] == '+' ? b.get(entry[2]) : a.get(entry[1]);
+            out.print((char) entry[0]);
+            if (line.endsWith("\n")) {
+                out.print(line);
+            } else {
+                out.println(line);
+                out.println("\\ No newline at end of file");
+            }
+        }
+    }
+
+    /** Returns the unified-diff form of a range of COUNT lines starting
+     *  at line START.
+     * @param start the first line number, from 1.
+     * @param count the number of lines. */
+    private static String range(int start, int count) {
+        return count == 1 ? Integer.toString(start) : start + "," + count;
+    }
+
+    /** Returns the lines of TEXT, each with its line terminator if it has
+     *  one, so that joining them gives back TEXT exactly.
+     * @param text some text. */
+    static List<String> lines(String text) {
+        ArrayList<String> result = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            result.add(text.substring(start, end));
+            start = end;
+        }
+        return result;
+    }
+
+    /** Returns LINES as small integers, giving equal lines the same value
+     *  and recording new lines in IDS.
+     * @param lines some lines.
+     * @param ids the values of the lines seen so far. */
+    private static int[] intern(List<String> lines,
+                                HashMap<String, Integer> ids) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            Integer id = ids.putIfAbsent(lines.get(i), ids.size());
+            result[i] = id == null ? ids.size() - 1 : id;
+        }
+        return result;
+    }
+
+    /** Returns the positions in X of the lines marked in OTHER.
+     * @param x interned lines.
+     * @param other marks the lines occurring in the other sequence. */
+    private static int[] common(int[] x, boolean[] other) {
+        int n = 0;
+        int[] result = new int[x.length];
+        for (int i = 0; i < x.length; i += 1) {
+            if (other[x[i]]) {
+                result[n] = i;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Returns the elements of X at POSITIONS.
+     * @param x interned lines.
+     * @param positions indices into X. */
+    private static int[] select(int[] x, int[] positions) {
+        int[] result = new int[positions.length];
+        for (int i = 0; i < positions.length; i += 1) {
+            result[i] = x[positions[i]];
+        }
+        return result;
+    }
+
+    /** Records an optimal matching of _a[ALO .. AHI) and _b[BLO .. BHI).
+     * @param aLo first old line.
+     * @param aHi just past the last old line.
+     * @param bLo first new line.
+     * @param bHi just past the last new line. */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            _matches[aLo] = bLo;
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+            _matches[aHi] = bHi;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            return;
+        }
+        int n = aHi - aLo, m = bHi - bLo, delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int maxD = (n + m + 1) / 2, offset = maxD;
+        int[] forward = new int[2 * maxD + 2], backward = new int[2 * maxD + 2];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int fStart = 0, fEnd = 0, bStart = 0, bEnd = 0;
+        int limit = Math.max(MIN_COST_LIMIT, (int) Math.sqrt(n + m) * 4);
+        for (int d = 0; d < maxD; d += 1) {
+            for (int k = -d + fStart; k <= d - fEnd; k += 2) {
+                int x;
+                if (k == -d || (k != d
+                        && forward[offset + k - 1] < forward[offset + k + 1])) {
+                    x = forward[offset + k + 1];
+                } else {
+                    x = forward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && _a[aLo + x] == _b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[offset + k] = x;
+                int back = offset + delta - k;
+                if (x > n) {
+                    fEnd += 2;
+                } else if (y > m) {
+                    fStart += 2;
+                } else if (odd && back >= 0 && back < backward.length
+                        && backward[back] != -1
+                        && x >= n - backward[back]) {
+                    split(aLo, aHi, bLo, bHi, x, y);
+                    return;
+                }
+            }
+            for (int k = -d + bStart; k <= d - bEnd; k += 2) {
+                int x;
+                if (k == -d || (k != d && backward[offset + k - 1]
+                        < backward[offset + k + 1])) {
+                    x = backward[offset + k + 1];
+                } else {
+                    x = backward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m
+                        && _a[aHi - x - 1] == _b[bHi - y - 1]) {
+                    x += 1;
+                    y += 1;
+                }
+                backward[offset + k] = x;
+                int front = offset + delta - k;
+                if (x > n) {
+                    bEnd += 2;
+                } else if (y > m) {
+                    bStart += 2;
+                } else if (!odd && front >= 0 && front < forward.length
+                        && forward[front] != -1
+                        && forward[front] >= n - x) {
+                    int fx = forward[front];
+                    split(aLo, aHi, bLo, bHi, fx, fx - (delta - k));
+                    return;
+                }
+            }
+            if (d >= limit) {
+                int bestX = 0, bestY = 0, best = -1;
+                for (int k = -d + fStart; k <= d - fEnd; k += 2) {
+                    int x = forward[offset + k], y = x - k;
+                    if (x >= 0 && x <= n && y >= 0 && y <= m
+                            && x + y > best) {
+                        best = x + y;
+                        bestX = x;
+                        bestY = y;
+                    }
+                }
+                for (int k = -d + bStart; k <= d - bEnd; k += 2) {
+                    int x = backward[offset + k], y = x - k;
+                    if (x >= 0 && x <= n && y >= 0 && y <= m
+                            && x + y > best) {
+                        best = x + y;
+                        bestX = n - x;
+                        bestY = m - y;
+                    }
+                }
+                split(aLo, aHi, bLo, bHi, bestX, bestY);
+                return;
+            }
+        }
+    }
+
+    /** Compares _a[ALO .. AHI) with _b[BLO .. BHI) as two halves, divided
+     *  at old line ALO + X and new line BLO + Y.
+     * @param aLo first old line.
+     * @param aHi just past the last old line.
+     * @param bLo first new line.
+     * @param bHi just past the last new line.
+     * @param x old-line offset of the split.
+     * @param y new-line offset of the split. */
+    private void split(int aLo, int aHi, int bLo, int bHi, int x, int y) {
+        compare(aLo, aLo + x, bLo, bLo + y);
+        compare(aLo + x, aHi, bLo + y, bHi);
+    }
+
+    /** Smallest edit distance at which compare gives up on finding the
+     *  optimal split of a range and splits at the furthest point reached
+     *  so far, as GNU diff does for expensive inputs. */
+    private static final int MIN_COST_LIMIT = 256;
+
+    /** The old lines that also occur among the new ones, interned. */
+    private final int[] _a;
+
+    /** The new lines that also occur among the old ones, interned. */
+    private final int[] _b;
+
+    /** Matches between _a and _b, indexed by position in _a. */
+    private final int[] _matches;
+
+    /** Matches of the old lines, indexed by old line. */
+    private final int[] _aMatches;
+
+    /** Matches of the new lines, indexed by new line. */
+    private final int[] _bMatches;
+}
@@ -0,0 +1,95 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of line diffs and three-way line merges.
+ *  @author Aniruddh Khanwale
+ */
+public class DiffTest {
+
+    /** Returns N random lines drawn from an alphabet of SIZE lines. */
+    private static List<String> randomLines(Random random, int n, int size) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i += 1) {
+            result.add(random.nextInt(size) + "\n");
+        }
+        return result;
+    }
+
+    /** Returns the length of a longest common subsequence of A and B. */
+    private static int lcsLength(List<String> a, List<String> b) {
+        int[][] t = new int[a.size() + 1][b.size() + 1];
+        for (int i = a.size() - 1; i >= 0; i -= 1) {
+            for (int j = b.size() - 1; j >= 0; j -= 1) {
+                t[i][j] = a.get(i).equals(b.get(j)) ? t[i + 1][j + 1] + 1
+                        : Math.max(t[i + 1][j], t[i][j + 1]);
+            }
+        }
+        return t[0][0];
+    }
+
+    @Test
+    public void testMatchingIsValidAndOptimal() {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 500; trial += 1) {
+            List<String> a = randomLines(random, random.nextInt(40), 6);
+            List<String> b = randomLines(random, random.nextInt(40), 6);
+            int[] matches = new Diff(a, b).aMatches();
+            int matched = 0, last = -1;
+            for (int i = 0; i < matches.length; i += 1) {
+                if (matches[i] >= 0) {
+                    assertTrue(matches[i] > last);
+                    assertEquals(a.get(i), b.get(matches[i]));
+                    last = matches[i];
+                    matched += 1;
+                }
+            }
+            assertEquals(lcsLength(a, b), matched);
+        }
+    }
+
+    @Test
+    public void testUnified() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        Diff.unified(Diff.lines("a\nb\nc\nd\ne\nf\ng\nh\ni\nj\n"),
+                Diff.lines("a\nB\nc\nd\ne\nf\ng\nh\ni\nj\nk"), 2, out);
+        out.flush();
+        assertEquals(String.format("@@ -1,4 +1,4 @@%n a%n-b%n+B%n c%n d%n"
+                + "@@ -9,2 +9,3 @@%n i%n j%n+k%n"
+                + "\\ No newline at end of file%n"), text.toString());
+    }
+
+    @Test
+    public void testCleanMerge() {
+        LineMerge merge = new LineMerge("a\nb\nc\nd\ne\n",
+                "A\nb\nc\nd\ne\n", "a\nb\nc\nd\nE\nf\n");
+        assertFalse(merge.conflicted());
+        assertEquals("A\nb\nc\nd\nE\nf\n", merge.result());
+        merge = new LineMerge("a\nb\n", "a\nx\nb\n", "a\nx\nb\n");
+        assertFalse(merge.conflicted());
+        assertEquals("a\nx\nb\n", merge.result());
+    }
+
+    @Test
+    public void testConflicts() {
+        LineMerge merge = new LineMerge("a\nb\nc\n", "a\nB\nc\n",
+                "a\nBB\nc\n");
+        assertTrue(merge.conflicted());
+        assertEquals("a\n<<<<<<< HEAD\nB\n=======\nBB\n>>>>>>>\nc\n",
+                merge.result());
+        merge = new LineMerge("", "This is a wug.\n",
+                "This is not a wug.\n");
+        assertEquals("<<<<<<< HEAD\nThis is a wug.\n=======\n"
+                + "This is not a wug.\n>>>>>>>", merge.result());
+    }
+
+}
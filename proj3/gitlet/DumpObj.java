@@ -4,15 +4,12 @@ import java.io.File;
 
 /** A debugging class whose main program may be invoked as follows:
  *      java gitlet.DumpObj FILE...
- *  where each FILE is a file produced by Utils.writeObject (or any file
- *  containing a serialized object).  This will simply read FILE,
- *  deserialize it, and call the dump method on the resulting Object.
- *  The object must implement the gitlet.Dumpable interface for this
- *  to work.  For example, you might define your class like this:
+ *  where each FILE is a loose commit or tree object, or a stage file,
+ *  in the format of Codec.  This will simply read FILE, decode it, and
+ *  call the dump method on the resulting Object.  Each class that can be
+ *  dumped implements the gitlet.Dumpable interface, for example:
  *
- *        import java.io.Serializable;
- *        import java.util.TreeMap;
- *        class MyClass implements Serializeable, Dumpable {
+ *        class MyClass implements Dumpable {
  *            ...
  *            @Override
  *            public void dump() {
@@ -29,15 +26,25 @@ import java.io.File;
  */
 public class DumpObj {
 
-    /** Deserialize and apply dump to the contents of each of the files
+    /** Decode and apply dump to the contents of each of the files
      *  in FILES. */
     public static void main(String... files) {
         for (String fileName : files) {
-            Dumpable obj = Utils.readObject(new File(fileName),
-                                            Dumpable.class);
+            byte[] bytes = Utils.readContents(new File(fileName));
+            Dumpable obj;
+            switch (Codec.kind(bytes)) {
+            case Codec.TREE:
+                obj = Tree.decode(bytes);
+                break;
+            case Codec.STAGE:
+                obj = StagingArea.decode(bytes);
+                break;
+            default:
+                obj = Commit.decode(bytes, Utils.sha1(bytes));
+                break;
+            }
             obj.dump();
             System.out.println("---");
         }
     }
 }
-
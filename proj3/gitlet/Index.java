@@ -0,0 +1,193 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** A cache of the size, modification time and content hash of working
+ *  files whose contents gitlet has hashed or written. A file whose size
+ *  and modification time still match its entry is known to have the
+ *  recorded hash without being read again.
+ *
+ *  As in git, an entry whose modification time is not strictly older than
+ *  the index file itself is treated as racy and rehashed, since the file
+ *  may have been changed again within the same clock tick after the entry
+ *  was recorded. For the same reason, entries not strictly older than the
+ *  index file when it is written are smudged: their modification time is
+ *  replaced by SMUDGED, which no file matches, so they stay racy after
+ *  later writes of the index have made it older than them.
+ *  @author Aniruddh Khanwale
+ */
+class Index {
+
+    /** Reads the index of the repository in GITLETDIR, or returns an
+     *  empty index if there is none.
+     * @param gitletDir the .gitlet directory. */
+    static Index read(File gitletDir) {
+        File indexFile = Utils.join(gitletDir, "index");
+        Index result;
+        if (indexFile.isFile()) {
+            result = decode(Utils.readContents(indexFile));
+        } else {
+            result = new Index();
+        }
+        result._file = indexFile;
+        result._indexTime = indexFile.lastModified();
+        return result;
+    }
+
+    /** Returns the content hash of FILE, which must exist, reading it only
+     *  if its entry is missing or stale.
+     * @param file a working file. */
+    String hash(File file) {
+        String hash = cachedHash(file);
+        if (hash == null) {
+            hash = Blob.hashOf(file);
+            record(file, hash);
+        }
+        return hash;
+    }
+
+    /** Returns the content hash of FILE if its entry is present and up to
+     *  date, and otherwise null. Never reads FILE or changes the index, so
+     *  it may be called from several threads at once.
+     * @param file a working file. */
+    String cachedHash(File file) {
+        Entry entry = _entries.get(file.getPath());
+        if (entry != null && entry.matches(file)
+                && entry._mtime < _indexTime) {
+            return entry._hash;
+        }
+        return null;
+    }
+
+    /** Returns the content hash last recorded for FILE, without checking
+     *  that FILE still matches it, or its current hash if there is no
+     *  entry. Only for files known by other means, such as the watch
+     *  daemon, not to have changed since their entries were checked.
+     * @param file a working file. */
+    String recordedHash(File file) {
+        Entry entry = _entries.get(file.getPath());
+        return entry != null ? entry._hash : hash(file);
+    }
+
+    /** Returns true iff FILE exists and is known to have contents HASH
+     *  without reading it.
+     * @param file a working file.
+     * @param hash a blob hash. */
+    boolean isClean(File file, String hash) {
+        return hash.equals(cachedHash(file));
+    }
+
+    /** Records that FILE, which must exist, currently has contents HASH.
+     * @param file a working file.
+     * @param hash its content hash. */
+    void record(File file, String hash) {
+        _entries.put(file.getPath(),
+                new Entry(file.length(), file.lastModified(), hash));
+        _changed = true;
+    }
+
+    /** Forgets the entry for FILE.
+     * @param file a working file. */
+    void remove(File file) {
+        if (_entries.remove(file.getPath()) != null) {
+            _changed = true;
+        }
+    }
+
+    /** Writes the index back to disk if it has changed, smudging the
+     *  entries that are racy with respect to the written file. */
+    void persist() {
+        if (_changed) {
+            Utils.writeAtomically(_file, encode());
+            if (smudge(_file.lastModified())) {
+                Utils.writeAtomically(_file, encode());
+            }
+            _indexTime = _file.lastModified();
+            _changed = false;
+        }
+    }
+
+    /** Smudges the entries modified at or after TIME, and returns true
+     *  iff there were any.
+     * @param time the modification time of the index file. */
+    private boolean smudge(long time) {
+        boolean result = false;
+        for (Map.Entry<String, Entry> entry : _entries.entrySet()) {
+            Entry stat = entry.getValue();
+            if (stat._mtime >= time) {
+                entry.setValue(new Entry(stat._size, SMUDGED, stat._hash));
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    /** Returns the index whose encoding is BYTES.
+     * @param bytes the contents of an index file. */
+    private static Index decode(byte[] bytes) {
+        Codec.Decoder in = new Codec.Decoder(bytes, Codec.INDEX);
+        Index result = new Index();
+        for (int n = in.count(); n > 0; n -= 1) {
+            String path = in.string();
+            long size = in.varint();
+            long mtime = in.signed();
+            result._entries.put(path, new Entry(size, mtime, in.hash()));
+        }
+        in.end();
+        return result;
+    }
+
+    /** Returns the encoding of this index: a count of entries followed by
+     *  the path, size, modification time and hash of each. */
+    private byte[] encode() {
+        Codec.Encoder out = new Codec.Encoder(Codec.INDEX);
+        out.varint(_entries.size());
+        for (Map.Entry<String, Entry> entry : _entries.entrySet()) {
+            Entry stat = entry.getValue();
+            out.string(entry.getKey()).varint(stat._size)
+                    .signed(stat._mtime).hash(stat._hash);
+        }
+        return out.toByteArray();
+    }
+
+    /** The cached stat data of one file. */
+    private static class Entry {
+        /** An entry for a file of SIZE bytes modified at MTIME, with
+         *  content hash HASH. */
+        Entry(long size, long mtime, String hash) {
+            _size = size;
+            _mtime = mtime;
+            _hash = hash;
+        }
+
+        /** Returns true iff FILE exists with this entry's stat data. */
+        boolean matches(File file) {
+            return file.isFile() && file.length() == _size
+                    && file.lastModified() == _mtime;
+        }
+
+        /** File size in bytes. */
+        private final long _size;
+        /** Modification time in milliseconds. */
+        private final long _mtime;
+        /** Hash of the file contents. */
+        private final String _hash;
+    }
+
+    /** Modification time of a smudged entry, which no file matches. */
+    private static final long SMUDGED = -1;
+
+    /** Entries, by file path. */
+    private TreeMap<String, Entry> _entries = new TreeMap<>();
+
+    /** The index file. */
+    private File _file;
+
+    /** Modification time of the index file when it was read. */
+    private long _indexTime;
+
+    /** True iff an entry was added or removed since reading. */
+    private boolean _changed;
+}
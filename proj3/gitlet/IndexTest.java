@@ -0,0 +1,58 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/** Tests of the index of working-file stat data.
+ *  @author Aniruddh Khanwale
+ */
+public class IndexTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    @Test
+    public void testOldEntryIsClean() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-index");
+        File file = Utils.join(gitletDir, "old");
+        Utils.writeContents(file, "old");
+        file.setLastModified(System.currentTimeMillis() - TICK);
+        Index index = Index.read(gitletDir);
+        String hash = index.hash(file);
+        index.persist();
+        assertEquals(hash, Index.read(gitletDir).cachedHash(file));
+        Utils.writeContents(file, "new");
+        assertNull(Index.read(gitletDir).cachedHash(file));
+    }
+
+    @Test
+    public void testRacyEntryStaysRacy() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-index");
+        File file = Utils.join(gitletDir, "racy");
+        long mtime = System.currentTimeMillis() + TICK;
+        Utils.writeContents(file, "aaaa");
+        file.setLastModified(mtime);
+        Index index = Index.read(gitletDir);
+        index.hash(file);
+        index.persist();
+
+        Utils.writeContents(file, "bbbb");
+        file.setLastModified(mtime);
+        File indexFile = Utils.join(gitletDir, "index");
+        indexFile.setLastModified(mtime + TICK);
+        index = Index.read(gitletDir);
+        assertNull(index.cachedHash(file));
+        assertEquals(Blob.hashOf(file), index.hash(file));
+    }
+
+    /** A span of time longer than any clock tick, in milliseconds. */
+    private static final long TICK = 60000;
+}
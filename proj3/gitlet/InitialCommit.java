@@ -1,12 +1,10 @@
 package gitlet;
 
-import java.io.IOException;
-import java.io.Serializable;
-import java.io.File;
+import java.io.PrintWriter;
 
 /** This class represents the Initial repository commit.
  * @author Aniruddh Khanwale */
-public class InitialCommit extends Commit implements Serializable {
+public class InitialCommit extends Commit {
 
     /** Initial commit constructor. Takes a commit message and a commit time.
      * @param msg The commit message.
@@ -16,25 +14,18 @@ public class InitialCommit extends Commit implements Serializable {
         setCommitTime(unixTime);
     }
 
-    /** Performs a commit.
-     *
-     * @param head The path to head.
+    /** Performs a commit, computing the hash. Pointing HEAD at it is left
+     * to the caller.
      */
-    public void commit(File head) {
-        try {
-            head.createNewFile();
-        } catch (IOException e) {
-            return;
-        }
+    public void commit() {
         setHash();
-        Utils.writeContents(head, getHash());
     }
     @Override
-    String log() {
-        System.out.println("===");
-        System.out.println("commit " + getHash());
-        System.out.println("Date: " + timeToString());
-        System.out.println(getCommitMessage());
+    String log(PrintWriter out) {
+        out.println("===");
+        out.println("commit " + getHash());
+        out.println("Date: " + timeToString());
+        out.println(getCommitMessage());
         return null;
     }
 }
@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+/** A write-ahead journal for commands that update several files of the
+ *  .gitlet directory at once, such as a branch head, HEAD and the stage
+ *  after a commit. The updates are first recorded, all together, in
+ *  .gitlet/journal, which is forced to disk; only then are they applied,
+ *  each by an atomic replacement, and the journal removed. If gitlet
+ *  stops part way through applying them, recover finishes the job the
+ *  next time it runs, so readers never see a branch moved without HEAD.
+ *
+ *  The journal holds one line per update, either
+ *      write HEX PATH
+ *  to replace the file PATH (relative to .gitlet) with the bytes whose
+ *  hexadecimal form is HEX, or
+ *      delete PATH
+ *  or
+ *      rename FROM TO
+ *  to move FROM over TO if FROM still exists, followed by a line "end".
+ *  A journal without its last line was never committed, and is
+ *  discarded.
+ *  @author Aniruddh Khanwale
+ */
+class Journal {
+
+    /** A new, empty journal for the repository in GITLETDIR.
+     * @param gitletDir the .gitlet directory. */
+    Journal(File gitletDir) {
+        _gitletDir = gitletDir;
+    }
+
+    /** Records that FILE, which is in the .gitlet directory, is to be
+     *  replaced with CONTENTS.
+     * @param file the file to write.
+     * @param contents its new contents. */
+    void write(File file, String contents) {
+        _entries.add("write "
+                + Utils.toHex(contents.getBytes(StandardCharsets.UTF_8))
+                + " " + relative(file));
+    }
+
+    /** Records that FILE, which is in the .gitlet directory, is to be
+     *  deleted if it exists.
+     * @param file the file to delete. */
+    void delete(File file) {
+        _entries.add("delete " + relative(file));
+    }
+
+    /** Records that FROM is to replace TO. Both must be in the .gitlet
+     *  directory, and FROM must already be on disk.
+     * @param from the replacement file.
+     * @param to the file to replace. */
+    void rename(File from, File to) {
+        Utils.sync(from);
+        _entries.add("rename " + relative(from) + " " + relative(to));
+    }
+
+    /** Makes the recorded updates durable, then applies them and removes
+     *  the journal. Objects written before this call are forced to disk
+     *  first, so the updates never refer to objects a crash could lose. */
+    void commit() {
+        Utils.syncDirectory(Utils.join(_gitletDir, "commits"));
+        Utils.syncDirectory(Utils.join(_gitletDir, "blobs"));
+        Utils.syncDirectory(Utils.join(_gitletDir, "trees"));
+        StringBuilder text = new StringBuilder();
+        for (String entry : _entries) {
+            text.append(entry).append('\n');
+        }
+        text.append(END).append('\n');
+        File journal = Utils.join(_gitletDir, FILE_NAME);
+        Utils.writeAtomically(journal, text.toString());
+        apply(_gitletDir, _entries);
+        journal.delete();
+    }
+
+    /** Completes the updates of a committed journal left in GITLETDIR by
+     *  an interrupted command, or discards an uncommitted one.
+     * @param gitletDir the .gitlet directory. */
+    static void recover(File gitletDir) {
+        File journal = Utils.join(gitletDir, FILE_NAME);
+        if (!journal.isFile()) {
+            return;
+        }
+        ArrayList<String> entries = new ArrayList<>();
+        boolean complete = false;
+        for (String line : Utils.readContentsAsString(journal).split("\n")) {
+            if (line.equals(END)) {
+                complete = true;
+                break;
+            }
+            entries.add(line);
+        }
+        if (complete) {
+            apply(gitletDir, entries);
+        }
+        journal.delete();
+    }
+
+    /** Applies ENTRIES, journal lines without the final "end", to files
+     *  in GITLETDIR.
+     * @param gitletDir the .gitlet directory.
+     * @param entries the updates to apply. */
+    private static void apply(File gitletDir, ArrayList<String> entries) {
+        for (String entry : entries) {
+            if (entry.startsWith("write ")) {
+                String[] fields = entry.split(" ", 3);
+                Utils.writeAtomically(Utils.join(gitletDir, fields[2]),
+                        Utils.fromHex(fields[1]));
+            } else if (entry.startsWith("rename ")) {
+                String[] fields = entry.split(" ", 3);
+                File from = Utils.join(gitletDir, fields[1]);
+                File to = Utils.join(gitletDir, fields[2]);
+                if (from.exists()) {
+                    try {
+                        Files.move(from.toPath(), to.toPath(),
+                                StandardCopyOption.ATOMIC_MOVE,
+                                StandardCopyOption.REPLACE_EXISTING);
+                        Utils.moved(from, to);
+                    } catch (IOException excp) {
+                        throw new IllegalArgumentException(
+                                excp.getMessage());
+                    }
+                }
+            } else {
+                Utils.join(gitletDir, entry.split(" ", 2)[1]).delete();
+            }
+        }
+        Utils.syncDirectory(gitletDir);
+    }
+
+    /** Returns the path of FILE relative to the .gitlet directory. Throws
+     *  IllegalArgumentException if FILE is not inside it.
+     * @param file a file in the .gitlet directory. */
+    private String relative(File file) {
+        String path = _gitletDir.toPath().relativize(file.toPath())
+                .toString();
+        if (path.startsWith("..")) {
+            throw new IllegalArgumentException("cannot journal " + file);
+        }
+        return path;
+    }
+
+    /** Name of the journal file. */
+    private static final String FILE_NAME = "journal";
+
+    /** Last line of a committed journal. */
+    private static final String END = "end";
+
+    /** The .gitlet directory. */
+    private final File _gitletDir;
+
+    /** Recorded updates, as journal lines. */
+    private final ArrayList<String> _entries = new ArrayList<>();
+}
@@ -0,0 +1,55 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/** Tests of journaled multi-file updates.
+ *  @author Aniruddh Khanwale
+ */
+public class JournalTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    @Test
+    public void testCommitAppliesAll() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-journal");
+        File head = Utils.join(gitletDir, "HEAD");
+        File stage = Utils.join(gitletDir, "stage");
+        Utils.writeContents(stage, "staged");
+        Journal journal = new Journal(gitletDir);
+        journal.write(head, "abc");
+        journal.delete(stage);
+        journal.commit();
+        assertEquals("abc", Utils.readContentsAsString(head));
+        assertFalse(stage.exists());
+        assertFalse(Utils.join(gitletDir, "journal").exists());
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-journal");
+        File head = Utils.join(gitletDir, "HEAD");
+        Utils.writeContents(head, "old");
+        File journal = Utils.join(gitletDir, "journal");
+        Utils.writeContents(journal, "write " + Utils.toHex("new".getBytes())
+                + " HEAD\n");
+        Journal.recover(gitletDir);
+        assertEquals("old", Utils.readContentsAsString(head));
+        assertFalse(journal.exists());
+        Utils.writeContents(journal, "write " + Utils.toHex("new".getBytes())
+                + " HEAD\nend\n");
+        Journal.recover(gitletDir);
+        assertEquals("new", Utils.readContentsAsString(head));
+        assertFalse(journal.exists());
+    }
+
+}
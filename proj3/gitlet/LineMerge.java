@@ -0,0 +1,97 @@
+package gitlet;
+
+import java.util.List;
+
+/** A three-way merge of two versions of a text, ours and theirs, made
+ *  from a common base, as done by diff3. Each version is matched against
+ *  the base with Diff. Base lines matched in both versions divide the
+ *  texts into stable regions, which are kept, and unstable regions
+ *  between them. An unstable region changed on only one side takes that
+ *  side's lines; one changed identically on both sides takes either; any
+ *  other is a conflict, written as
+ *      <<<<<<< HEAD
+ *      OUR LINES
+ *      =======
+ *      THEIR LINES
+ *      >>>>>>>
+ *  When the whole file conflicts this is exactly gitlet's whole-file
+ *  conflict format.
+ *  @author Aniruddh Khanwale
+ */
+class LineMerge {
+
+    /** Merges OURS and THEIRS, both made from BASE.
+     * @param base the common ancestor's text.
+     * @param ours the current branch's text.
+     * @param theirs the given branch's text. */
+    LineMerge(String base, String ours, String theirs) {
+        List<String> o = Diff.lines(base), a = Diff.lines(ours),
+                b = Diff.lines(theirs);
+        int[] matchA = new Diff(o, a).aMatches();
+        int[] matchB = new Diff(o, b).aMatches();
+        StringBuilder result = new StringBuilder();
+        int i = 0, j = 0, k = 0;
+        while (i < o.size() || j < a.size() || k < b.size()) {
+            if (i < o.size() && matchA[i] == j && matchB[i] == k) {
+                result.append(o.get(i));
+                i += 1;
+                j += 1;
+                k += 1;
+                continue;
+            }
+            int i1 = i;
+            while (i1 < o.size() && (matchA[i1] < 0 || matchB[i1] < 0)) {
+                i1 += 1;
+            }
+            int j1 = i1 < o.size() ? matchA[i1] : a.size();
+            int k1 = i1 < o.size() ? matchB[i1] : b.size();
+            List<String> baseLines = o.subList(i, i1),
+                    ourLines = a.subList(j, j1), theirLines = b.subList(k, k1);
+            if (ourLines.equals(baseLines)) {
+                appendAll(result, theirLines);
+            } else if (theirLines.equals(baseLines)
+                    || ourLines.equals(theirLines)) {
+                appendAll(result, ourLines);
+            } else {
+                _conflicted = true;
+                result.append("<<<<<<< HEAD\n");
+                appendAll(result, ourLines);
+                result.append("=======\n");
+                appendAll(result, theirLines);
+                result.append(">>>>>>>");
+                if (i1 < o.size() || j1 < a.size() || k1 < b.size()) {
+                    result.append("\n");
+                }
+            }
+            i = i1;
+            j = j1;
+            k = k1;
+        }
+        _result = result.toString();
+    }
+
+    /** Returns the merged text. */
+    String result() {
+        return _result;
+    }
+
+    /** Returns true iff the merge had conflicts. */
+    boolean conflicted() {
+        return _conflicted;
+    }
+
+    /** Appends each of LINES to OUT.
+     * @param out the text being built.
+     * @param lines the lines to append. */
+    private static void appendAll(StringBuilder out, List<String> lines) {
+        for (String line : lines) {
+            out.append(line);
+        }
+    }
+
+    /** The merged text. */
+    private final String _result;
+
+    /** True iff some region conflicted. */
+    private boolean _conflicted;
+}
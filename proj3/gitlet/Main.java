@@ -3,13 +3,32 @@ package gitlet;
 
 import jdk.jshell.execution.Util;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /** Driver class for Gitlet, the tiny stupid version-control system.
  *  @author Aniruddh Khanwale
@@ -17,27 +36,75 @@ import java.util.ArrayList;
 public class Main {
 
     /** Current Working Directory. */
-    static final File CWD = new File(".");
+    static File CWD;
 
     /** File object of gitlet subdirectory. */
-    private static File gitletDir = Utils.join(CWD, ".gitlet");
+    private static File gitletDir;
 
     /** Remotes directory **/
-    static File remotesDir = Utils.join(gitletDir, "remotes");
+    static File remotesDir;
     /** File object containing commits. */
-    private static File commits = Utils.join(gitletDir, "commits");
+    private static File commits;
 
     /** File object containing blobs. */
-    private static File blobs = Utils.join(gitletDir, "blobs");
+    private static File blobs;
+
+    /** File object containing trees. */
+    private static File trees;
+
+    /** Store of commit objects, loose or packed. */
+    private static ObjectStore commitStore;
+
+    /** Store of blob objects, loose or packed. */
+    private static ObjectStore blobStore;
+
+    /** Store of tree objects, loose or packed. */
+    private static ObjectStore treeStore;
 
     /** File object containing head reference. */
-    private static File head = Utils.join(gitletDir, "HEAD");
+    private static File head;
 
     /** File object containing ref to current branch. */
-    private static File workingBranch = Utils.join(gitletDir,
-            "current-branch");
+    private static File workingBranch;
     /** File object containing branch data. */
-    private static File branches = Utils.join(gitletDir, "branches");
+    private static File branches;
+
+    /** True while a batch is running, when the stage, the index and the
+     *  commit graph are kept in memory between commands. */
+    private static boolean batching;
+
+    /** The stage of the running batch, or null until it is next needed. */
+    private static StagingArea batchStage;
+
+    /** The index of the running batch, or null until it is next needed. */
+    private static Index batchIndex;
+
+    /** The commit graph of the running batch, or null until it is next
+     *  needed. */
+    private static CommitGraph batchGraph;
+
+    static {
+        setRoot(new File("."));
+    }
+
+    /** Makes DIR the working directory of the commands that main runs,
+     *  in place of the directory the program was started in, so that one
+     *  JVM can run commands in several repositories in turn.
+     * @param dir the new working directory. */
+    static void setRoot(File dir) {
+        CWD = dir;
+        gitletDir = Utils.join(CWD, ".gitlet");
+        remotesDir = Utils.join(gitletDir, "remotes");
+        commits = Utils.join(gitletDir, "commits");
+        blobs = Utils.join(gitletDir, "blobs");
+        trees = Utils.join(gitletDir, "trees");
+        commitStore = new ObjectStore(commits);
+        blobStore = new ObjectStore(blobs);
+        treeStore = new ObjectStore(trees);
+        head = Utils.join(gitletDir, "HEAD");
+        workingBranch = Utils.join(gitletDir, "current-branch");
+        branches = Utils.join(gitletDir, "branches");
+    }
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
      *  <COMMAND> <OPERAND> .... */
@@ -45,72 +112,123 @@ public class Main {
         try {
             if (args.length == 0) {
                 throw new GitletException("Please enter a command.");
-            } else {
-                switch (args[0]) {
-                case "init":
-                    init(args);
-                    break;
-                case "add":
-                    add(args);
-                    break;
-                case "commit":
-                    commit(args);
-                    break;
-                case "log":
-                    log(args);
-                    break;
-                case "global-log":
-                    globalLog(args);
-                    break;
-                case "status":
-                    status(args);
-                    break;
-                case "rm":
-                    rm(args);
-                    break;
-                case "checkout":
-                    checkout(args);
-                    break;
-                case "branch":
-                    branch(args);
-                    break;
-                case "reset":
-                    reset(args);
-                    break;
-                case "find":
-                    find(args);
-                    break;
-                case "rm-branch":
-                    rmBranch(args);
-                    break;
-                case "merge":
-                    merge(args);
-                    break;
-                case "add-remote":
-                    addRemote(args);
-                    break;
-                case "rm-remote":
-                    rmRemote(args);
-                case "fetch":
-                    fetch(args);
-                    break;
-                case "push":
-//                    push(args);
-                    break;
-                case "pull":
-//                    pull(args);
-                    break;
-                default:
-                    throw new GitletException(
-                            "No command with that name exists.");
-                }
             }
+            run(args);
         } catch (GitletException gitletErr) {
             System.err.print(gitletErr.getMessage());
             System.exit(0);
         }
     }
 
+    /** Runs the command ARGS[0] with the operands that follow it.
+     * @param args a command and its operands. */
+    private static void run(String[] args) {
+        Config config = gitletDir.isDirectory()
+                ? Config.read(gitletDir) : null;
+        if (config != null) {
+            ObjectStore.CACHE.setCapacity(config.getInt(
+                    Config.CACHE_BYTES,
+                    ObjectStore.DEFAULT_CACHE_BYTES));
+            Utils.setSync(!batching && config.getBoolean(Config.FSYNC, true));
+            Journal.recover(gitletDir);
+            String promisor = config.get(Config.PROMISOR, null);
+            if (promisor != null) {
+                blobStore.setPromisor(new ObjectStore(Utils.join(
+                        remoteDirectory(promisor), "blobs")));
+            }
+        }
+        switch (args[0]) {
+        case "init":
+            init(args);
+            break;
+        case "add":
+            add(args);
+            break;
+        case "commit":
+            commit(args);
+            break;
+        case "log":
+            log(args);
+            break;
+        case "global-log":
+            globalLog(args);
+            break;
+        case "status":
+            status(args);
+            break;
+        case "rm":
+            rm(args);
+            break;
+        case "checkout":
+            checkout(args);
+            break;
+        case "branch":
+            branch(args);
+            break;
+        case "reset":
+            reset(args);
+            break;
+        case "find":
+            find(args);
+            break;
+        case "diff":
+            diff(args);
+            break;
+        case "blame":
+            blame(args);
+            break;
+        case "rm-branch":
+            rmBranch(args);
+            break;
+        case "merge":
+            merge(args);
+            break;
+        case "add-remote":
+            addRemote(args);
+            break;
+        case "rm-remote":
+            rmRemote(args);
+            break;
+        case "config":
+            config(args);
+            break;
+        case "repack":
+            repack(args);
+            break;
+        case "gc":
+            gc(args);
+            break;
+        case "dedup-report":
+            dedupReport(args);
+            break;
+        case "fetch":
+            fetch(args);
+            break;
+        case "clone":
+            cloneRemote(args);
+            break;
+        case "push":
+            push(args);
+            break;
+        case "pull":
+            pull(args);
+            break;
+        case "watch":
+            watch(args);
+            break;
+        case "batch":
+            batch(args);
+            break;
+        default:
+            throw new GitletException(
+                    "No command with that name exists.");
+        }
+        if (config != null
+                && config.getBoolean(Config.CACHE_STATS, false)) {
+            System.err.println(ObjectStore.CACHE);
+        }
+    }
+
     /** Initializes a new gitlet repository.
      * @param args Not used. */
     public static void init(String[] args) throws GitletException {
@@ -124,46 +242,74 @@ public class Main {
             gitletDir.mkdir();
             commits.mkdir();
             blobs.mkdir();
+            trees.mkdir();
             branches.mkdir();
             InitialCommit initialCommit =
                     new InitialCommit("initial commit", 0);
-            initialCommit.commit(head);
-            initialCommit.persist(commits);
-            File masterHead = Utils.join(branches, "master");
-            try {
-                workingBranch.createNewFile();
-                masterHead.createNewFile();
-                Utils.writeContents(workingBranch, "master");
-                Utils.writeContents(masterHead, initialCommit.getHash());
-            } catch (IOException e) {
-                return;
-            }
+            initialCommit.commit();
+            recordCommit(initialCommit);
+            updateHead("master", initialCommit.getHash(),
+                    Utils.join(gitletDir, "stage"));
         }
     }
 
-    /** Adds the specified file to the repository.
+    /** Adds the specified files to the repository. Files are hashed and
+     * stored by the worker pool, each in one pass that yields the hash
+     * that is staged, unless the index already knows the hash of a
+     * stored blob; the stage is then updated in argument order.
      *
-     * @param args The file to add.
+     * @param args The files to add.
      * @throws GitletException
      */
     public static void add(String[] args) throws GitletException {
         if (!gitletDir.exists()) {
             throw new GitletException(
                     "Not in an initialized Gitlet directory.");
-        } else if (args.length != 2) {
+        } else if (args.length < 2) {
             throw new GitletException("Incorrect operands.");
+        } else if (args[1].equals("-A")) {
+            if (args.length != 2) {
+                throw new GitletException("Incorrect operands.");
+            }
+            stageChanges(true);
         } else {
-            File toAdd = Utils.join(CWD, args[1]);
-            if (!toAdd.isFile()) {
-                throw new GitletException("File does not exist.");
-            } else {
-                StagingArea myStage = new StagingArea(gitletDir);
-                Blob toStage = new Blob(toAdd, blobs);
-                myStage.stageFile(toStage);
-                if (myStage.getStagePath().isFile()) {
-                    Utils.writeObject(myStage.getStagePath(), myStage);
+            ArrayList<String> names = new ArrayList<>();
+            ArrayList<File> toAdd = new ArrayList<>();
+            for (int i = 1; i < args.length; i += 1) {
+                String name = trackedName(args[i]);
+                File file = Utils.join(CWD, name);
+                if (!file.isFile()) {
+                    throw new GitletException("File does not exist.");
+                }
+                names.add(name);
+                toAdd.add(file);
+            }
+            StagingArea myStage = stage();
+            Index index = index();
+            HashMap<File, String> previous = new HashMap<>();
+            for (int i = 0; i < names.size(); i += 1) {
+                previous.put(toAdd.get(i), myStage.trackedHash(names.get(i)));
+            }
+            Config config = Config.read(gitletDir);
+            int maxDepth = config.getBoolean(Config.DELTA_BLOBS, false)
+                    ? config.getInt(Config.DELTA_DEPTH, DELTA_DEPTH) : 0;
+            boolean chunked = config.getBoolean(Config.CHUNKED_BLOBS, false);
+            List<String> hashes = workerPool().map(toAdd, file -> {
+                String hash = index.cachedHash(file);
+                if (hash != null && blobStore.contains(hash)) {
+                    return hash;
+                }
+                return new Blob(file, blobStore, previous.get(file),
+                        maxDepth, chunked).getHash();
+            });
+            for (int i = 0; i < toAdd.size(); i += 1) {
+                if (index.cachedHash(toAdd.get(i)) == null) {
+                    index.record(toAdd.get(i), hashes.get(i));
                 }
+                myStage.stageFile(names.get(i), hashes.get(i));
             }
+            persist(myStage);
+            persist(index);
         }
     }
 
@@ -173,10 +319,13 @@ public class Main {
      * @throws GitletException
      */
     public static void commit(String[] args) throws GitletException {
-        StagingArea currentStage = new StagingArea(gitletDir);
+        StagingArea currentStage = stage();
         if (!gitletDir.exists()) {
             throw new GitletException(
                     "Not in an initialized Gitlet directory.");
+        } else if (args.length == 3 && args[1].equals("-a")) {
+            stageChanges(false);
+            commit(new String[] {"commit", args[2]});
         } else if (args.length != 2) {
             throw new GitletException("Incorrect operands.");
         } else if (currentStage.size() == 0
@@ -187,11 +336,10 @@ public class Main {
         } else {
             String currentBranch = Utils.readContentsAsString(workingBranch);
             Commit myCommit = new Commit(args[1], System.currentTimeMillis());
-            myCommit.commit(currentStage, currentBranch);
-            myCommit.persist(commits);
-            File currBranch = Utils.join(branches, currentBranch);
-            Utils.writeContents(currBranch, myCommit.getHash());
-            currentStage.getStagePath().delete();
+            myCommit.commit(currentStage, currentBranch, treeStore);
+            recordCommit(myCommit);
+            updateHead(currentBranch, myCommit.getHash(),
+                    currentStage.getStagePath());
         }
     }
 
@@ -206,34 +354,267 @@ public class Main {
         } else if (args.length != 2) {
             throw new GitletException("Incorrect operands.");
         } else {
-            StagingArea currStage = new StagingArea(gitletDir);
-            File toRemove = Utils.join(CWD, args[1]);
-            currStage.rmFile(toRemove);
-            if (currStage.getStagePath().isFile()) {
-                Utils.writeObject(currStage.getStagePath(), currStage);
+            StagingArea currStage = stage();
+            String name = trackedName(args[1]);
+            if (currStage.rmFile(name)) {
+                deleteWorkingFile(name);
+            }
+            persist(currStage);
+            File toRemove = Utils.join(CWD, name);
+            if (!toRemove.exists()) {
+                Index index = index();
+                index.remove(toRemove);
+                persist(index);
             }
         }
     }
 
-    /** Prints out a log of this branches commits. *
+    /** Prints the history of the current branch head, following first
+     * parents, optionally limited by "-n COUNT" to the first COUNT commits
+     * and by "--since DATE" (yyyy-MM-dd or yyyy-MM-ddTHH:mm:ss, local
+     * time) to commits made at or after DATE. A final PATH, or "-- PATH",
+     * limits it to the commits that changed the file or directory PATH.
+     * The walk stops as soon as either limit is reached, and output is
+     * buffered until the end.
      *
-     * @param args Not used
+     * @param args Optional limits.
      */
     public static void log(String[] args) {
         if (!gitletDir.exists()) {
             throw new GitletException(
                     "Not in an initialized Gitlet directory.");
-        } else if (args.length != 1) {
+        }
+        long count = Long.MAX_VALUE;
+        long since = Long.MIN_VALUE;
+        String path = null;
+        int end = args.length;
+        if (end >= 3 && args[end - 2].equals("--")) {
+            path = trackedName(args[end - 1]);
+            end -= 2;
+        } else if (end % 2 == 0 && !args[end - 1].startsWith("-")) {
+            path = trackedName(args[end - 1]);
+            end -= 1;
+        }
+        for (int i = 1; i < end; i += 2) {
+            if (i + 1 == end) {
+                throw new GitletException("Incorrect operands.");
+            } else if (args[i].equals("-n")) {
+                try {
+                    count = Long.parseLong(args[i + 1]);
+                } catch (NumberFormatException excp) {
+                    throw new GitletException("Incorrect operands.");
+                }
+            } else if (args[i].equals("--since")) {
+                since = parseDate(args[i + 1]);
+            } else {
+                throw new GitletException("Incorrect operands.");
+            }
+        }
+        File branchPath = Utils.join(branches, Utils.readContentsAsString(
+                workingBranch));
+        String currCommitID = Utils.readContentsAsString(branchPath);
+        if (path != null) {
+            logPath(currCommitID, path, count, since);
+            return;
+        }
+        TreeSet<String> shallow = CommitGraph.shallow(gitletDir);
+        PrintWriter out = outputWriter();
+        try {
+            for (long n = 0; currCommitID != null && n < count; n += 1) {
+                Commit prevCommit = readCommit(currCommitID);
+                if (prevCommit.getCommitTime() < since) {
+                    break;
+                }
+                String parent = prevCommit.log(out);
+                currCommitID = shallow.contains(currCommitID) ? null : parent;
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    /** Prints the first COUNT commits made at or after SINCE in the
+     * first-parent history of HEADID that changed the file or directory
+     * PATH. Commits whose changed-path filters rule PATH out are passed
+     * over from the commit graph alone; the others are confirmed by
+     * diffing their trees against their parents'.
+     * @param headID the commit at which to start.
+     * @param path a path relative to the working directory.
+     * @param count the most commits to print.
+     * @param since the earliest commit time to print. */
+    private static void logPath(String headID, String path, long count,
+                                long since) {
+        CommitGraph graph = commitGraph();
+        PrintWriter out = outputWriter();
+        try {
+            int pos = graph.ensure(headID);
+            for (long n = 0; pos != CommitGraph.NONE && n < count
+                     && graph.time(pos) >= since; pos = graph.parent(pos)) {
+                if (graph.mayChange(pos, path)
+                        && changesPath(graph, pos, path)) {
+                    readCommit(graph.id(pos)).log(out);
+                    n += 1;
+                }
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    /** Returns true iff the commit at POS in GRAPH changed the file or
+     * directory PATH relative to its first parent.
+     * @param graph the commit graph.
+     * @param pos the position of a commit.
+     * @param path a path relative to the working directory. */
+    private static boolean changesPath(CommitGraph graph, int pos,
+                                       String path) {
+        int parent = graph.parent(pos);
+        String before = parent == CommitGraph.NONE ? null
+                : Commit.read(commitStore, graph.id(parent)).getTree();
+        TreeMap<String, String[]> changes = Tree.diff(treeStore, before,
+                Commit.read(commitStore, graph.id(pos)).getTree());
+        return changes.containsKey(path)
+                || !changes.subMap(path + "/", path + "0").isEmpty();
+    }
+
+    /** Returns the time in milliseconds of DATE, given as yyyy-MM-dd or
+     * yyyy-MM-ddTHH:mm:ss in local time.
+     * @param date a date given to log --since. */
+    private static long parseDate(String date) {
+        try {
+            LocalDateTime time = date.contains("T")
+                    ? LocalDateTime.parse(date)
+                    : LocalDate.parse(date).atStartOfDay();
+            return time.atZone(ZoneId.systemDefault()).toInstant()
+                    .toEpochMilli();
+        } catch (DateTimeParseException excp) {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Returns a buffered writer on the standard output for long output,
+     * such as logs and diffs, which the caller must flush. */
+    private static PrintWriter outputWriter() {
+        return new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out), 1 << 16), false);
+    }
+
+    /** Prints a unified diff of the tracked files: from the stage to the
+     * working directory with no operands, from the given commit to the
+     * working directory with one, and between the given commits with two.
+     * Files whose blob hashes agree on both sides are skipped without
+     * being read; working files are hashed through the index.
+     *
+     * @param args Up to two commit ids, which may be abbreviated.
+     */
+    public static void diff(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length > 3) {
             throw new GitletException("Incorrect operands.");
+        }
+        TreeMap<String, String> before = args.length == 1
+                ? stage().getTrackedFiles()
+                : args.length == 2
+                ? readCommit(resolveCommit(args[1])).getBlobs()
+                : new TreeMap<>();
+        TreeMap<String, String> after = new TreeMap<>();
+        Index index = index();
+        if (args.length == 3) {
+            for (Map.Entry<String, String[]> change : Tree.diff(treeStore,
+                    readCommit(resolveCommit(args[1])).getTree(),
+                    readCommit(resolveCommit(args[2])).getTree())
+                    .entrySet()) {
+                if (change.getValue()[0] != null) {
+                    before.put(change.getKey(), change.getValue()[0]);
+                }
+                if (change.getValue()[1] != null) {
+                    after.put(change.getKey(), change.getValue()[1]);
+                }
+            }
         } else {
-            File branchPath = Utils.join(branches, Utils.readContentsAsString(
-                    workingBranch));
-            String currCommitID = Utils.readContentsAsString(branchPath);
-            while (currCommitID != null) {
-                Commit prevCommit = Utils.readObject(
-                        Utils.join(commits, currCommitID), Commit.class);
-                currCommitID = prevCommit.log();
+            for (String name : before.keySet()) {
+                File file = Utils.join(CWD, name);
+                if (file.isFile()) {
+                    after.put(name, index.hash(file));
+                }
+            }
+        }
+        persist(index);
+        TreeSet<String> names = new TreeSet<>(before.keySet());
+        names.addAll(after.keySet());
+        PrintWriter out = outputWriter();
+        try {
+            for (String name : names) {
+                String oldHash = before.get(name), newHash = after.get(name);
+                if (oldHash != null && oldHash.equals(newHash)) {
+                    continue;
+                }
+                String oldText = oldHash == null ? "" : readBlob(oldHash);
+                String newText = newHash == null ? ""
+                        : args.length == 3 ? readBlob(newHash)
+                        : Utils.readContentsAsString(Utils.join(CWD, name));
+                out.println("diff --git a/" + name + " b/" + name);
+                if (oldText.indexOf(0) >= 0 || newText.indexOf(0) >= 0) {
+                    out.println("Binary files differ");
+                    continue;
+                }
+                out.println(oldHash == null ? "--- /dev/null"
+                        : "--- a/" + name);
+                out.println(newHash == null ? "+++ /dev/null"
+                        : "+++ b/" + name);
+                Diff.unified(Diff.lines(oldText), Diff.lines(newText),
+                        DIFF_CONTEXT, out);
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    /** Prints each line of the file ARGS[1] in the head commit, preceded
+     * by the abbreviated id and the date of the commit that last changed
+     * it and by its line number.
+     *
+     * @param args The file name.
+     */
+    public static void blame(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 2) {
+            throw new GitletException("Incorrect operands.");
+        }
+        String name = trackedName(args[1]);
+        CommitGraph graph = commitGraph();
+        int headPos = graph.ensure(Utils.readContentsAsString(head));
+        String[] origins = new Blame(gitletDir, graph, commitStore,
+                treeStore, blobStore).origins(headPos, name);
+        if (origins == null) {
+            throw new GitletException("File does not exist in that commit.");
+        }
+        List<String> lines = Diff.lines(readBlob(Tree.lookup(treeStore,
+                Commit.read(commitStore, graph.id(headPos)).getTree(),
+                name)));
+        HashMap<String, String> dates = new HashMap<>();
+        String format = "%s (%s %" + Integer.toString(lines.size()).length()
+                + "d) %s";
+        PrintWriter out = outputWriter();
+        try {
+            for (int i = 0; i < lines.size(); i += 1) {
+                String origin = origins[i];
+                String date = dates.computeIfAbsent(origin, id ->
+                        BLAME_DATE.format(Instant.ofEpochMilli(
+                                graph.time(graph.position(id)))));
+                String line = lines.get(i);
+                out.printf(format, origin.substring(0, BLAME_ID_LENGTH),
+                        date, i + 1, line);
+                if (!line.endsWith("\n")) {
+                    out.println();
+                }
             }
+        } finally {
+            out.flush();
         }
     }
 
@@ -252,14 +633,14 @@ public class Main {
             System.out.println("=== Branches ===");
             System.out.println("*" + currBranch);
             for (File branch : branches.listFiles()) {
-                if (!branch.getName().equals(currBranch)) {
+                if (branch.isFile() && !branch.getName().equals(currBranch)) {
                     System.out.println(branch.getName());
                 }
             }
             System.out.println();
             System.out.println("=== Staged Files ===");
-            StagingArea currStage = new StagingArea(gitletDir);
-            for (String name : currStage.getBlobNames().keySet()) {
+            StagingArea currStage = stage();
+            for (String name : currStage.getStagedFiles().keySet()) {
                 System.out.println(name);
             }
             System.out.println();
@@ -268,39 +649,22 @@ public class Main {
                 System.out.println(name);
             }
             System.out.println();
-            HashMap<String, File> filesInDir = new HashMap<>();
-            for (File f : CWD.listFiles()) {
-                if (f.isFile()) {
-                    filesInDir.put(f.getName(), f);
-                }
-            }
-
+            Index index = index();
+            TreeMap<String, String> changes =
+                    workingChanges(currStage.getTrackedFiles(), index);
+            persist(index);
             System.out.println("=== Modifications Not Staged For Commit ===");
-            for (String fName : filesInDir.keySet()) {
-                String currFileData = Utils.readContentsAsString(filesInDir.get(fName));
-                if (currStage.getTrackedFiles().containsKey(fName)) {
-                    if (!currStage.getTrackedFiles().get(fName).getBlobString().equals(currFileData)) {
-                        System.out.println(fName + " (modified)");
-                    }
-                } else if (currStage.getBlobNames().containsKey(fName) && !currStage.getBlobNames().get(fName).getBlobString().equals(currFileData)) {
-                    System.out.println(fName + " (modified)");
-                }
-            }
-            for (String fName : currStage.getBlobNames().keySet()) {
-                if (!filesInDir.containsKey(fName)) {
-                    System.out.println(fName + " (deleted)");
-                }
-            }
-            for (String fName : currStage.getTrackedFiles().keySet()) {
-                if (!filesInDir.containsKey(fName) && !currStage.getRemovedFiles().contains(fName)) {
-                    System.out.println(fName + " (deleted)");
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (!change.getValue().equals(UNTRACKED)) {
+                    System.out.println(change.getKey() + " ("
+                            + change.getValue() + ")");
                 }
             }
             System.out.println();
             System.out.println("=== Untracked Files ===");
-            for (String fName : filesInDir.keySet()) {
-                if (!currStage.getTrackedFiles().containsKey(fName) && !currStage.getBlobNames().containsKey(fName)) {
-                    System.out.println(fName);
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (change.getValue().equals(UNTRACKED)) {
+                    System.out.println(change.getKey());
                 }
             }
             System.out.println();
@@ -349,39 +713,39 @@ public class Main {
             throw new GitletException(
                     "A branch with that name already exists.");
         } else {
-            File branchHead = Utils.join(branches, args[1]);
-            try {
-                branchHead.createNewFile();
-                Utils.writeContents(branchHead,
-                        Utils.readContentsAsString(head));
-            } catch (IOException io) {
-                return;
-            }
+            Utils.writeAtomically(Utils.join(branches, args[1]),
+                    Utils.readContentsAsString(head));
         }
     }
 
-    /** Finds all commits with the message specified.
+    /** Finds all commits with the message specified, or, given
+     *  --contains WORDS, all commits whose messages contain those words.
      *
-     * @param args the message to check for
+     * @param args the message or words to check for
      */
     public static void find(String[] args) {
         if (!gitletDir.exists()) {
             throw new GitletException(
                     "Not in an initialized Gitlet directory.");
+        } else if (args.length == 3 && args[1].equals("--contains")) {
+            printIds(new MessageIndex(gitletDir, commitStore)
+                    .containing(args[2]));
         } else if (args.length != 2) {
             throw new GitletException("Incorrect operands.");
         } else {
-            boolean found = false;
-            for (File toFind : commits.listFiles()) {
-                Commit toCheck = Utils.readObject(toFind, Commit.class);
-                if (toCheck.getCommitMessage().equals(args[1])) {
-                    System.out.println(toCheck.getHash());
-                    found = true;
-                }
-            }
-            if (!found) {
-                throw new GitletException("Found no commit with that message.");
-            }
+            printIds(new MessageIndex(gitletDir, commitStore)
+                    .withMessage(args[1]));
+        }
+    }
+
+    /** Prints each of the commit IDS found by find on its own line.
+     * @param ids commit ids. */
+    private static void printIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            throw new GitletException("Found no commit with that message.");
+        }
+        for (String id : ids) {
+            System.out.println(id);
         }
     }
 
@@ -396,9 +760,13 @@ public class Main {
         } else if (args.length != 1) {
             throw new GitletException("Incorrect operands.");
         } else {
-            for (File commit : commits.listFiles()) {
-                Commit obj = Utils.readObject(commit, Commit.class);
-                obj.log();
+            PrintWriter out = outputWriter();
+            try {
+                for (String id : commitStore.ids()) {
+                    readCommit(id).log(out);
+                }
+            } finally {
+                out.flush();
             }
         }
     }
@@ -432,54 +800,12 @@ public class Main {
         } else if (args.length != 2) {
             throw new GitletException("Incorrect operands.");
         } else {
-            String commitID = args[1];
-            File readCommit = Utils.join(commits, commitID);
-            if (!readCommit.exists()) {
-                throw new GitletException("No commit with that id exists.");
-            }
-            Commit repoHead = Utils.readObject(Utils.join(
-                    commits, Utils.readContentsAsString(head)), Commit.class);
-            Commit setHead = Utils.readObject(Utils.join(
-                    commits, commitID), Commit.class);
-            if (setHead.getStage() != null) {
-                for (String name : setHead.getStage().
-                        getTrackedFiles().keySet()) {
-                    File toWrite = Utils.join(CWD, name);
-                    if (toWrite.exists()) {
-                        if (repoHead.getStage() == null
-                                || !repoHead.getStage().getTrackedFiles().
-                                        containsKey(name)) {
-                            throw new GitletException("There is an untracked"
-                                     + " file in the way; delete it, or add and"
-                                    + " commit it first.");
-                        }
-                    } else {
-                        try {
-                            toWrite.createNewFile();
-                        } catch (IOException dummy) {
-                            return;
-                        }
-                    }
-                    Utils.writeContents(
-                            toWrite, setHead.getStage().getTrackedFiles().
-                                    get(name).getBlobString());
-                }
-            }
-            if (repoHead.getStage() != null) {
-                for (String fN : repoHead.getStage().getBlobNames().keySet()) {
-                    File toDelete = Utils.join(CWD, fN);
-                    if (setHead.getStage() == null) {
-                        Utils.restrictedDelete(toDelete);
-                    } else if (!setHead.getStage().getBlobNames().
-                            keySet().contains(fN)) {
-                        Utils.restrictedDelete(toDelete);
-                    }
-                }
-            }
-            new StagingArea(gitletDir).getStagePath().delete();
-            Utils.writeContents(Utils.join(branches, Utils.readContentsAsString(
-                    workingBranch)), commitID);
-            Utils.writeContents(head, commitID);
+            String commitID = resolveCommit(args[1]);
+            Commit repoHead = readCommit(Utils.readContentsAsString(head));
+            Commit setHead = readCommit(commitID);
+            checkoutFiles(repoHead, setHead);
+            updateHead(Utils.readContentsAsString(workingBranch), commitID,
+                    stage().getStagePath());
         }
 
     }
@@ -502,35 +828,34 @@ public class Main {
             throw new GitletException("Cannot merge a branch with itself.");
         } else {
             boolean mergeConflict = false;
-            StagingArea currStage = new StagingArea(gitletDir);
+            StagingArea currStage = stage();
             if (currStage.size() != 0) {
                 throw new GitletException("You have uncommitted changes.");
             }
             String currentBranchHead = Utils.readContentsAsString(Utils.join(branches, Utils.readContentsAsString(workingBranch)));
             String givenBranchHead = Utils.readContentsAsString(Utils.join(branches, args[1]));
             String splitPointHash = findSplitPoint(givenBranchHead, currentBranchHead);
-            if (splitPointHash.equals("checkout")) {
-                checkout(new String[]{"checkout", args[1]});
+            if (splitPointHash.equals("ancestor")) {
+                System.out.println(
+                        "Given branch is an ancestor of the current branch.");
+                return;
+            } else if (splitPointHash.equals("checkout")) {
+                checkoutFiles(readCommit(currentBranchHead),
+                        readCommit(givenBranchHead));
+                updateHead(Utils.readContentsAsString(workingBranch),
+                        givenBranchHead, currStage.getStagePath());
                 System.out.println("Current branch fast-forwarded.");
                 return;
             }
-            Commit splitPointCommit = Utils.readObject(Utils.join(commits, splitPointHash), Commit.class);
-            StagingArea branchStage = Utils.readObject(
-                    Utils.join(commits, givenBranchHead),
-                    Commit.class).getStage();
-            StagingArea headStage = Utils.readObject(
-                    Utils.join(commits, currentBranchHead),
-                    Commit.class).getStage();
-            StagingArea splitStage = splitPointCommit.getStage();
-            HashMap<String, Blob> modifiedInBranch = getModifiedFiles(splitStage, branchStage);
-            HashMap<String, Blob> modifiedInHead = getModifiedFiles(splitStage, headStage);
-            HashMap<String, File> filesInDir = new HashMap<>();
-            for (File f : CWD.listFiles()) {
-                filesInDir.put(f.getName(), f);
-            }
+            Commit split = readCommit(splitPointHash);
+            HashMap<String, String> modifiedInBranch =
+                    getModifiedFiles(split, readCommit(givenBranchHead));
+            HashMap<String, String> modifiedInHead =
+                    getModifiedFiles(split, readCommit(currentBranchHead));
             for (String fName : modifiedInBranch.keySet()) {
                 if (!modifiedInHead.containsKey(fName)) {
-                    if (!currStage.getTrackedFiles().containsKey(fName) && filesInDir.containsKey(fName)) {
+                    if (currStage.trackedHash(fName) == null
+                            && Utils.join(CWD, fName).exists()) {
                         throw new GitletException("There is an untracked file in the way; delete it, or add and commit it first.");
                     }
                 }
@@ -539,42 +864,48 @@ public class Main {
                 if (modifiedInBranch.get(fName) != null && !modifiedInHead.containsKey(fName)) {
                     checkout(new String[]{"checkout", givenBranchHead, "--", fName});
                     add(new String[]{"add", fName});
-                    currStage = new StagingArea(gitletDir);
+                    currStage = stage();
                 } else if (modifiedInBranch.get(fName) == null && !modifiedInHead.containsKey(fName)) {
                     rm(new String[]{"rm", fName});
-                    currStage = new StagingArea(gitletDir);
+                    currStage = stage();
                 }
             }
             Set<String> modifiedInBoth = new HashSet<>(modifiedInHead.keySet());
             modifiedInBoth.retainAll(modifiedInBranch.keySet());
             for (String fName : modifiedInBoth) {
                 String conflict = "<<<<<<< HEAD\n";
+                boolean conflicted = true;
                 if (modifiedInHead.get(fName) != null && modifiedInBranch.get(fName) != null && !modifiedInHead.get(fName).equals(modifiedInBranch.get(fName))) {
-                    conflict += modifiedInHead.get(fName).getBlobString();
-                    conflict += "=======\n";
-                    conflict += modifiedInBranch.get(fName).getBlobString();
-                    conflict += ">>>>>>>";
+                    String splitHash =
+                            Tree.lookup(treeStore, split.getTree(), fName);
+                    LineMerge lineMerge = new LineMerge(
+                            splitHash == null ? "" : readBlob(splitHash),
+                            readBlob(modifiedInHead.get(fName)),
+                            readBlob(modifiedInBranch.get(fName)));
+                    conflict = lineMerge.result();
+                    conflicted = lineMerge.conflicted();
                 } else if (modifiedInHead.get(fName) == null && modifiedInBranch.get(fName) == null) {
                     conflict = "<<<<<<< HEAD\n";
                 } else if (modifiedInHead.get(fName) == null) {
                     conflict += "=======\n";
-                    conflict += modifiedInBranch.get(fName).getBlobString();
+                    conflict += readBlob(modifiedInBranch.get(fName));
                     conflict += ">>>>>>>";
                 } else if (modifiedInBranch.get(fName) == null) {
-                    conflict += modifiedInHead.get(fName).getBlobString();
+                    conflict += readBlob(modifiedInHead.get(fName));
                     conflict += "=======\n";
                     conflict += ">>>>>>>";
                 }
                 if (!conflict.equals("<<<<<<< HEAD\n")) {
-                    mergeConflict = true;
+                    mergeConflict |= conflicted;
                     try {
                         File conflictFile = Utils.join(CWD, fName);
                         if (!conflictFile.exists()) {
+                            conflictFile.getParentFile().mkdirs();
                             conflictFile.createNewFile();
                         }
                         Utils.writeContents(conflictFile, conflict);
-                        add(new String[]{"add", conflictFile.getName()});
-                        currStage = new StagingArea(gitletDir);
+                        add(new String[]{"add", fName});
+                        currStage = stage();
                     } catch (IOException dummy) {
                         return;
                     }
@@ -583,11 +914,10 @@ public class Main {
 
             MergeCommit myMerge = new MergeCommit("Merged " + args[1] + " into " + Utils.readContentsAsString(workingBranch) + ".", System.currentTimeMillis(), givenBranchHead);
             String currentBranch = Utils.readContentsAsString(workingBranch);
-            myMerge.commit(currStage, currentBranch);
-            myMerge.persist(commits);
-            File currBranch = Utils.join(branches, currentBranch);
-            Utils.writeContents(currBranch, myMerge.getHash());
-            currStage.getStagePath().delete();
+            myMerge.commit(currStage, currentBranch, treeStore);
+            recordCommit(myMerge);
+            updateHead(currentBranch, myMerge.getHash(),
+                    currStage.getStagePath());
             if (mergeConflict) {
                 System.out.println("Encountered a merge conflict.");
             }
@@ -602,21 +932,7 @@ public class Main {
      */
     private static void checkoutHeadFile(String fileName) throws IOException {
         String headCommitID = Utils.readContentsAsString(head);
-        Commit headCommit = Utils.readObject(
-                Utils.join(commits, headCommitID), Commit.class);
-        if (headCommit.getStage() != null && headCommit.getStage().getBlobNames().containsKey(
-                Utils.join(CWD, fileName).getName())) {
-            Blob checkoutBlob = headCommit.getStage().getBlobNames().get(
-                    Utils.join(CWD, fileName).getName());
-            String newData = checkoutBlob.getBlobString();
-            if (!Utils.join(CWD, fileName).exists()) {
-                Utils.join(CWD, fileName).createNewFile();
-            }
-            Utils.writeContents(Utils.join(CWD, fileName), newData);
-        } else {
-            throw new GitletException(
-                    "File does not exist in that commit.");
-        }
+        checkoutFile(readCommit(headCommitID), trackedName(fileName));
     }
 
     /** Checks out the specified file from the specified commit.
@@ -627,33 +943,419 @@ public class Main {
      */
     private static void checkoutCommitFile(String commitID, String fileName)
             throws IOException {
-        if (commitID.length() < ID_LENGTH) {
-            for (File possible : commits.listFiles()) {
-                if (possible.getName().contains(commitID)) {
-                    commitID = possible.getName();
-                    break;
-                }
-            }
+        checkoutFile(readCommit(resolveCommit(commitID)),
+                trackedName(fileName));
+    }
+
+    /** Writes the new commit COMMIT to the commit store and records it in
+     *  the commit graph and the commit id and message indexes. The indexes
+     *  are opened first, so that any that must be built from the store do
+     *  not already include COMMIT.
+     * @param commit a commit that has just been made. */
+    private static void recordCommit(Commit commit) {
+        CommitGraph graph = commitGraph();
+        PrefixIndex ids = new PrefixIndex(gitletDir, commitStore);
+        MessageIndex messages = new MessageIndex(gitletDir, commitStore);
+        commit.persist(commitStore);
+        graph.add(commit);
+        ids.add(commit.getHash());
+        messages.add(commit);
+    }
+
+    /** Makes BRANCH the current branch, points it and HEAD at COMMITID and
+     * deletes the stage file STAGEPATH, as one journaled update: after a
+     * crash, either all of these happen or none do.
+     * @param branch the branch to make current.
+     * @param commitID the commit to point it at.
+     * @param stagePath the stage file. */
+    private static void updateHead(String branch, String commitID,
+                                   File stagePath) {
+        Journal journal = new Journal(gitletDir);
+        if (!workingBranch.isFile()
+                || !Utils.readContentsAsString(workingBranch).equals(branch)) {
+            journal.write(workingBranch, branch);
         }
-        File readCommit = Utils.join(commits, commitID);
-        if (!readCommit.exists()) {
+        journal.write(Utils.join(branches, branch), commitID);
+        journal.write(head, commitID);
+        journal.delete(stagePath);
+        journal.commit();
+        batchStage = null;
+    }
+
+    /** Returns the full id of the commit whose id is or starts with
+     *  COMMITID. Throws GitletException if there is no such commit or
+     *  more than one.
+     * @param commitID a full or abbreviated commit id. */
+    private static String resolveCommit(String commitID) {
+        String result =
+                new PrefixIndex(gitletDir, commitStore).resolve(commitID);
+        if (result == null) {
             throw new GitletException("No commit with that id exists.");
         }
-        Commit chCommit = Utils.readObject(readCommit, Commit.class);
-        File checkoutFile = Utils.join(CWD, fileName);
-        if (chCommit.getStage().getBlobNames().containsKey(
-                checkoutFile.getName())) {
-            Blob checkoutBlob = chCommit.getStage().getBlobNames().get(
-                    checkoutFile.getName());
-            String newData = checkoutBlob.getBlobString();
-            if (!checkoutFile.exists()) {
-                checkoutFile.createNewFile();
-            }
-            Utils.writeContents(checkoutFile, newData);
-        } else {
+        return result;
+    }
+
+    /** Overwrites the working file NAME with its version in CHCOMMIT.
+     *
+     * @param chCommit The commit from which to checkout
+     * @param name The path of the file to checkout
+     * @throws IOException Not used
+     */
+    private static void checkoutFile(Commit chCommit, String name)
+            throws IOException {
+        File checkoutFile = Utils.join(CWD, name);
+        String blobHash = Tree.lookup(treeStore, chCommit.getTree(), name);
+        if (blobHash == null) {
             throw new GitletException(
                     "File does not exist in that commit.");
         }
+        Index index = index();
+        if (writeFile(checkoutFile, blobHash, index)) {
+            index.record(checkoutFile, blobHash);
+            persist(index);
+        }
+    }
+
+    /** Replaces the files tracked by REPOHEAD in the working directory with
+     * those tracked by TARGET, refusing to overwrite untracked files. Only
+     * the files that differ between the two commits are touched, and
+     * directories whose trees are the same in both are not visited.
+     *
+     * @param repoHead The commit currently checked out
+     * @param target The commit to check out
+     */
+    private static void checkoutFiles(Commit repoHead, Commit target) {
+        TreeMap<String, String[]> changes =
+                Tree.diff(treeStore, repoHead.getTree(), target.getTree());
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<String> removed = new ArrayList<>();
+        for (Map.Entry<String, String[]> change : changes.entrySet()) {
+            String[] hashes = change.getValue();
+            if (hashes[0] == null
+                    && Utils.join(CWD, change.getKey()).exists()) {
+                throw new GitletException("There is an untracked file"
+                        + " in the way; delete it, "
+                        + "or add and commit it first.");
+            } else if (hashes[1] == null) {
+                removed.add(change.getKey());
+            } else {
+                names.add(change.getKey());
+            }
+        }
+        Index index = index();
+        for (String name : removed) {
+            deleteWorkingFile(name);
+            index.remove(Utils.join(CWD, name));
+        }
+        List<Boolean> written = workerPool().map(names, name ->
+                writeFile(Utils.join(CWD, name), changes.get(name)[1],
+                        index));
+        for (int i = 0; i < names.size(); i += 1) {
+            if (written.get(i)) {
+                index.record(Utils.join(CWD, names.get(i)),
+                        changes.get(names.get(i))[1]);
+            }
+        }
+        persist(index);
+    }
+
+    /** Deletes the working file NAME, if it exists, and then any of its
+     *  parent directories that it leaves empty.
+     * @param name the path of a working file. */
+    private static void deleteWorkingFile(String name) {
+        File file = Utils.join(CWD, name);
+        if (file.isDirectory() || !file.delete()) {
+            return;
+        }
+        for (int slash = name.lastIndexOf('/'); slash > 0;
+             slash = name.lastIndexOf('/')) {
+            name = name.substring(0, slash);
+            if (!Utils.join(CWD, name).delete()) {
+                break;
+            }
+        }
+    }
+
+    /** Returns the working files that differ from TRACKED, the files the
+     *  next commit would record, each mapped to MODIFIED, DELETED or
+     *  UNTRACKED. While a watch daemon is running, only the files it has
+     *  seen change since the last call are checked; the others keep the
+     *  hashes INDEX holds for them.
+     * @param tracked the tracked files, mapped to their blob hashes.
+     * @param index the stat cache of the working directory. */
+    private static TreeMap<String, String> workingChanges(
+            TreeMap<String, String> tracked, Index index) {
+        Watcher watcher = new Watcher(CWD, gitletDir);
+        TreeMap<String, File> files = watcher.workingFiles();
+        TreeMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, String> entry : tracked.entrySet()) {
+            File file = files.get(entry.getKey());
+            if (file == null) {
+                result.put(entry.getKey(), DELETED);
+            } else if (!entry.getValue().equals(
+                    watcher.isDirty(entry.getKey()) ? index.hash(file)
+                    : index.recordedHash(file))) {
+                result.put(entry.getKey(), MODIFIED);
+            }
+        }
+        for (String name : files.keySet()) {
+            if (!tracked.containsKey(name)) {
+                result.put(name, UNTRACKED);
+            }
+        }
+        return result;
+    }
+
+    /** Stages every change to the tracked files in the working directory,
+     *  adding modified files and removing deleted ones, and also adds the
+     *  untracked files if UNTRACKED.
+     * @param untracked true iff untracked files are to be added. */
+    private static void stageChanges(boolean untracked) {
+        StagingArea stage = stage();
+        Index index = index();
+        ArrayList<String> toAdd = new ArrayList<>(List.of("add"));
+        for (Map.Entry<String, String> change
+                 : workingChanges(stage.getTrackedFiles(), index).entrySet()) {
+            if (change.getValue().equals(DELETED)) {
+                stage.rmFile(change.getKey());
+                index.remove(Utils.join(CWD, change.getKey()));
+            } else if (untracked || change.getValue().equals(MODIFIED)) {
+                toAdd.add(change.getKey());
+            }
+        }
+        persist(stage);
+        persist(index);
+        if (toAdd.size() > 1) {
+            add(toAdd.toArray(new String[0]));
+        }
+    }
+
+    /** Runs the watch daemon for the working directory until stopped.
+     *
+     * @param args Not used
+     */
+    public static void watch(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        new Watcher(CWD, gitletDir).run();
+    }
+
+    /** Returns ARG, a path to a working file, as the path of that file
+     *  relative to the working directory, with '/' separators. Throws
+     *  GitletException if the file is outside the working directory.
+     * @param arg a path given on the command line. */
+    private static String trackedName(String arg) {
+        String name = CWD.toPath().toAbsolutePath().normalize()
+                .relativize(localPath(arg).toPath().toAbsolutePath()
+                        .normalize()).toString()
+                .replace(File.separatorChar, '/');
+        if (name.isEmpty() || name.equals("..") || name.startsWith("../")) {
+            throw new GitletException("File does not exist.");
+        }
+        return name;
+    }
+
+    /** Sets the contents of FILE to those of the blob BLOBHASH, unless
+     * INDEX shows it already has them. Does not modify INDEX, so may run
+     * on several files at once.
+     *
+     * @param file The working file to write
+     * @param blobHash The blob to write into it
+     * @param index The stat cache of the working directory
+     * @return True iff FILE was written.
+     */
+    private static boolean writeFile(File file, String blobHash, Index index) {
+        if (index.isClean(file, blobHash)) {
+            return false;
+        }
+        file.getParentFile().mkdirs();
+        Blob.writeTo(blobStore, blobHash, file);
+        return true;
+    }
+
+    /** Returns the staging area: read afresh from disk, or, during a
+     * batch, the one kept in memory since the head last moved. */
+    private static StagingArea stage() {
+        if (!batching) {
+            return new StagingArea(gitletDir);
+        } else if (batchStage == null) {
+            batchStage = new StagingArea(gitletDir);
+        }
+        return batchStage;
+    }
+
+    /** Returns the index: read afresh from disk, or, during a batch, the
+     * one kept in memory. */
+    private static Index index() {
+        if (!batching) {
+            return Index.read(gitletDir);
+        } else if (batchIndex == null) {
+            batchIndex = Index.read(gitletDir);
+        }
+        return batchIndex;
+    }
+
+    /** Returns the commit graph: read afresh from disk, or, during a
+     * batch, the one kept in memory. */
+    private static CommitGraph commitGraph() {
+        if (!batching) {
+            return new CommitGraph(gitletDir, commitStore);
+        } else if (batchGraph == null) {
+            batchGraph = new CommitGraph(gitletDir, commitStore);
+        }
+        return batchGraph;
+    }
+
+    /** Writes STAGE to disk, unless a batch is running, which writes it
+     * at its next checkpoint.
+     * @param stage the staging area. */
+    private static void persist(StagingArea stage) {
+        if (!batching) {
+            stage.persist();
+        }
+    }
+
+    /** Writes INDEX to disk, unless a batch is running, which writes it
+     * at its next checkpoint.
+     * @param index the index. */
+    private static void persist(Index index) {
+        if (!batching) {
+            index.persist();
+        }
+    }
+
+    /** Reads commands from the standard input, one per line, and runs
+     * them in this JVM. Operands containing spaces are written in double
+     * quotes, in which a backslash escapes the next character; blank
+     * lines and lines starting with '#' are skipped. The commands that
+     * only touch the stage, the index, refs and the local history share
+     * one copy of the stage, index and commit graph, which is written out
+     * only by a "checkpoint" line and at the end. Until then, files are
+     * not forced to disk; a checkpoint forces everything written since
+     * the last one, unless core.fsync is off. Any other command writes
+     * out that state before running on its own. An error is reported and
+     * the batch goes on with the next line.
+     *
+     * @param args Not used.
+     */
+    public static void batch(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 1 || batching) {
+            throw new GitletException("Incorrect operands.");
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                System.in, StandardCharsets.UTF_8));
+        batching = true;
+        Utils.setDeferring(true);
+        try {
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                try {
+                    String[] command = splitCommand(line);
+                    if (command.length == 0) {
+                        continue;
+                    } else if (command[0].equals(CHECKPOINT)) {
+                        checkpoint();
+                    } else if (BATCHED.contains(command[0])) {
+                        run(command);
+                    } else {
+                        checkpoint();
+                        batchGraph = null;
+                        run(command);
+                        batchGraph = null;
+                        checkpoint();
+                    }
+                } catch (GitletException excp) {
+                    System.err.println(excp.getMessage());
+                }
+                System.out.flush();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            checkpoint();
+            batchGraph = null;
+            Utils.setDeferring(false);
+            batching = false;
+        }
+    }
+
+    /** Writes the stage and index kept in memory by a batch to disk and
+     * forgets them, then, unless core.fsync is off, forces to disk the
+     * files that the commands since the last checkpoint would have
+     * forced had they run on their own. */
+    private static void checkpoint() {
+        if (batchStage != null) {
+            batchStage.persist();
+            batchStage = null;
+        }
+        if (batchIndex != null) {
+            batchIndex.persist();
+            batchIndex = null;
+        }
+        Utils.setSync(Config.read(gitletDir).getBoolean(Config.FSYNC, true));
+        Utils.syncPending();
+        Utils.setSync(false);
+    }
+
+    /** Returns the words of LINE, a command in a batch, treating text in
+     * double quotes, where a backslash escapes the next character, as
+     * part of one word. Returns no words for a blank line or a comment.
+     * @param line a line of batch input. */
+    private static String[] splitCommand(String line) {
+        ArrayList<String> words = new ArrayList<>();
+        StringBuilder word = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quoted && c == '\\' && i + 1 < line.length()) {
+                i += 1;
+                word.append(line.charAt(i));
+            } else if (c == '"') {
+                quoted = !quoted;
+                word = word == null ? new StringBuilder() : word;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                if (word != null) {
+                    words.add(word.toString());
+                    word = null;
+                }
+            } else if (words.isEmpty() && word == null && c == '#') {
+                break;
+            } else {
+                word = word == null ? new StringBuilder() : word;
+                word.append(c);
+            }
+        }
+        if (quoted) {
+            throw new GitletException("Incorrect operands.");
+        } else if (word != null) {
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /** Returns a worker pool sized by the core.workers setting. */
+    private static WorkerPool workerPool() {
+        return new WorkerPool(
+                Config.read(gitletDir).getInt(Config.WORKERS, 1));
+    }
+
+    /** Returns the commit with id COMMITID.
+     * @param commitID The full id of the commit to read */
+    private static Commit readCommit(String commitID) {
+        return Commit.read(commitStore, treeStore, commitID);
+    }
+
+    /** Returns the contents of the blob with hash BLOBHASH.
+     * @param blobHash The hash of the blob to read */
+    private static String readBlob(String blobHash) {
+        return Blob.readString(blobStore, blobHash);
     }
 
     /** Checks out the specified branch.
@@ -668,176 +1370,260 @@ public class Main {
             throw new GitletException(
                     "No need to checkout the current branch.");
         }
-        Commit repoHead = Utils.readObject(Utils.join(
-                commits, Utils.readContentsAsString(head)), Commit.class);
+        Commit repoHead = readCommit(Utils.readContentsAsString(head));
         File branchHeadPath = Utils.join(branches, branch);
-        String branchHeadHash = Utils.readContentsAsString(branchHeadPath);
-        Commit branchHead = Utils.readObject(Utils.join(
-                commits, branchHeadHash), Commit.class);
-        if (branchHead.getStage() != null) {
-            for (String name : branchHead.getStage().
-                    getTrackedFiles().keySet()) {
-                File toWrite = Utils.join(CWD, name);
-                if (toWrite.exists()) {
-                    if (repoHead.getStage() == null
-                            || !repoHead.getStage().getTrackedFiles().
-                            containsKey(name)) {
-                        throw new GitletException("There is an untracked file"
-                                + " in the way; delete it, "
-                                + "or add and commit it first.");
-                    }
-                } else {
-                    try {
-                        toWrite.createNewFile();
-                    } catch (IOException dummy) {
-                        return;
-                    }
-                }
-                Utils.writeContents(
-                        toWrite, branchHead.getStage().getTrackedFiles().
-                                get(name).getBlobString());
-            }
-        }
-        if (repoHead.getStage() != null) {
-            for (String fName : repoHead.getStage().getTrackedFiles().keySet()) {
-                File toDelete = Utils.join(CWD, fName);
-                if (branchHead.getStage() == null) {
-                    Utils.restrictedDelete(toDelete);
-                } else if (!branchHead.getStage().getTrackedFiles().
-                        keySet().contains(fName)) {
-                    Utils.restrictedDelete(toDelete);
-                }
-            }
-        }
-        new StagingArea(gitletDir).getStagePath().delete();
-        Utils.writeContents(workingBranch, branch);
-        Utils.writeContents(head, Utils.readContentsAsString(
-                Utils.join(branches, branch)));
+        Commit branchHead = readCommit(
+                Utils.readContentsAsString(branchHeadPath));
+        checkoutFiles(repoHead, branchHead);
+        updateHead(branch, Utils.readContentsAsString(branchHeadPath),
+                stage().getStagePath());
     }
 
     /** Finds the split point of the two commits. Used in the merge command
      *
      * @param givenBranch The head hash of the given branch.
      * @param currentBranch The head hash of the current branch.
-     * @return The commit ID of the split Point
+     * @return The commit ID of the split Point, "ancestor" if the given
+     * branch is an ancestor of the current one, or "checkout" if the
+     * current branch is an ancestor of the given one and can be
+     * fast-forwarded to it
      */
     private static String findSplitPoint(String givenBranch, String currentBranch) {
-        HashMap<String, Commit> givenBranchCommits = new HashMap<>();
-        HashMap<String, Commit> currentBranchCommits = new HashMap<>();
-        Commit givenBranchHead = Utils.readObject(Utils.join(commits, givenBranch),
-                Commit.class);
-        Commit currentBranchHead = Utils.readObject(Utils.join(commits, currentBranch),
-                Commit.class);
-        givenBranchCommits.put(givenBranchHead.getHash(), givenBranchHead);
-        currentBranchCommits.put(currentBranchHead.getHash(), currentBranchHead);
-        addAncestors(givenBranchHead, givenBranchCommits);
-        addAncestors(currentBranchHead, currentBranchCommits);
-        Set<String> commonAncestorKeys = new HashSet<String>(givenBranchCommits.keySet());
-        commonAncestorKeys.retainAll(currentBranchCommits.keySet());
-        Set<String> commonAncestorCopy = new HashSet<>(commonAncestorKeys);
-        for (String ancestorHash : commonAncestorCopy) {
-            Commit ancestorCommit = currentBranchCommits.get(ancestorHash);
-            if (commonAncestorKeys.contains(ancestorCommit.getParentUID())) {
-                Commit toRemove = currentBranchCommits.get(ancestorCommit.getParentUID());
-                while (commonAncestorKeys.contains(toRemove.getParentUID())) {
-                    commonAncestorKeys.remove(toRemove.getHash());
-                    toRemove = currentBranchCommits.get(toRemove.getParentUID());
-                }
-                commonAncestorKeys.remove(toRemove.getHash());
-            }
-        }
-        if (commonAncestorKeys.size() > 1) {
-            int minDist = Integer.MAX_VALUE;
-            String splitPoint = "";
-            for (String key : commonAncestorKeys) {
-                Commit headCommit = Utils.readObject(Utils.join(commits, currentBranch), Commit.class);
-                int dist = getDistance(headCommit, key);
-                if (minDist == Integer.MAX_VALUE && dist == minDist) {
-                    splitPoint = key;
-                } else if (Math.min(dist, minDist) == dist) {
-                    minDist = dist;
-                    splitPoint = key;
-                }
-            }
-            commonAncestorKeys = new HashSet<>();
-            commonAncestorKeys.add(splitPoint);
-        }
-        if (commonAncestorKeys.contains(givenBranch)) {
-            System.out.println("Given branch is an ancestor of the current branch.");
-            System.exit(0);
-        } else if (commonAncestorKeys.contains(currentBranch)) {
+        CommitGraph graph = commitGraph();
+        int given = graph.ensure(givenBranch);
+        int current = graph.ensure(currentBranch);
+        List<Integer> bases = graph.mergeBases(current, given);
+        if (bases.isEmpty()) {
+            throw new GitletException(
+                    "No common ancestor in the shallow history.");
+        } else if (bases.contains(given)) {
+            return "ancestor";
+        } else if (bases.contains(current)) {
             return "checkout";
-        } else {
-            List<String> temp = new ArrayList<String>();
-            temp.addAll(commonAncestorKeys);
-            return temp.get(0);
         }
-        return null;
+        return graph.id(graph.nearest(current, bases));
     }
-    private static void addAncestors(Commit head, HashMap<String, Commit> branchAncestors) {
-        if (head instanceof InitialCommit) {
-            branchAncestors.put(head.getHash(), head);
-            return;
-        } else if (head instanceof MergeCommit) {
-            branchAncestors.put(head.getHash(), head);
-            addAncestors(Utils.readObject(Utils.join(commits, head.getParentUID()), Commit.class), branchAncestors);
-            addAncestors(Utils.readObject(Utils.join(commits, ((MergeCommit) head).getSecondaryParentUID()), Commit.class), branchAncestors);
-        } else {
-            branchAncestors.put(head.getHash(), head);
-            addAncestors(Utils.readObject(Utils.join(commits, head.getParentUID()), Commit.class), branchAncestors);
-            return;
+
+    /** Returns the files changed between two commits, mapped to their
+     * new blob hash, or to null if the file was removed.
+     *
+     * @param split The split point.
+     * @param branch The branch head.
+     * @return The modified files.
+     */
+    private static HashMap<String, String> getModifiedFiles(Commit split,
+                                                            Commit branch) {
+        HashMap<String, String> modifiedFiles = new HashMap<>();
+        for (Map.Entry<String, String[]> change : Tree.diff(treeStore,
+                split.getTree(), branch.getTree()).entrySet()) {
+            modifiedFiles.put(change.getKey(), change.getValue()[1]);
         }
+        return modifiedFiles;
     }
 
-    private static int getDistance(Commit head, String key) {
-        if (head.getHash().equals(key)) {
-            return 0;
-        } else if (head instanceof InitialCommit) {
-            return Integer.MAX_VALUE;
-        } else if (head instanceof MergeCommit) {
-           Commit firstParent = Utils.readObject(Utils.join(commits, head.getParentUID()), Commit.class);
-           Commit secondParent = Utils.readObject(Utils.join(commits, ((MergeCommit) head).getSecondaryParentUID()), Commit.class);
-           int childDist = Math.min(getDistance(firstParent, key), getDistance(secondParent, key));
-           if (childDist == Integer.MAX_VALUE) {
-               return Integer.MAX_VALUE;
-           } else {
-               return 1 + childDist;
-           }
+    /** Moves all loose commits and blobs into the pack files.
+     *
+     * @param args Not used
+     */
+    public static void repack(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
         } else {
-            int childDist = getDistance(Utils.readObject(Utils.join(commits, head.getParentUID()), Commit.class), key);
-            if (childDist == Integer.MAX_VALUE) {
-                return Integer.MAX_VALUE;
-            } else {
-                return 1 + childDist;
+            commitStore.repack();
+            treeStore.repack();
+            blobStore.repack();
+        }
+    }
+
+    /** Deletes the commits and blobs that cannot be reached from any
+     *  branch, HEAD or the stage, and that are older than the grace
+     *  period given by ARGS, "--grace SECONDS", if any. Prints the number
+     *  of bytes reclaimed.
+     *
+     * @param args The grace period option, if given
+     */
+    public static void gc(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        }
+        long grace = 0;
+        if (args.length == 3 && args[1].equals("--grace")) {
+            try {
+                grace = Long.parseLong(args[2]);
+            } catch (NumberFormatException excp) {
+                throw new GitletException("Incorrect operands.");
             }
+        } else if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        HashSet<String> keptCommits = new HashSet<>();
+        HashSet<String> keptTrees = new HashSet<>();
+        HashSet<String> keptBlobs = new HashSet<>();
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        markRefs(branches, pending);
+        if (head.isFile()) {
+            pending.add(Utils.readContentsAsString(head));
         }
+        for (String hash : stage().getStagedFiles()
+                .values()) {
+            markBlob(hash, keptBlobs);
+        }
+        while (!pending.isEmpty()) {
+            String id = pending.remove();
+            if (!commitStore.contains(id) || !keptCommits.add(id)) {
+                continue;
+            }
+            Commit commit = readCommit(id);
+            if (commit.getParentUID() != null) {
+                pending.add(commit.getParentUID());
+            }
+            if (commit instanceof MergeCommit) {
+                pending.add(((MergeCommit) commit).getSecondaryParentUID());
+            }
+            HashSet<String> blobIds = new HashSet<>();
+            Tree.collect(treeStore, commit.getTree(),
+                    tree -> !treeStore.contains(tree), keptTrees, blobIds);
+            for (String hash : blobIds) {
+                markBlob(hash, keptBlobs);
+            }
+        }
+        if (keptCommits.size() < commitStore.ids().size()) {
+            CommitGraph.clear(gitletDir);
+            PrefixIndex.clear(gitletDir);
+            MessageIndex.clear(gitletDir);
+            Blame.clear(gitletDir);
+        }
+        long cutoff = System.currentTimeMillis() - grace * 1000;
+        Journal journal = new Journal(gitletDir);
+        long reclaimed = commitStore.prune(keptCommits, cutoff, journal)
+                + treeStore.prune(keptTrees, cutoff, journal)
+                + blobStore.prune(keptBlobs, cutoff, journal);
+        journal.commit();
+        System.out.println("Reclaimed " + reclaimed + " bytes.");
     }
-    private static HashMap<String, Blob> getModifiedFiles(StagingArea splitStage, StagingArea branchStage) {
-        HashMap<String, Blob> modifiedFiles = new HashMap<>();
-        if (splitStage != null) {
-            for (String bName : branchStage.getTrackedFiles().keySet()) {
-                if (splitStage.getTrackedFiles().containsKey(bName)) {
-                    if (!splitStage.getTrackedFiles().get(bName).getHash().equals(branchStage.getTrackedFiles().get(bName).getHash())) {
-                        modifiedFiles.put(bName, branchStage.getTrackedFiles().get(bName));
-                    }
-                } else {
-                    modifiedFiles.put(bName, branchStage.getTrackedFiles().get(bName));
-                }
+
+    /** Adds the commit ids held in the branch files under DIR, and in its
+     *  subdirectories, to PENDING.
+     * @param dir a directory of branch files.
+     * @param pending the commits to visit. */
+    private static void markRefs(File dir, ArrayDeque<String> pending) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                markRefs(file, pending);
+            } else {
+                pending.add(Utils.readContentsAsString(file));
             }
-            for (String bName : splitStage.getTrackedFiles().keySet()) {
-                if (branchStage.getRemovedFiles().contains(bName)) {
-                    modifiedFiles.put(bName, null);
+        }
+    }
+
+    /** Prints how much storing chunks once saves in this repository: the
+     * number and total size of the file versions in all commits, the
+     * number and total size of the distinct pieces they are made of, the
+     * ratio of the two sizes, and the bytes the blob store spends on them
+     * after compression and deltas. A piece is a chunk of a chunked blob,
+     * or a whole blob that is not chunked. Blobs left out of a partial
+     * clone are not counted.
+     *
+     * @param args Not used.
+     */
+    public static void dedupReport(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        HashSet<String> treeIds = new HashSet<>();
+        HashSet<String> versions = new HashSet<>();
+        for (String id : commitStore.ids()) {
+            Tree.collect(treeStore, Commit.read(commitStore, id).getTree(),
+                    treeIds::contains, treeIds, versions);
+        }
+        versions.removeIf(hash -> !blobStore.contains(hash));
+        long logical = 0;
+        HashMap<String, Long> pieces = new HashMap<>();
+        HashSet<String> stored = new HashSet<>();
+        for (String hash : versions) {
+            long size = blobLength(Blob.open(blobStore, hash));
+            logical += size;
+            if (Blob.isChunked(blobStore, hash)) {
+                for (String chunk : Blob.references(blobStore, hash)) {
+                    pieces.computeIfAbsent(chunk, c ->
+                            blobLength(Blob.open(blobStore, c)));
                 }
+            } else {
+                pieces.put(hash, size);
             }
-        } else {
-            for (String tFile : branchStage.getTrackedFiles().keySet()) {
-                modifiedFiles.put(tFile, branchStage.getTrackedFiles().get(tFile));
+            markBlob(hash, stored);
+        }
+        long unique = 0;
+        for (long size : pieces.values()) {
+            unique += size;
+        }
+        long onDisk = 0;
+        for (String hash : stored) {
+            onDisk += blobLength(blobStore.open(hash));
+        }
+        System.out.printf("File versions: %d, %d bytes%n", versions.size(),
+                logical);
+        System.out.printf("Unique pieces: %d, %d bytes%n", pieces.size(),
+                unique);
+        System.out.printf("Dedup ratio: %.2f%n",
+                unique == 0 ? 1.0 : (double) logical / unique);
+        System.out.printf("Stored: %d bytes%n", onDisk);
+    }
+
+    /** Returns the number of bytes in IN, which this closes.
+     * @param in a stream of blob contents. */
+    private static long blobLength(InputStream in) {
+        try (InputStream blob = in) {
+            return blob.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Adds the blob HASH, and the delta bases and chunks its stored form
+     *  refers to, to KEPT.
+     * @param hash a blob hash.
+     * @param kept the blobs to keep. */
+    private static void markBlob(String hash, HashSet<String> kept) {
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        pending.push(hash);
+        while (!pending.isEmpty()) {
+            hash = pending.pop();
+            if (blobStore.contains(hash) && kept.add(hash)) {
+                pending.addAll(Blob.references(blobStore, hash));
             }
-            for (String rFile : branchStage.getRemovedFiles()) {
-                modifiedFiles.put(rFile, null);
+        }
+    }
+
+    /** Prints the setting named by ARGS[1], or sets it to ARGS[2].
+     *
+     * @param args The setting name and, optionally, its new value
+     */
+    public static void config(String[] args) {
+        if (!gitletDir.exists()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 2 && args.length != 3) {
+            throw new GitletException("Incorrect operands.");
+        } else if (args.length == 2) {
+            String value = Config.read(gitletDir).get(args[1], null);
+            if (value != null) {
+                System.out.println(value);
             }
+        } else {
+            Config.read(gitletDir).set(args[1], args[2]);
         }
-        return modifiedFiles;
     }
 
     public static void addRemote(String[] args) {
@@ -851,13 +1637,8 @@ public class Main {
             if (remote.exists()) {
                 throw new GitletException("A remote with that name already exists.");
             } else {
-                try {
-                    remote.createNewFile();
-                } catch (IOException dummy) {
-                    return;
-                }
                 String remotePath = args[2].replace('/', File.separatorChar);
-                Utils.writeContents(remote, remotePath);
+                Utils.writeAtomically(remote, remotePath);
             }
         }
     }
@@ -875,46 +1656,215 @@ public class Main {
         }
     }
 
+    /** Copies the current branch's history into the branch ARGS[2] of
+     *  the remote ARGS[1] and moves that branch to the current head,
+     *  provided the branch's head is already in the current history.
+     *
+     * @param args The remote name and the remote branch name
+     */
     public static void push(String[] args) {
-        if (!gitletDir.exists()) {
-            throw new GitletException("Not in an initialized Gitlet directory.");
-        } else {
-            File remote = Utils.join(remotesDir, args[1]);
-            if (!remote.exists()) {
-                throw new GitletException("A remote with that name does not exist.");
-            } else {
-                remote.delete();
+        File remoteDir = remoteDirectory(remoteArgs(args));
+        String localHead = Utils.readContentsAsString(head);
+        File remoteBranch = Utils.join(remoteDir, "branches", args[2]);
+        if (remoteBranch.isFile()) {
+            String remoteHead = Utils.readContentsAsString(remoteBranch);
+            CommitGraph graph = commitGraph();
+            if (!commitStore.contains(remoteHead)
+                    || !graph.isAncestor(graph.ensure(remoteHead),
+                            graph.ensure(localHead))) {
+                throw new GitletException(
+                        "Please pull down remote changes before pushing.");
             }
         }
+        Remote.transfer(gitletDir, remoteDir, localHead);
+        Journal journal = new Journal(remoteDir);
+        journal.write(remoteBranch, localHead);
+        File remoteCurrent = Utils.join(remoteDir, "current-branch");
+        if (remoteCurrent.isFile()
+                && Utils.readContentsAsString(remoteCurrent).equals(args[2])) {
+            journal.write(Utils.join(remoteDir, "HEAD"), localHead);
+        }
+        journal.commit();
     }
 
+    /** Copies the history of the branch ARGS[2] of the remote ARGS[1]
+     *  into this repository, as the branch ARGS[1]/ARGS[2].
+     *
+     * @param args The remote name and the remote branch name
+     */
     public static void fetch(String[] args) {
-        if (!gitletDir.exists()) {
-            throw new GitletException("Not in an initialized Gitlet directory.");
-        } else {
-            File remote = Utils.join(remotesDir, args[1]);
-            if (!remote.exists()) {
-                throw new GitletException("A remote with that name does not exist.");
+        File remoteDir = remoteDirectory(remoteArgs(args));
+        File remoteBranch = Utils.join(remoteDir, "branches", args[2]);
+        if (!remoteBranch.isFile()) {
+            throw new GitletException(
+                    "That remote does not have that branch.");
+        }
+        String commitID = Utils.readContentsAsString(remoteBranch);
+        Remote.transfer(remoteDir, gitletDir, commitID);
+        File tracking = Utils.join(branches, args[1], args[2]);
+        tracking.getParentFile().mkdirs();
+        Journal journal = new Journal(gitletDir);
+        journal.write(tracking, commitID);
+        journal.commit();
+    }
+
+    /** Fetches the branch ARGS[2] of the remote ARGS[1] and merges it
+     *  into the current branch.
+     *
+     * @param args The remote name and the remote branch name
+     */
+    public static void pull(String[] args) {
+        fetch(args);
+        merge(new String[] {"merge", args[1] + "/" + args[2]});
+    }
+
+    /** Makes a copy of the repository whose .gitlet directory is at the
+     *  path ARGS ends with in the current directory, with that repository
+     *  as the remote "origin", and checks out its current branch. With
+     *  "--depth N", only the last N commits are copied, and the copy is
+     *  shallow. With "--lazy", no blobs are copied until they are read.
+     *
+     * @param args The options and the path of the repository to copy
+     */
+    public static void cloneRemote(String[] args) {
+        if (gitletDir.exists()) {
+            throw new GitletException(
+                    "A Gitlet version-control system already "
+                            + "exists in the current directory.");
+        }
+        int depth = 0;
+        boolean lazy = false;
+        int i;
+        for (i = 1; i < args.length - 1; i += 1) {
+            if (args[i].equals("--lazy")) {
+                lazy = true;
+            } else if (args[i].equals("--depth") && i + 2 < args.length) {
+                i += 1;
+                try {
+                    depth = Integer.parseInt(args[i]);
+                } catch (NumberFormatException excp) {
+                    throw new GitletException("Incorrect operands.");
+                }
+                if (depth <= 0) {
+                    throw new GitletException("Incorrect operands.");
+                }
             } else {
-                remote.delete();
+                throw new GitletException("Incorrect operands.");
             }
         }
+        if (i != args.length - 1) {
+            throw new GitletException("Incorrect operands.");
+        }
+        File source = localPath(args[i]);
+        if (!Utils.join(source, "commits").isDirectory()) {
+            throw new GitletException("Remote directory not found.");
+        }
+        String branch = Utils.readContentsAsString(
+                Utils.join(source, "current-branch"));
+        String commitID = Utils.readContentsAsString(
+                Utils.join(source, "branches", branch));
+        gitletDir.mkdir();
+        commits.mkdir();
+        blobs.mkdir();
+        trees.mkdir();
+        branches.mkdir();
+        remotesDir.mkdir();
+        Utils.writeAtomically(Utils.join(remotesDir, ORIGIN),
+                args[i].replace('/', File.separatorChar));
+        if (lazy) {
+            Config.read(gitletDir).set(Config.PROMISOR, ORIGIN);
+            blobStore.setPromisor(new ObjectStore(Utils.join(source,
+                    "blobs")));
+        }
+        Remote.transfer(source, gitletDir, commitID, depth, !lazy);
+        Utils.join(branches, ORIGIN).mkdir();
+        Commit target = readCommit(commitID);
+        checkoutFiles(new InitialCommit("initial commit", 0), target);
+        Journal journal = new Journal(gitletDir);
+        journal.write(Utils.join(branches, ORIGIN, branch), commitID);
+        journal.commit();
+        updateHead(branch, commitID, Utils.join(gitletDir, "stage"));
     }
 
-    public static void pull(String[] args) {
+    /** Returns the remote named in ARGS, the arguments of a command
+     *  taking a remote and a branch name, after checking that there are
+     *  the right number of them and that this is a repository.
+     *
+     * @param args The remote name and the remote branch name
+     * @return The remote name.
+     */
+    private static String remoteArgs(String[] args) {
         if (!gitletDir.exists()) {
-            throw new GitletException("Not in an initialized Gitlet directory.");
-        } else {
-            File remote = Utils.join(remotesDir, args[1]);
-            if (!remote.exists()) {
-                throw new GitletException("A remote with that name does not exist.");
-            }
-            String remoteDir = Utils.readContentsAsString(remote);
-            if (!new File(remoteDir).exists()) {
-                throw new GitletException("Remote directory not found.");
-            }
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        } else if (args.length != 3) {
+            throw new GitletException("Incorrect operands.");
+        }
+        return args[1];
+    }
+
+    /** Returns the .gitlet directory of the remote named NAME.
+     *
+     * @param name The name of a remote
+     */
+    private static File remoteDirectory(String name) {
+        File remote = Utils.join(remotesDir, name);
+        if (!remote.isFile()) {
+            throw new GitletException(
+                    "A remote with that name does not exist.");
         }
+        File remoteDir = localPath(Utils.readContentsAsString(remote));
+        if (!Utils.join(remoteDir, "commits").isDirectory()) {
+            throw new GitletException("Remote directory not found.");
+        }
+        return remoteDir;
     }
+
+    /** Returns the file named by PATH, relative to the working directory
+     *  unless absolute.
+     *
+     * @param path A path given by the user
+     */
+    private static File localPath(String path) {
+        File result = new File(path);
+        return result.isAbsolute() ? result : Utils.join(CWD, path);
+    }
+
     /** Commit ID Length. */
     static final int ID_LENGTH = 40;
+
+    /** Name of the remote a clone is made from. */
+    static final String ORIGIN = "origin";
+
+    /** State of a tracked file whose contents differ from its blob. */
+    static final String MODIFIED = "modified";
+
+    /** State of a tracked file missing from the working directory. */
+    static final String DELETED = "deleted";
+
+    /** State of a working file that is not tracked. */
+    static final String UNTRACKED = "untracked";
+
+    /** Number of unchanged lines shown around each change by diff. */
+    static final int DIFF_CONTEXT = 3;
+
+    /** Number of digits of the commit ids printed by blame. */
+    private static final int BLAME_ID_LENGTH = 8;
+
+    /** Format of the commit dates printed by blame. */
+    private static final DateTimeFormatter BLAME_DATE = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    /** Batch line that writes out the batch's state. */
+    private static final String CHECKPOINT = "checkpoint";
+
+    /** Commands that a batch runs against the state it keeps in
+     * memory. */
+    private static final Set<String> BATCHED = Set.of("add", "rm", "commit",
+            "log", "global-log", "find", "status", "checkout", "branch",
+            "rm-branch", "reset", "merge", "diff", "blame");
+
+    /** Default longest chain of delta blobs. */
+    static final int DELTA_DEPTH = 10;
 }
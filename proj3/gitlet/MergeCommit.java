@@ -1,5 +1,7 @@
 package gitlet;
 
+import java.io.PrintWriter;
+
 public class MergeCommit extends Commit {
 
 
@@ -12,15 +14,15 @@ public class MergeCommit extends Commit {
     }
 
     @Override
-    /** Prints out the log of this commit.
+    /** Writes the log entry of this commit to OUT.
      * @return The parent ID of this commit, to be used for looping. */
-    String log() {
-        System.out.println("===");
-        System.out.println("commit " + getHash());
-        System.out.println("Merge: " + getParentUID().substring(0, 7) + " " + mergeParentUID.substring(0, 7));
-        System.out.println("Date: " + timeToString());
-        System.out.println(getCommitMessage());
-        System.out.println();
+    String log(PrintWriter out) {
+        out.println("===");
+        out.println("commit " + getHash());
+        out.println("Merge: " + getParentUID().substring(0, 7) + " " + mergeParentUID.substring(0, 7));
+        out.println("Date: " + timeToString());
+        out.println(getCommitMessage());
+        out.println();
         return getParentUID();
     }
 
@@ -0,0 +1,191 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/** An inverted index from commit messages, and from the words in them,
+ *  to the ids of the commits carrying them, so that find never has to
+ *  read every commit.
+ *
+ *  Postings live in .gitlet/messages, one file per key, named by the
+ *  SHA-1 of the key. The key of a whole message is "message:" followed
+ *  by the message; the key of a word is "token:" followed by the word in
+ *  lower case. A posting file is a list of commit ids, one per line, to
+ *  which each new commit appends. A line torn by a crash is ignored, and
+ *  cut off before the next id is appended. A repository without the
+ *  directory has it built from the commit store on first use.
+ *  @author Aniruddh Khanwale
+ */
+class MessageIndex {
+
+    /** Loads the message index of the repository in GITLETDIR, building it
+     *  from the commits in COMMITSTORE if it does not exist yet.
+     * @param gitletDir the .gitlet directory.
+     * @param commitStore the store of commit objects. */
+    MessageIndex(File gitletDir, ObjectStore commitStore) {
+        _dir = Utils.join(gitletDir, "messages");
+        if (!_dir.isDirectory()) {
+            File tmp = Utils.join(gitletDir, "messages.tmp");
+            tmp.mkdir();
+            for (String name : Utils.plainFilenamesIn(tmp)) {
+                Utils.join(tmp, name).delete();
+            }
+            for (String id : commitStore.ids()) {
+                add(tmp, Commit.read(commitStore, id));
+            }
+            for (String name : Utils.plainFilenamesIn(tmp)) {
+                Utils.sync(Utils.join(tmp, name));
+            }
+            if (!tmp.renameTo(_dir)) {
+                throw new IllegalArgumentException("cannot create " + _dir);
+            }
+            for (String name : Utils.plainFilenamesIn(_dir)) {
+                Utils.moved(Utils.join(tmp, name), Utils.join(_dir, name));
+            }
+        }
+    }
+
+    /** Deletes the message index of the repository in GITLETDIR, so that
+     *  it is rebuilt from the commit store on next use.
+     * @param gitletDir the .gitlet directory. */
+    static void clear(File gitletDir) {
+        File dir = Utils.join(gitletDir, "messages");
+        List<String> names = Utils.plainFilenamesIn(dir);
+        if (names != null) {
+            for (String name : names) {
+                Utils.join(dir, name).delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /** Records the message and words of the new commit COMMIT, and forces
+     *  the postings changed to disk.
+     * @param commit a commit that has just been written. */
+    void add(Commit commit) {
+        for (File file : add(_dir, commit)) {
+            Utils.sync(file);
+        }
+    }
+
+    /** Returns the ids of the commits whose message is exactly MESSAGE,
+     *  in sorted order.
+     * @param message a commit message. */
+    TreeSet<String> withMessage(String message) {
+        return postings(_dir, MESSAGE + message);
+    }
+
+    /** Returns the ids of the commits whose messages contain every word
+     *  of TEXT, ignoring case, in sorted order.
+     * @param text one or more words. */
+    TreeSet<String> containing(String text) {
+        TreeSet<String> result = null;
+        for (String token : tokens(text)) {
+            TreeSet<String> ids = postings(_dir, TOKEN + token);
+            if (result == null) {
+                result = ids;
+            } else {
+                result.retainAll(ids);
+            }
+        }
+        return result == null ? new TreeSet<>() : result;
+    }
+
+    /** Appends the id of COMMIT to the postings in DIR of its message and
+     *  of each distinct word in it, and returns the posting files.
+     * @param dir a postings directory.
+     * @param commit the commit to record. */
+    private static List<File> add(File dir, Commit commit) {
+        String message = commit.getCommitMessage();
+        byte[] line = (commit.getHash() + "\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        ArrayList<File> result = new ArrayList<>();
+        result.add(posting(dir, MESSAGE + message));
+        for (String token : new TreeSet<>(tokens(message))) {
+            result.add(posting(dir, TOKEN + token));
+        }
+        for (File file : result) {
+            append(file, line);
+        }
+        return result;
+    }
+
+    /** Returns the ids listed in the posting of KEY in DIR.
+     * @param dir a postings directory.
+     * @param key a posting key. */
+    private static TreeSet<String> postings(File dir, String key) {
+        TreeSet<String> result = new TreeSet<>();
+        File file = posting(dir, key);
+        if (file.isFile()) {
+            for (String id : Utils.readContentsAsString(file).split("\n")) {
+                if (id.length() == Utils.UID_LENGTH) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the posting file of KEY in DIR.
+     * @param dir a postings directory.
+     * @param key a posting key. */
+    private static File posting(File dir, String key) {
+        return Utils.join(dir, Utils.sha1(key));
+    }
+
+    /** Appends LINE, which ends in a newline, to FILE, creating it if
+     *  needed, after cutting off any torn line at its end. Since every
+     *  line of FILE has the length of LINE, the last newline of a torn
+     *  one is among the final LINE.length bytes.
+     * @param file a posting file.
+     * @param line the bytes to append. */
+    private static void append(File file, byte[] line) {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            long end = out.length();
+            if (end > 0) {
+                byte[] last = new byte[(int) Math.min(end, line.length)];
+                out.seek(end - last.length);
+                out.readFully(last);
+                int keep = last.length;
+                while (keep > 0 && last[keep - 1] != '\n') {
+                    keep -= 1;
+                }
+                end -= last.length - keep;
+                out.setLength(end);
+            }
+            out.seek(end);
+            out.write(line);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the words of TEXT in lower case: maximal runs of letters
+     *  and digits.
+     * @param text a commit message or search text. */
+    static ArrayList<String> tokens(String text) {
+        ArrayList<String> result = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT)
+                .split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    /** Key prefix of whole-message postings. */
+    private static final String MESSAGE = "message:";
+
+    /** Key prefix of word postings. */
+    private static final String TOKEN = "token:";
+
+    /** The postings directory. */
+    private final File _dir;
+}
@@ -0,0 +1,63 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/** Tests of commit message tokenizing and postings.
+ *  @author Aniruddh Khanwale
+ */
+public class MessageIndexTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    @Test
+    public void testTokens() {
+        assertEquals(Arrays.asList("fix", "parser", "bug", "42"),
+                MessageIndex.tokens("Fix: Parser-bug #42."));
+        assertEquals(Arrays.asList("merged", "dev", "into", "master"),
+                MessageIndex.tokens("Merged dev into master."));
+        assertTrue(MessageIndex.tokens(" -- ").isEmpty());
+    }
+
+    /** Returns a commit with MESSAGE and a parent named by SEED. */
+    private static Commit commit(String message, String seed) {
+        byte[] bytes = new Codec.Encoder(Codec.COMMIT).signed(0)
+                .string(message).hash(null).hash(Utils.sha1(seed))
+                .string("master").toByteArray();
+        return Commit.decode(bytes, Utils.sha1(bytes));
+    }
+
+    @Test
+    public void testTornPostingIsCutOff() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-find");
+        File commits = Utils.join(gitletDir, "commits");
+        commits.mkdir();
+        ObjectStore store = new ObjectStore(commits);
+        Commit first = commit("Fix bug.", "first");
+        Commit second = commit("Fix bug.", "second");
+        new MessageIndex(gitletDir, store).add(first);
+        File posting = Utils.join(gitletDir, "messages",
+                Utils.sha1("message:Fix bug."));
+        Utils.writeContents(posting, Utils.readContents(posting),
+                second.getHash().substring(0, 11));
+        MessageIndex index = new MessageIndex(gitletDir, store);
+        assertEquals(new TreeSet<>(List.of(first.getHash())),
+                index.withMessage("Fix bug."));
+        index.add(second);
+        assertEquals(2 * (Utils.UID_LENGTH + 1), posting.length());
+        assertEquals(new TreeSet<>(List.of(first.getHash(),
+                second.getHash())), index.containing("BUG"));
+    }
+}
@@ -0,0 +1,103 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A least-recently-used cache of stored object bytes, bounded by their
+ *  total size. Objects are named by their hash and never change, so an
+ *  entry can never be stale; the only question is whether it is worth
+ *  keeping. Counts hits and misses so the effect on a command can be
+ *  seen. Safe to use from several threads.
+ *  @author Aniruddh Khanwale
+ */
+class ObjectCache {
+
+    /** A cache holding at most CAPACITY bytes of objects.
+     * @param capacity the size bound in bytes. */
+    ObjectCache(long capacity) {
+        _capacity = capacity;
+    }
+
+    /** Returns the cached bytes of the object KEY, or null, counting a
+     *  hit or a miss.
+     * @param key the object's store directory and id. */
+    synchronized byte[] get(String key) {
+        byte[] result = _entries.get(key);
+        if (result == null) {
+            _misses += 1;
+        } else {
+            _hits += 1;
+        }
+        return result;
+    }
+
+    /** Caches CONTENTS as the bytes of object KEY, evicting the least
+     *  recently used objects as needed. Objects larger than the whole
+     *  cache are not kept.
+     * @param key the object's store directory and id.
+     * @param contents the object's bytes, which must not be modified. */
+    synchronized void put(String key, byte[] contents) {
+        if (contents.length > _capacity || _entries.containsKey(key)) {
+            return;
+        }
+        _entries.put(key, contents);
+        _size += contents.length;
+        evict();
+    }
+
+    /** Changes the size bound to CAPACITY bytes, evicting as needed.
+     * @param capacity the new size bound in bytes. */
+    synchronized void setCapacity(long capacity) {
+        _capacity = capacity;
+        evict();
+    }
+
+    /** Drops least recently used objects until the cache fits its size
+     *  bound. */
+    private void evict() {
+        Iterator<Map.Entry<String, byte[]>> oldest =
+                _entries.entrySet().iterator();
+        while (_size > _capacity) {
+            _size -= oldest.next().getValue().length;
+            oldest.remove();
+        }
+    }
+
+    /** Returns the number of lookups that found their object. */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Returns the number of lookups that did not. */
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /** Returns the total size in bytes of the cached objects. */
+    synchronized long size() {
+        return _size;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("object cache: hits=%d misses=%d bytes=%d",
+                _hits, _misses, _size);
+    }
+
+    /** Cached objects, least recently used first. */
+    private final LinkedHashMap<String, byte[]> _entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The size bound in bytes. */
+    private long _capacity;
+
+    /** Total size of the cached objects. */
+    private long _size;
+
+    /** Number of lookups that found their object. */
+    private long _hits;
+
+    /** Number of lookups that did not. */
+    private long _misses;
+}
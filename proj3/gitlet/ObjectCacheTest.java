@@ -0,0 +1,31 @@
+package gitlet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the in-memory object cache.
+ *  @author Aniruddh Khanwale
+ */
+public class ObjectCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ObjectCache cache = new ObjectCache(10);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[4]);
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(8, cache.size());
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+        cache.put("huge", new byte[11]);
+        assertNull(cache.get("huge"));
+        cache.setCapacity(4);
+        assertEquals(4, cache.size());
+    }
+
+}
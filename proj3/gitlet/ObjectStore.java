@@ -0,0 +1,702 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/** A content-addressed store of objects named by their SHA-1 hash.
+ *  New objects are written loose, one file per object, into the store
+ *  directory. Repacking appends loose objects to a single pack file,
+ *  DIR.pack, and records their offsets in a sorted index, DIR.idx, which
+ *  is searched through a memory map. Readers never need to know which of
+ *  the two an object lives in.
+ *
+ *  A pack is a 4-byte magic number followed by records, each holding the
+ *  20-byte object id, a 4-byte length and the object's bytes. The index
+ *  is a 4-byte magic number and an entry count, followed by that many
+ *  28-byte entries (id, 8-byte pack offset) sorted by id. Objects are
+ *  sent between repositories as a pack stream: the pack magic number, an
+ *  object count, and that many pack records.
+ *  @author Aniruddh Khanwale
+ */
+class ObjectStore {
+
+    /** A store whose loose objects live in DIR.
+     * @param dir the directory holding loose objects. */
+    ObjectStore(File dir) {
+        _dir = dir;
+        _pack = new File(dir.getPath() + ".pack");
+        _index = new File(dir.getPath() + ".idx");
+        _cachePrefix = dir.getAbsolutePath() + File.separator;
+    }
+
+    /** Returns the directory of loose objects. */
+    File getDirectory() {
+        return _dir;
+    }
+
+    /** Returns true iff an object named ID is stored, loose or packed.
+     * @param id the object id. */
+    boolean contains(String id) {
+        return isHash(id)
+                && (Utils.join(_dir, id).isFile() || packOffset(id) >= 0);
+    }
+
+    /** Returns the bytes of the object named ID, which the caller must
+     *  not modify. Throws IllegalArgumentException if there is no such
+     *  object.
+     * @param id the object id. */
+    byte[] read(String id) {
+        byte[] cached = CACHE.get(cacheKey(id));
+        if (cached != null) {
+            return cached;
+        }
+        fault(id);
+        File loose = Utils.join(_dir, id);
+        if (loose.isFile()) {
+            return cache(id, Utils.readContents(loose));
+        }
+        try (FileChannel pack = FileChannel.open(_pack.toPath())) {
+            long offset = packedOffset(id);
+            return cache(id, readPacked(pack, offset, packedLength(pack,
+                    offset)));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a stream of the bytes of the object named ID, which the
+     *  caller must close. Objects too large to cache are streamed from
+     *  disk, never held in memory whole. Throws IllegalArgumentException
+     *  if there is no such object.
+     * @param id the object id. */
+    InputStream open(String id) {
+        byte[] cached = CACHE.get(cacheKey(id));
+        if (cached != null) {
+            return new ByteArrayInputStream(cached);
+        }
+        fault(id);
+        try {
+            File loose = Utils.join(_dir, id);
+            if (loose.isFile()) {
+                if (loose.length() <= MAX_CACHED) {
+                    return new ByteArrayInputStream(
+                            cache(id, Utils.readContents(loose)));
+                }
+                return new BufferedInputStream(new FileInputStream(loose));
+            }
+            long offset = packedOffset(id);
+            FileChannel pack = FileChannel.open(_pack.toPath());
+            boolean streamed = false;
+            try {
+                int length = packedLength(pack, offset);
+                if (length <= MAX_CACHED) {
+                    return new ByteArrayInputStream(
+                            cache(id, readPacked(pack, offset, length)));
+                }
+                streamed = true;
+                return new BufferedInputStream(new PackedInputStream(pack,
+                        offset + ID_BYTES + 4, length));
+            } finally {
+                if (!streamed) {
+                    pack.close();
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Stores CONTENTS as a loose object named ID, unless it is already
+     *  present.
+     * @param id the object id.
+     * @param contents the object's bytes. */
+    void write(String id, byte[] contents) {
+        if (!contains(id)) {
+            File tmp = tempFile();
+            Utils.writeContents(tmp, contents);
+            moveIn(id, tmp);
+        }
+    }
+
+    /** Returns a new, empty temporary file in the store directory, from
+     *  which an object can later be moved in with moveIn. */
+    File tempFile() {
+        try {
+            return File.createTempFile("tmp-", "", _dir);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Makes the contents of TMP, a file from tempFile, the object named
+     *  ID, or deletes TMP if ID is already stored. TMP is forced to disk
+     *  before it is renamed, so an object file is never seen partly
+     *  written; the directory entry is forced by whoever then refers to the
+     *  object (see Journal).
+     * @param id the object id.
+     * @param tmp the file holding the object's bytes. */
+    void moveIn(String id, File tmp) {
+        if (contains(id)) {
+            tmp.delete();
+            return;
+        }
+        Utils.sync(tmp);
+        File file = Utils.join(_dir, id);
+        if (tmp.renameTo(file)) {
+            Utils.moved(tmp, file);
+        } else {
+            tmp.delete();
+        }
+    }
+
+    /** Makes PROMISOR the store from which objects missing from this one
+     *  are copied when first read, as in a partial clone.
+     * @param promisor another repository's store, or null. */
+    void setPromisor(ObjectStore promisor) {
+        _promisor = promisor;
+    }
+
+    /** Copies the object ID from the promisor store as a loose object, if
+     *  it is missing here and the promisor has it.
+     * @param id the object id. */
+    private void fault(String id) {
+        if (_promisor == null || contains(id) || !_promisor.contains(id)) {
+            return;
+        }
+        File tmp = tempFile();
+        try (InputStream in = _promisor.open(id);
+             OutputStream out = new FileOutputStream(tmp)) {
+            in.transferTo(out);
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        moveIn(id, tmp);
+    }
+
+    /** Returns the ids of all stored objects in sorted order. */
+    List<String> ids() {
+        TreeSet<String> result = new TreeSet<>(looseIds());
+        MappedByteBuffer index = index();
+        if (index != null) {
+            byte[] id = new byte[ID_BYTES];
+            for (int i = 0; i < count(index); i += 1) {
+                index.get(entryPosition(i), id);
+                result.add(Utils.toHex(id));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Moves all loose objects into the pack, creating it if needed.
+     *  The pack is forced to disk before the new index replaces the old
+     *  one, and loose files are deleted only after that.
+     *  @return the number of objects packed. */
+    int repack() {
+        List<String> loose = looseIds();
+        if (loose.isEmpty()) {
+            return 0;
+        }
+        ArrayList<byte[]> entries = new ArrayList<>();
+        ArrayList<String> packed = new ArrayList<>();
+        MappedByteBuffer oldIndex = index();
+        if (oldIndex != null) {
+            for (int i = 0; i < count(oldIndex); i += 1) {
+                byte[] entry = new byte[ENTRY_BYTES];
+                oldIndex.get(entryPosition(i), entry);
+                entries.add(entry);
+            }
+        }
+        try (FileChannel pack = FileChannel.open(_pack.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = pack.size();
+            if (offset == 0) {
+                pack.write(ByteBuffer.allocate(4).putInt(0, PACK_MAGIC));
+                offset = 4;
+            }
+            for (String id : loose) {
+                File object = Utils.join(_dir, id);
+                if (packOffset(id) >= 0 || object.length() > MAX_PACKED) {
+                    continue;
+                }
+                ByteBuffer header = ByteBuffer.allocate(ID_BYTES + 4);
+                header.put(Utils.fromHex(id)).putInt((int) object.length())
+                        .flip();
+                pack.write(header, offset);
+                try (FileChannel in = FileChannel.open(object.toPath())) {
+                    long start = offset + header.capacity();
+                    for (long done = 0; done < in.size(); ) {
+                        done += pack.transferFrom(in, start + done,
+                                in.size() - done);
+                    }
+                }
+                entries.add(ByteBuffer.allocate(ENTRY_BYTES)
+                        .put(Utils.fromHex(id)).putLong(offset).array());
+                offset += header.capacity() + object.length();
+                packed.add(id);
+            }
+            pack.force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        entries.sort((e0, e1) -> Arrays.compareUnsigned(e0, 0, ID_BYTES,
+                e1, 0, ID_BYTES));
+        writeIndex(entries);
+        for (String id : loose) {
+            if (packOffset(id) >= 0) {
+                Utils.join(_dir, id).delete();
+            }
+        }
+        return packed.size();
+    }
+
+    /** Deletes the stored objects not in KEEP, and stray temporary files,
+     *  last modified before CUTOFF. Loose objects are deleted at once.
+     *  If the pack is older than CUTOFF and holds objects to delete, the
+     *  kept records are streamed into a new pack with a new index, and
+     *  JOURNAL is told to move them over the old ones; the caller must
+     *  commit JOURNAL before reading from this store again.
+     * @param keep the ids of the objects to keep.
+     * @param cutoff a time in milliseconds.
+     * @param journal the journal that will replace the pack.
+     * @return the number of bytes reclaimed. */
+    long prune(Set<String> keep, long cutoff, Journal journal) {
+        long reclaimed = 0;
+        try (DirectoryStream<Path> names =
+                     Files.newDirectoryStream(_dir.toPath())) {
+            for (Path path : names) {
+                File file = path.toFile();
+                String name = file.getName();
+                if ((isHash(name) && !keep.contains(name)
+                        || name.startsWith("tmp-"))
+                        && file.isFile() && file.lastModified() < cutoff) {
+                    long size = file.length();
+                    if (file.delete()) {
+                        reclaimed += size;
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        MappedByteBuffer index = index();
+        if (index == null || _pack.lastModified() >= cutoff) {
+            return reclaimed;
+        }
+        ArrayList<long[]> kept = new ArrayList<>();
+        byte[] id = new byte[ID_BYTES];
+        for (int i = 0; i < count(index); i += 1) {
+            index.get(entryPosition(i), id);
+            if (keep.contains(Utils.toHex(id))) {
+                kept.add(new long[] {i, index.getLong(entryPosition(i)
+                        + ID_BYTES)});
+            }
+        }
+        if (kept.size() == count(index)) {
+            return reclaimed;
+        }
+        kept.sort((e0, e1) -> Long.compare(e0[1], e1[1]));
+        File newPack = new File(_pack.getPath() + ".new");
+        ArrayList<byte[]> entries = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(_pack.toPath());
+             FileChannel out = FileChannel.open(newPack.toPath(),
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.allocate(4).putInt(0, PACK_MAGIC));
+            long offset = 4;
+            for (long[] entry : kept) {
+                long length = ID_BYTES + 4 + packedLength(in, entry[1]);
+                for (long done = 0; done < length; ) {
+                    done += out.transferFrom(in.position(entry[1] + done),
+                            offset + done, length - done);
+                }
+                index.get(entryPosition((int) entry[0]), id);
+                entries.add(ByteBuffer.allocate(ENTRY_BYTES).put(id)
+                        .putLong(offset).array());
+                offset += length;
+            }
+            reclaimed += in.size() - offset;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        entries.sort((e0, e1) -> Arrays.compareUnsigned(e0, 0, ID_BYTES,
+                e1, 0, ID_BYTES));
+        File newIndex = new File(_index.getPath() + ".new");
+        Utils.writeContents(newIndex, indexBytes(entries));
+        journal.rename(newPack, _pack);
+        journal.rename(newIndex, _index);
+        _indexMap = null;
+        return reclaimed;
+    }
+
+    /** Writes the objects named IDS to OUT as a pack stream: the pack
+     *  magic number and the number of objects, followed by one pack record
+     *  per object. Records are copied straight from the loose files or
+     *  the pack, never decoded.
+     * @param ids the ids of stored objects.
+     * @param out the output. */
+    void writePack(Collection<String> ids, OutputStream out) {
+        WritableByteChannel channel = Channels.newChannel(out);
+        try {
+            out.write(ByteBuffer.allocate(8).putInt(PACK_MAGIC)
+                    .putInt(ids.size()).array());
+            for (String id : ids) {
+                File loose = Utils.join(_dir, id);
+                long offset = loose.isFile() ? -1 : packedOffset(id);
+                try (FileChannel in = FileChannel.open(offset < 0
+                        ? loose.toPath() : _pack.toPath())) {
+                    long start = offset < 0 ? 0 : offset + ID_BYTES + 4;
+                    long length = offset < 0
+                            ? in.size() : packedLength(in, offset);
+                    out.write(ByteBuffer.allocate(ID_BYTES + 4)
+                            .put(Utils.fromHex(id)).putInt((int) length)
+                            .array());
+                    for (long done = 0; done < length; ) {
+                        done += in.transferTo(start + done, length - done,
+                                channel);
+                    }
+                }
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Appends the objects of the pack stream read from IN, as written by
+     *  writePack, to the pack, skipping those already stored, and then
+     *  rewrites the index. The stream is read to the end of its records
+     *  and no further.
+     * @param in the input.
+     * @return the number of objects added. */
+    int readPack(InputStream in) {
+        ArrayList<byte[]> entries = new ArrayList<>();
+        MappedByteBuffer oldIndex = index();
+        if (oldIndex != null) {
+            for (int i = 0; i < count(oldIndex); i += 1) {
+                byte[] entry = new byte[ENTRY_BYTES];
+                oldIndex.get(entryPosition(i), entry);
+                entries.add(entry);
+            }
+        }
+        int added = 0;
+        DataInputStream data = new DataInputStream(in);
+        try (FileChannel pack = FileChannel.open(_pack.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (data.readInt() != PACK_MAGIC) {
+                throw new IllegalArgumentException("corrupt pack stream");
+            }
+            int count = data.readInt();
+            long offset = pack.size();
+            if (offset == 0) {
+                pack.write(ByteBuffer.allocate(4).putInt(0, PACK_MAGIC));
+                offset = 4;
+            }
+            byte[] buf = new byte[COPY_BUFFER];
+            for (int k = 0; k < count; k += 1) {
+                byte[] header = new byte[ID_BYTES + 4];
+                data.readFully(header);
+                String id = Utils.toHex(Arrays.copyOf(header, ID_BYTES));
+                int length = ByteBuffer.wrap(header).getInt(ID_BYTES);
+                if (contains(id)) {
+                    data.skipNBytes(length);
+                    continue;
+                }
+                pack.write(ByteBuffer.wrap(header), offset);
+                long position = offset + header.length;
+                for (int done = 0; done < length; ) {
+                    int n = Math.min(buf.length, length - done);
+                    data.readFully(buf, 0, n);
+                    ByteBuffer chunk = ByteBuffer.wrap(buf, 0, n);
+                    while (chunk.hasRemaining()) {
+                        position += pack.write(chunk, position);
+                    }
+                    done += n;
+                }
+                entries.add(ByteBuffer.allocate(ENTRY_BYTES)
+                        .put(header, 0, ID_BYTES).putLong(offset).array());
+                offset = position;
+                added += 1;
+            }
+            pack.force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (added > 0) {
+            entries.sort((e0, e1) -> Arrays.compareUnsigned(e0, 0, ID_BYTES,
+                    e1, 0, ID_BYTES));
+            writeIndex(entries);
+        }
+        return added;
+    }
+
+    /** Atomically replaces the index with one holding ENTRIES, which
+     *  must be sorted.
+     * @param entries the index entries. */
+    private void writeIndex(List<byte[]> entries) {
+        Utils.writeAtomically(_index, indexBytes(entries));
+        _indexMap = null;
+    }
+
+    /** Returns the contents of an index holding ENTRIES, which must be
+     *  sorted.
+     * @param entries the index entries. */
+    private static byte[] indexBytes(List<byte[]> entries) {
+        ByteBuffer buf = ByteBuffer.allocate(8 + ENTRY_BYTES * entries.size());
+        buf.putInt(INDEX_MAGIC).putInt(entries.size());
+        for (byte[] entry : entries) {
+            buf.put(entry);
+        }
+        return buf.array();
+    }
+
+    /** Returns the names of the loose objects, sorted. */
+    private List<String> looseIds() {
+        ArrayList<String> result = new ArrayList<>();
+        List<String> names = Utils.plainFilenamesIn(_dir);
+        if (names != null) {
+            for (String name : names) {
+                if (isHash(name)) {
+                    result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the pack offset of the record for ID. Throws
+     *  IllegalArgumentException if ID is not packed.
+     * @param id the object id. */
+    private long packedOffset(String id) {
+        long offset = isHash(id) ? packOffset(id) : -1;
+        if (offset < 0) {
+            throw new IllegalArgumentException("no object " + id);
+        }
+        return offset;
+    }
+
+    /** Returns the length of the object in the record at OFFSET of PACK.
+     * @param pack the open pack file.
+     * @param offset the position of the record. */
+    private static int packedLength(FileChannel pack, long offset)
+            throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(pack, length, offset + ID_BYTES);
+        return length.getInt(0);
+    }
+
+    /** Returns the LENGTH bytes of the object in the record at OFFSET of
+     *  PACK.
+     * @param pack the open pack file.
+     * @param offset the position of the record.
+     * @param length the length of the object. */
+    private static byte[] readPacked(FileChannel pack, long offset,
+                                     int length) throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate(length);
+        readFully(pack, contents, offset + ID_BYTES + 4);
+        return contents.array();
+    }
+
+    /** Adds CONTENTS to the object cache as the bytes of ID, and returns
+     *  it.
+     * @param id the object id.
+     * @param contents the object's bytes. */
+    private byte[] cache(String id, byte[] contents) {
+        CACHE.put(cacheKey(id), contents);
+        return contents;
+    }
+
+    /** Returns the key of object ID in the object cache, which is shared
+     *  by all stores.
+     * @param id the object id. */
+    private String cacheKey(String id) {
+        return _cachePrefix + id;
+    }
+
+    /** Returns the pack offset of the record for ID, or -1 if ID is not
+     *  packed. Binary-searches the mapped index.
+     * @param id the object id. */
+    private long packOffset(String id) {
+        MappedByteBuffer index = index();
+        if (index == null) {
+            return -1;
+        }
+        byte[] key = Utils.fromHex(id);
+        byte[] probe = new byte[ID_BYTES];
+        int lo = 0, hi = count(index) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            index.get(entryPosition(mid), probe);
+            int cmp = Arrays.compareUnsigned(probe, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return index.getLong(entryPosition(mid) + ID_BYTES);
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the memory-mapped index, or null if there is no pack. */
+    private MappedByteBuffer index() {
+        if (_indexMap == null && _index.isFile()) {
+            try (FileChannel channel = FileChannel.open(_index.toPath())) {
+                _indexMap = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (_indexMap.getInt(0) != INDEX_MAGIC) {
+                throw new IllegalArgumentException("corrupt index " + _index);
+            }
+        }
+        return _indexMap;
+    }
+
+    /** Returns the number of entries in INDEX.
+     * @param index a mapped index. */
+    private static int count(MappedByteBuffer index) {
+        return index.getInt(4);
+    }
+
+    /** Returns the byte position of entry K of an index.
+     * @param k the entry number. */
+    private static int entryPosition(int k) {
+        return 8 + k * ENTRY_BYTES;
+    }
+
+    /** Returns true iff NAME looks like a full object id.
+     * @param name a file name or id. */
+    private static boolean isHash(String name) {
+        return name.length() == Utils.UID_LENGTH
+                && name.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+
+    /** Fills BUF from CHANNEL starting at POSITION.
+     * @param channel the channel to read.
+     * @param buf the buffer to fill.
+     * @param position the file position of the first byte. */
+    private static void readFully(FileChannel channel, ByteBuffer buf,
+                                  long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("truncated pack");
+            }
+        }
+    }
+
+    /** A stream over LENGTH bytes of a pack starting at OFFSET. */
+    private static class PackedInputStream extends InputStream {
+        /** A stream of LENGTH bytes from PACK starting at OFFSET. Closing
+         *  the stream closes PACK. */
+        PackedInputStream(FileChannel pack, long offset, long length) {
+            _channel = pack;
+            _position = offset;
+            _end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (_position >= _end) {
+                return -1;
+            }
+            len = (int) Math.min(len, _end - _position);
+            int n = _channel.read(ByteBuffer.wrap(buf, off, len), _position);
+            if (n < 0) {
+                throw new IOException("truncated pack");
+            }
+            _position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            _channel.close();
+        }
+
+        /** The pack. */
+        private final FileChannel _channel;
+        /** Position of the next byte to read. */
+        private long _position;
+        /** Position just past the last byte of the object. */
+        private final long _end;
+    }
+
+    /** Default size bound in bytes of the object cache. */
+    static final int DEFAULT_CACHE_BYTES = 32 << 20;
+
+    /** Objects read during this run, shared by every store. */
+    static final ObjectCache CACHE = new ObjectCache(DEFAULT_CACHE_BYTES);
+
+    /** Largest object that open reads whole and caches; larger ones are
+     *  streamed. */
+    private static final long MAX_CACHED = 1 << 20;
+
+    /** Largest object that is moved into a pack; larger ones stay loose,
+     *  since pack records hold 4-byte lengths. */
+    private static final long MAX_PACKED = Integer.MAX_VALUE;
+
+    /** Size of the buffer through which readPack copies objects. */
+    private static final int COPY_BUFFER = 64 << 10;
+
+    /** Number of bytes in a binary object id. */
+    static final int ID_BYTES = Utils.UID_LENGTH / 2;
+
+    /** Number of bytes in an index entry. */
+    private static final int ENTRY_BYTES = ID_BYTES + 8;
+
+    /** First four bytes of every pack file. */
+    private static final int PACK_MAGIC = 0x4750414b;
+
+    /** First four bytes of every index file. */
+    private static final int INDEX_MAGIC = 0x47494458;
+
+    /** The directory of loose objects. */
+    private final File _dir;
+
+    /** The pack file. */
+    private final File _pack;
+
+    /** The index of the pack file. */
+    private final File _index;
+
+    /** Prefix of the cache keys of this store's objects. */
+    private final String _cachePrefix;
+
+    /** The mapped index, or null if not yet mapped. */
+    private MappedByteBuffer _indexMap;
+
+    /** The store missing objects are copied from, or null. */
+    private ObjectStore _promisor;
+}
@@ -0,0 +1,133 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/** Tests of loose and packed object storage.
+ *  @author Aniruddh Khanwale
+ */
+public class ObjectStoreTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Returns a new, empty object store in a temporary directory, which
+     *  also holds the store's pack and pack index. */
+    private static ObjectStore newStore() throws IOException {
+        File dir = Utils.join(UnitTest.tempDirectory("gitlet-objects"),
+                "blobs");
+        dir.mkdir();
+        return new ObjectStore(dir);
+    }
+
+    @Test
+    public void testLooseThenPacked() throws IOException {
+        ObjectStore store = newStore();
+        String a = Utils.sha1("a"), b = Utils.sha1("b");
+        store.write(a, "contents of a".getBytes());
+        assertTrue(store.contains(a));
+        assertFalse(store.contains(b));
+        assertEquals(1, store.repack());
+        assertEquals(0, Utils.plainFilenamesIn(store.getDirectory()).size());
+        store.write(b, "contents of b".getBytes());
+        assertEquals(1, store.repack());
+        assertEquals("contents of a", new String(store.read(a)));
+        assertEquals("contents of b", new String(store.read(b)));
+        assertEquals(2, store.ids().size());
+        assertTrue(store.ids().contains(a));
+    }
+
+    @Test
+    public void testReopenedStoreSeesPack() throws IOException {
+        ObjectStore store = newStore();
+        for (int i = 0; i < 100; i += 1) {
+            store.write(Utils.sha1("obj" + i), ("value" + i).getBytes());
+        }
+        store.repack();
+        ObjectStore reopened = new ObjectStore(store.getDirectory());
+        for (int i = 0; i < 100; i += 1) {
+            assertEquals("value" + i, new String(reopened.read(
+                    Utils.sha1("obj" + i))));
+        }
+        assertFalse(reopened.contains(Utils.sha1("missing")));
+    }
+
+    @Test
+    public void testPruneLooseAndPacked() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-gc");
+        File blobs = Utils.join(gitletDir, "blobs");
+        blobs.mkdir();
+        ObjectStore store = new ObjectStore(blobs);
+        String a = Utils.sha1("a"), b = Utils.sha1("b"),
+                c = Utils.sha1("c"), d = Utils.sha1("d");
+        store.write(a, "contents of a".getBytes());
+        store.write(b, "contents of b".getBytes());
+        store.repack();
+        store.write(c, "contents of c".getBytes());
+        store.write(d, "contents of d".getBytes());
+        Journal journal = new Journal(gitletDir);
+        assertEquals(0, store.prune(Set.of(a, c), 0, journal));
+        journal.commit();
+        assertEquals(4, store.ids().size());
+        journal = new Journal(gitletDir);
+        long reclaimed = store.prune(Set.of(a, c), Long.MAX_VALUE, journal);
+        journal.commit();
+        int length = "contents of d".length();
+        assertEquals(length + ObjectStore.ID_BYTES + 4 + length, reclaimed);
+        assertEquals(new TreeSet<>(Set.of(a, c)),
+                new TreeSet<>(store.ids()));
+        ObjectStore reopened = new ObjectStore(store.getDirectory());
+        assertEquals("contents of a", new String(reopened.read(a)));
+        assertEquals("contents of c", new String(reopened.read(c)));
+        assertFalse(reopened.contains(b));
+    }
+
+    @Test
+    public void testPackStreamRoundTrip() throws IOException {
+        ObjectStore from = newStore(), to = newStore();
+        ArrayList<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i += 1) {
+            ids.add(Utils.sha1("obj" + i));
+            from.write(ids.get(i), ("value" + i).getBytes());
+            if (i == 4) {
+                from.repack();
+            }
+        }
+        to.write(ids.get(0), "value0".getBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        from.writePack(ids, out);
+        from.writePack(ids.subList(0, 1), out);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertEquals(9, to.readPack(in));
+        assertEquals(0, to.readPack(in));
+        assertEquals(-1, in.read());
+        for (int i = 0; i < 10; i += 1) {
+            assertEquals("value" + i, new String(to.read(ids.get(i))));
+        }
+    }
+
+    @Test
+    public void testPromisorFault() throws IOException {
+        ObjectStore origin = newStore(), store = newStore();
+        String a = Utils.sha1("a"), b = Utils.sha1("b");
+        origin.write(a, "contents of a".getBytes());
+        store.setPromisor(origin);
+        assertFalse(store.contains(a));
+        assertEquals("contents of a", new String(store.read(a)));
+        assertTrue(Utils.join(store.getDirectory(), a).isFile());
+        assertFalse(store.contains(b));
+    }
+}
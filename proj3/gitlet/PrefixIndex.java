@@ -0,0 +1,227 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/** A sorted index of commit ids for resolving abbreviated ids without
+ *  listing the commit store.
+ *
+ *  The file .gitlet/commit-ids is laid out like a git pack index: a
+ *  4-byte magic number, a fan-out table of 256 4-byte counts, where entry
+ *  B is the number of ids whose first byte is at most B, and then the
+ *  20-byte ids in sorted order. The fan-out table narrows a lookup to the
+ *  ids sharing the prefix's first byte, which are then binary-searched.
+ *
+ *  New commits are appended, unsorted, to .gitlet/commit-ids.tail, which
+ *  is scanned in full on every lookup and folded into the sorted file
+ *  once it holds TAIL_LIMIT ids. An id torn off the end of the tail by a
+ *  crash is ignored, and overwritten by the next one added. A repository
+ *  without the sorted file has it built from the commit store on first
+ *  use.
+ *  @author Aniruddh Khanwale
+ */
+class PrefixIndex {
+
+    /** Loads the commit id index of the repository in GITLETDIR, building
+     *  it from the ids in COMMITSTORE if it does not exist yet.
+     * @param gitletDir the .gitlet directory.
+     * @param commitStore the store of commit objects. */
+    PrefixIndex(File gitletDir, ObjectStore commitStore) {
+        _file = Utils.join(gitletDir, "commit-ids");
+        _tailFile = Utils.join(gitletDir, "commit-ids.tail");
+        if (!_file.isFile()) {
+            TreeSet<String> ids = new TreeSet<>(commitStore.ids());
+            writeSorted(ids);
+            _tailFile.delete();
+        }
+        byte[] tail = _tailFile.isFile()
+                ? Utils.readContents(_tailFile) : new byte[0];
+        _tail = Arrays.copyOf(tail, tail.length
+                - tail.length % ObjectStore.ID_BYTES);
+    }
+
+    /** Deletes the commit id index of the repository in GITLETDIR, so
+     *  that it is rebuilt from the commit store on next use.
+     * @param gitletDir the .gitlet directory. */
+    static void clear(File gitletDir) {
+        Utils.join(gitletDir, "commit-ids").delete();
+        Utils.join(gitletDir, "commit-ids.tail").delete();
+    }
+
+    /** Returns the full id of the one commit whose id starts with PREFIX,
+     *  or null if there is none. Throws GitletException if more than one
+     *  commit matches.
+     * @param prefix an abbreviated or full commit id. */
+    String resolve(String prefix) {
+        TreeSet<String> found = matches(prefix.toLowerCase());
+        if (found.size() > 1) {
+            throw Utils.error("Commit id %s is ambiguous.", prefix);
+        }
+        return found.isEmpty() ? null : found.first();
+    }
+
+    /** Records the new commit ID, unless it is already indexed.
+     * @param id a full commit id. */
+    void add(String id) {
+        if (!matches(id).isEmpty()) {
+            return;
+        }
+        Utils.writeAt(_tailFile, _tail.length, Utils.fromHex(id));
+        _tail = Arrays.copyOf(_tail, _tail.length + ObjectStore.ID_BYTES);
+        System.arraycopy(Utils.fromHex(id), 0, _tail,
+                _tail.length - ObjectStore.ID_BYTES, ObjectStore.ID_BYTES);
+        if (_tail.length / ObjectStore.ID_BYTES >= TAIL_LIMIT) {
+            compact();
+        }
+    }
+
+    /** Returns the ids starting with PREFIX, stopping early once two are
+     *  found.
+     * @param prefix a lower-case abbreviated or full commit id. */
+    private TreeSet<String> matches(String prefix) {
+        TreeSet<String> result = new TreeSet<>();
+        if (prefix.isEmpty() || prefix.length() > Utils.UID_LENGTH
+                || !prefix.chars().allMatch(
+                        c -> Character.digit(c, 16) >= 0)) {
+            return result;
+        }
+        byte[] lo = Utils.fromHex(pad(prefix, '0'));
+        byte[] hi = Utils.fromHex(pad(prefix, 'f'));
+        MappedByteBuffer map = map();
+        int start = lo[0] == 0 ? 0 : fanout(map, (lo[0] & 0xff) - 1);
+        int end = fanout(map, hi[0] & 0xff);
+        byte[] probe = new byte[ObjectStore.ID_BYTES];
+        while (start < end) {
+            int mid = (start + end) >>> 1;
+            map.get(idPosition(mid), probe);
+            if (Arrays.compareUnsigned(probe, lo) < 0) {
+                start = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        for (int k = start; k < fanout(map, FANOUT - 1) && result.size() < 2;
+             k += 1) {
+            map.get(idPosition(k), probe);
+            if (Arrays.compareUnsigned(probe, hi) > 0) {
+                break;
+            }
+            result.add(Utils.toHex(probe));
+        }
+        for (int off = 0; off < _tail.length; off += ObjectStore.ID_BYTES) {
+            int to = off + ObjectStore.ID_BYTES;
+            if (Arrays.compareUnsigned(_tail, off, to, lo, 0, lo.length) >= 0
+                    && Arrays.compareUnsigned(_tail, off, to,
+                            hi, 0, hi.length) <= 0) {
+                result.add(Utils.toHex(Arrays.copyOfRange(_tail, off, to)));
+            }
+        }
+        return result;
+    }
+
+    /** Merges the tail into the sorted file and empties the tail. */
+    private void compact() {
+        TreeSet<String> ids = new TreeSet<>();
+        MappedByteBuffer map = map();
+        byte[] id = new byte[ObjectStore.ID_BYTES];
+        for (int k = 0; k < fanout(map, FANOUT - 1); k += 1) {
+            map.get(idPosition(k), id);
+            ids.add(Utils.toHex(id));
+        }
+        for (int off = 0; off < _tail.length; off += ObjectStore.ID_BYTES) {
+            ids.add(Utils.toHex(Arrays.copyOfRange(_tail, off,
+                    off + ObjectStore.ID_BYTES)));
+        }
+        writeSorted(ids);
+        _tailFile.delete();
+        _tail = new byte[0];
+    }
+
+    /** Atomically replaces the sorted file with one holding IDS.
+     * @param ids full commit ids, in sorted order. */
+    private void writeSorted(TreeSet<String> ids) {
+        ByteBuffer buf = ByteBuffer.allocate(idPosition(ids.size()));
+        buf.putInt(MAGIC);
+        int[] counts = new int[FANOUT];
+        for (String id : ids) {
+            counts[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+        }
+        for (int b = 0, total = 0; b < FANOUT; b += 1) {
+            total += counts[b];
+            buf.putInt(total);
+        }
+        for (String id : ids) {
+            buf.put(Utils.fromHex(id));
+        }
+        Utils.writeAtomically(_file, buf.array());
+        _map = null;
+    }
+
+    /** Returns the memory-mapped sorted file. */
+    private MappedByteBuffer map() {
+        if (_map == null) {
+            try (FileChannel channel = FileChannel.open(_file.toPath())) {
+                _map = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (_map.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("corrupt index " + _file);
+            }
+        }
+        return _map;
+    }
+
+    /** Returns fan-out entry B of MAP: the number of ids whose first byte
+     *  is at most B.
+     * @param map the mapped sorted file.
+     * @param b a byte value. */
+    private static int fanout(MappedByteBuffer map, int b) {
+        return map.getInt(4 + 4 * b);
+    }
+
+    /** Returns the byte position of id K in the sorted file.
+     * @param k the id number. */
+    private static int idPosition(int k) {
+        return 4 + 4 * FANOUT + k * ObjectStore.ID_BYTES;
+    }
+
+    /** Returns PREFIX extended to a full id with copies of FILL.
+     * @param prefix an abbreviated id.
+     * @param fill the hex digit to pad with. */
+    private static String pad(String prefix, char fill) {
+        StringBuilder result = new StringBuilder(prefix);
+        while (result.length() < Utils.UID_LENGTH) {
+            result.append(fill);
+        }
+        return result.toString();
+    }
+
+    /** Number of entries in the fan-out table. */
+    private static final int FANOUT = 256;
+
+    /** Number of tail ids at which the tail is merged into the sorted
+     *  file. */
+    private static final int TAIL_LIMIT = 256;
+
+    /** First four bytes of the sorted file. */
+    private static final int MAGIC = 0x47464f54;
+
+    /** The sorted file. */
+    private final File _file;
+
+    /** The file of ids added since the sorted file was written. */
+    private final File _tailFile;
+
+    /** Contents of _tailFile: concatenated 20-byte ids. */
+    private byte[] _tail;
+
+    /** The mapped sorted file, or null if not yet mapped. */
+    private MappedByteBuffer _map;
+}
@@ -0,0 +1,74 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** Tests of abbreviated commit id resolution.
+ *  @author Aniruddh Khanwale
+ */
+public class PrefixIndexTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    @Test
+    public void testResolveAcrossSortedAndTail() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-ids");
+        File commits = Utils.join(gitletDir, "commits");
+        commits.mkdir();
+        ObjectStore store = new ObjectStore(commits);
+        String first = Utils.sha1("first");
+        store.write(first, new byte[0]);
+        PrefixIndex index = new PrefixIndex(gitletDir, store);
+        assertEquals(first, index.resolve(first.substring(0, 6)));
+        assertEquals(first, index.resolve(first.substring(0, 1)));
+        assertNull(index.resolve("zz"));
+        String[] ids = new String[600];
+        for (int i = 0; i < ids.length; i += 1) {
+            ids[i] = Utils.sha1("commit" + i);
+            index.add(ids[i]);
+        }
+        PrefixIndex reopened = new PrefixIndex(gitletDir, store);
+        for (String id : ids) {
+            assertEquals(id, reopened.resolve(id.substring(0, 8)));
+            assertEquals(id, reopened.resolve(id.toUpperCase()));
+        }
+        assertEquals(first, reopened.resolve(first));
+        try {
+            reopened.resolve(ids[0].substring(0, 1));
+            fail("expected an ambiguous prefix");
+        } catch (GitletException excp) {
+            assertTrue(excp.getMessage().contains("ambiguous"));
+        }
+    }
+
+    @Test
+    public void testTornTailIdIsCutOff() throws IOException {
+        File gitletDir = UnitTest.tempDirectory("gitlet-ids");
+        File commits = Utils.join(gitletDir, "commits");
+        commits.mkdir();
+        ObjectStore store = new ObjectStore(commits);
+        String a = Utils.sha1("a"), b = Utils.sha1("b");
+        new PrefixIndex(gitletDir, store).add(a);
+        File tail = Utils.join(gitletDir, "commit-ids.tail");
+        Utils.writeContents(tail, Utils.readContents(tail),
+                Arrays.copyOf(Utils.fromHex(b), 7));
+        PrefixIndex index = new PrefixIndex(gitletDir, store);
+        assertEquals(a, index.resolve(a.substring(0, 8)));
+        assertNull(index.resolve(b.substring(0, 8)));
+        index.add(b);
+        assertEquals(2 * ObjectStore.ID_BYTES, tail.length());
+        PrefixIndex reopened = new PrefixIndex(gitletDir, store);
+        assertEquals(a, reopened.resolve(a.substring(0, 8)));
+        assertEquals(b, reopened.resolve(b.substring(0, 8)));
+    }
+}
@@ -0,0 +1,208 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/** Transfer of history between two repositories on the same machine, as
+ *  done by fetch, push and pull with a remote named by a local path.
+ *
+ *  The commits to send are found by walking the sending repository's
+ *  commit graph back from the branch head, stopping at commits the
+ *  receiving repository already has. Their trees that the receiver lacks
+ *  are added, without descending into subtrees it already has, then the
+ *  blobs of those trees, and the bases of any delta blobs, that it lacks.
+ *  All three sets are written by one thread as a single pack stream, which
+ *  another thread appends straight onto the receiver's packs, so objects
+ *  are copied with a few large writes rather than one file at a time.
+ *  Blobs go first, then trees, then commits, and each receiving store
+ *  installs its pack before the next is read, so a transfer that fails
+ *  part way leaves no commit without its contents, only objects that the
+ *  next transfer skips.
+ *
+ *  A transfer may be limited to the last commits of the history, or leave
+ *  out blobs. Sent commits with a parent that was neither sent nor
+ *  already in the receiver are recorded there as shallow.
+ *  @author Aniruddh Khanwale
+ */
+class Remote {
+
+    /** Copies into the repository in TO the commits reachable from HEAD in
+     *  the repository in FROM that TO lacks, with the blobs they need, and
+     *  records them in TO's commit graph and commit id and message
+     *  indexes. Does not move any branch.
+     * @param from the sending .gitlet directory.
+     * @param to the receiving .gitlet directory.
+     * @param head the id of the commit whose history to send.
+     * @return the number of objects copied. */
+    static int transfer(File from, File to, String head) {
+        return transfer(from, to, head, 0, true);
+    }
+
+    /** As transfer(FROM, TO, HEAD), but sends only commits fewer than
+     *  DEPTH parent links from HEAD, unless DEPTH is 0, and sends blobs
+     *  only if WITHBLOBS.
+     * @param from the sending .gitlet directory.
+     * @param to the receiving .gitlet directory.
+     * @param head the id of the commit whose history to send.
+     * @param depth the number of generations to send, or 0 for all.
+     * @param withBlobs true iff blobs are to be sent.
+     * @return the number of objects copied. */
+    static int transfer(File from, File to, String head, int depth,
+                        boolean withBlobs) {
+        ObjectStore fromCommits = new ObjectStore(Utils.join(from, "commits"));
+        ObjectStore fromBlobs = new ObjectStore(Utils.join(from, "blobs"));
+        ObjectStore toCommits = new ObjectStore(Utils.join(to, "commits"));
+        ObjectStore toBlobs = new ObjectStore(Utils.join(to, "blobs"));
+        ObjectStore fromTrees = new ObjectStore(Utils.join(from, "trees"));
+        ObjectStore toTrees = new ObjectStore(Utils.join(to, "trees"));
+        CommitGraph graph = new CommitGraph(from, fromCommits);
+        ArrayList<Commit> commits = new ArrayList<>();
+        LinkedHashSet<String> trees = new LinkedHashSet<>();
+        LinkedHashSet<String> blobs = new LinkedHashSet<>();
+        HashMap<Integer, Integer> distance = new HashMap<>();
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        int start = graph.ensure(head);
+        pending.add(start);
+        distance.put(start, 0);
+        while (!pending.isEmpty()) {
+            int pos = pending.remove();
+            String id = graph.id(pos);
+            if (toCommits.contains(id)) {
+                continue;
+            }
+            Commit commit = Commit.read(fromCommits, id);
+            commits.add(commit);
+            LinkedHashSet<String> treeBlobs = new LinkedHashSet<>();
+            Tree.collect(fromTrees, commit.getTree(), toTrees::contains,
+                    trees, treeBlobs);
+            ArrayDeque<String> wanted = new ArrayDeque<>(
+                    withBlobs ? treeBlobs : List.<String>of());
+            while (!wanted.isEmpty()) {
+                String hash = wanted.pop();
+                if (fromBlobs.contains(hash) && !toBlobs.contains(hash)
+                        && blobs.add(hash)) {
+                    wanted.addAll(Blob.references(fromBlobs, hash));
+                }
+            }
+            int next = distance.get(pos) + 1;
+            for (int parent : new int[] {graph.parent(pos),
+                                         graph.secondParent(pos)}) {
+                if (parent != CommitGraph.NONE
+                        && (depth == 0 || next < depth)
+                        && distance.putIfAbsent(parent, next) == null) {
+                    pending.add(parent);
+                }
+            }
+        }
+        if (commits.isEmpty()) {
+            return 0;
+        }
+        HashSet<String> sent = new HashSet<>();
+        for (Commit commit : commits) {
+            sent.add(commit.getHash());
+        }
+        ArrayList<String> shallow = new ArrayList<>();
+        for (Commit commit : commits) {
+            for (String parent : parents(commit)) {
+                if (!sent.contains(parent) && !toCommits.contains(parent)) {
+                    shallow.add(commit.getHash());
+                    break;
+                }
+            }
+        }
+        PrefixIndex ids = new PrefixIndex(to, toCommits);
+        MessageIndex messages = new MessageIndex(to, toCommits);
+        ArrayList<String> commitIds = new ArrayList<>();
+        for (Commit commit : commits) {
+            commitIds.add(commit.getHash());
+        }
+        CommitGraph.addShallow(to, shallow);
+        int copied = send(new ObjectStore[] {fromBlobs, fromTrees, fromCommits},
+                List.of(blobs, trees, commitIds),
+                new ObjectStore[] {toBlobs, toTrees, toCommits});
+        new CommitGraph(to, toCommits).ensure(head);
+        for (Commit commit : commits) {
+            ids.add(commit.getHash());
+            messages.add(commit);
+        }
+        return copied;
+    }
+
+    /** Returns the ids of COMMIT's parents.
+     * @param commit a commit. */
+    private static List<String> parents(Commit commit) {
+        ArrayList<String> result = new ArrayList<>();
+        if (commit.getParentUID() != null) {
+            result.add(commit.getParentUID());
+        }
+        if (commit instanceof MergeCommit) {
+            result.add(((MergeCommit) commit).getSecondaryParentUID());
+        }
+        return result;
+    }
+
+    /** Streams the objects IDS[K] of each store FROM[K] into TO[K]
+     *  through a pipe, one pack after another, with the sending side on a
+     *  thread of its own.
+     * @param from the sending stores.
+     * @param ids the ids of the objects to send from each store.
+     * @param to the receiving stores.
+     * @return the number of objects added. */
+    private static int send(ObjectStore[] from,
+                            List<? extends Collection<String>> ids,
+                            ObjectStore[] to) {
+        RuntimeException[] failure = new RuntimeException[1];
+        PipedInputStream in = new PipedInputStream(PIPE_BYTES);
+        Thread sender;
+        try {
+            PipedOutputStream pipe = new PipedOutputStream(in);
+            sender = new Thread(() -> {
+                try (OutputStream out =
+                             new BufferedOutputStream(pipe, PIPE_BYTES)) {
+                    for (int k = 0; k < from.length; k += 1) {
+                        from[k].writePack(ids.get(k), out);
+                    }
+                } catch (IOException | RuntimeException excp) {
+                    failure[0] = excp instanceof RuntimeException
+                            ? (RuntimeException) excp
+                            : new IllegalArgumentException(excp.getMessage());
+                }
+            });
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        sender.start();
+        int added = 0;
+        try (in) {
+            for (ObjectStore store : to) {
+                added += store.readPack(in);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            try {
+                sender.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return added;
+    }
+
+    /** Size of the pipe buffer and of the sender's output buffer. */
+    private static final int PIPE_BYTES = 256 << 10;
+}
@@ -1,21 +1,26 @@
 package gitlet;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.Serializable;
+import java.util.Map;
 import java.util.TreeMap;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Arrays;
+import java.util.TreeSet;
 
-/** Represents the Staging Area of the gitlet repository.
+/** Represents the Staging Area of the gitlet repository. Only the staged
+ * additions and removals are persisted. Files are named by their paths
+ * relative to the working directory. The files tracked by the head
+ * commit are looked up in its tree one path at a time, and its whole
+ * manifest is only read by commands that need it.
  * @author Aniruddh Khanwale */
-public class StagingArea implements Serializable, Dumpable {
+public class StagingArea implements Dumpable {
 
     /** Path to HEAD file, in case a previous stage exist. */
     private File headPath;
 
+    /** An empty staging area, not attached to any repository, into which
+     * a stage file may be decoded. */
+    private StagingArea() {
+    }
+
     /** Constructs a new staging area from the content in the specified dir.
      *
      * @param gitDir The gitlet directory used for persistence.
@@ -24,113 +29,126 @@ public class StagingArea implements Serializable, Dumpable {
         gitletDir = gitDir;
         stagePath = Utils.join(gitDir, "stage");
         headPath = Utils.join(gitDir, "HEAD");
-        try {
-            if (headPath.isFile() && headPath.length() != 0) {
-                copyHead();
-            }
-            if (stagePath.isFile() && stagePath.length() != 0) {
-                copyStage();
-            } else {
-                stagePath.createNewFile();
-            }
-        } catch (IOException e) {
-            return;
+        trees = new ObjectStore(Utils.join(gitDir, "trees"));
+        if (headPath.isFile() && headPath.length() != 0) {
+            copyHead();
+        }
+        if (stagePath.isFile() && stagePath.length() != 0) {
+            copyStage();
         }
     }
 
-    /** Removes the specified file from the staging area.
+    /** Removes the file at path NAME from the staging area, and stages
+     * its removal if the head commit tracks it. Deleting the working
+     * file is left to the caller.
      *
-     * @param rm The file to remove.
+     * @param name The path of the file to remove.
+     * @return True iff the head commit tracks the file.
      */
-    public void rmFile(File rm) {
-        boolean reasonToRemove = false;
-        if (blobNames.containsKey(rm.getName())) {
-            String originalHash = blobNames.get(rm.getName()).getHash();
-            blobNames.remove(rm.getName());
-            blobTreeMap.remove(originalHash);
-            trackedFiles.remove(rm.getName());
-            reasonToRemove = true;
-        }
-        if (headStage != null
-                && headStage.getTrackedFiles().containsKey(rm.getName())) {
-            trackedFiles.remove(rm.getName());
-            removedFiles.add(rm.getName());
-            Utils.restrictedDelete(rm);
-            reasonToRemove = true;
-        }
-        if (!reasonToRemove) {
+    public boolean rmFile(String name) {
+        boolean reasonToRemove = stagedFiles.remove(name) != null;
+        boolean tracked = headHash(name) != null;
+        if (tracked) {
+            removedFiles.add(name);
+        } else if (!reasonToRemove) {
             throw new GitletException("No reason to remove the file.");
         }
+        return tracked;
     }
 
-    /** Adds the given blob to the Stage.
+    /** Stages the file NAME with contents HASH. If the head commit already
+     * tracks those contents, the file is unstaged instead.
      *
-     * @param toStage the File/Blob to stage.
+     * @param name the name of the file to stage.
+     * @param hash the hash of the blob holding its contents.
      */
-    public void stageFile(Blob toStage) {
-        if (headStage != null
-                && headStage.blobTreeMap.containsKey(toStage.getHash())) {
-            if (blobTreeMap.containsKey(toStage.getHash())) {
-                blobTreeMap.remove(toStage.getHash());
-                blobNames.remove(toStage.getName());
-            }
-        } else if (blobNames != null
-                && blobNames.containsKey(toStage.getName())) {
-            String originalHash = blobNames.get(toStage.getName()).getHash();
-            blobNames.remove(toStage.getName());
-            blobTreeMap.remove(originalHash);
-            blobTreeMap.put(toStage.getHash(), toStage);
-            blobNames.put(toStage.getName(), toStage);
-            trackedFiles.put(toStage.getName(), toStage);
+    public void stageFile(String name, String hash) {
+        if (hash.equals(headHash(name))) {
+            stagedFiles.remove(name);
         } else {
-            blobTreeMap.put(toStage.getHash(), toStage);
-            blobNames.put(toStage.getName(), toStage);
-            trackedFiles.put(toStage.getName(), toStage);
+            stagedFiles.put(name, hash);
         }
-        if (removedFiles.contains(toStage.getName())) {
-            removedFiles.remove(toStage.getName());
+        removedFiles.remove(name);
+    }
+
+    /** Writes the staging area back to disk, or deletes the stage file
+     * if nothing is staged. */
+    void persist() {
+        if (size() == 0) {
+            stagePath.delete();
+        } else {
+            Utils.writeAtomically(stagePath, encode());
         }
     }
 
-    /** Sets the staging area to be identical to that of the parent.*/
+    /** Loads the root tree of the head commit. */
     private void copyHead() {
         String parentCommitID = Utils.readContentsAsString(headPath);
-        Commit parentCommit = Utils.readObject(Utils.join(gitletDir,
-                "commits", parentCommitID), Commit.class);
-        headStage = parentCommit.getStage();
-        if (headStage != null) {
-            trackedFiles.putAll(headStage.getTrackedFiles());
-        }
-        if (headStage != null && headStage.removedFiles.size() > 0) {
-            for (String name : headStage.removedFiles) {
-                if (size() > 0) {
-                    Blob oFile = blobNames.get(name);
-                    blobNames.remove(oFile.getName());
-                    blobTreeMap.remove(oFile.getHash());
-                }
-            }
+        Commit parentCommit = Commit.read(new ObjectStore(
+                Utils.join(gitletDir, "commits")), parentCommitID);
+        headTree = parentCommit.getTree();
+    }
+
+    /** Returns the blob hash of the file at path NAME in the head commit,
+     * or null if it does not track one.
+     * @param name the path of a file. */
+    String headHash(String name) {
+        return Tree.lookup(trees, headTree, name);
+    }
+
+    /** Returns the blob hash the next commit would record for the file at
+     * path NAME, or null if it would not track one.
+     * @param name the path of a file. */
+    String trackedHash(String name) {
+        if (removedFiles.contains(name)) {
+            return null;
         }
+        String staged = stagedFiles.get(name);
+        return staged != null ? staged : headHash(name);
     }
 
     /** Copies the current state of the staging area.*/
     private void copyStage() {
-        StagingArea parent = Utils.readObject(stagePath, StagingArea.class);
-        blobTreeMap.putAll(parent.blobTreeMap);
-        blobNames.putAll(parent.blobNames);
-        removedFiles.addAll(parent.getRemovedFiles());
-        trackedFiles.putAll(parent.getTrackedFiles());
-        for (String fName : removedFiles) {
-            if (trackedFiles.containsKey(fName)) {
-                trackedFiles.remove(fName);
-            }
+        StagingArea parent = decode(Utils.readContents(stagePath));
+        stagedFiles.putAll(parent.stagedFiles);
+        removedFiles.addAll(parent.removedFiles);
+    }
+
+    /** Returns the staged additions and removals encoded in BYTES, in a
+     * staging area not attached to any repository.
+     * @param bytes the contents of a stage file. */
+    static StagingArea decode(byte[] bytes) {
+        Codec.Decoder in = new Codec.Decoder(bytes, Codec.STAGE);
+        StagingArea result = new StagingArea();
+        for (int n = in.count(); n > 0; n -= 1) {
+            result.stagedFiles.put(in.string(), in.hash());
         }
+        for (int n = in.count(); n > 0; n -= 1) {
+            result.removedFiles.add(in.string());
+        }
+        in.end();
+        return result;
+    }
 
+    /** Returns the encoding of the staged additions, as a count followed
+     * by (path, blob hash) pairs, and of the staged removals, as a count
+     * followed by paths. */
+    byte[] encode() {
+        Codec.Encoder out = new Codec.Encoder(Codec.STAGE);
+        out.varint(stagedFiles.size());
+        for (Map.Entry<String, String> file : stagedFiles.entrySet()) {
+            out.string(file.getKey()).hash(file.getValue());
+        }
+        out.varint(removedFiles.size());
+        for (String name : removedFiles) {
+            out.string(name);
+        }
+        return out.toByteArray();
     }
 
     /** Returns the size of the staging area. */
     int size() {
-        return Math.max(Math.max(blobNames.size(), blobTreeMap.size()),
-                removedFiles.size());
+        return stagedFiles.size() + removedFiles.size();
     }
 
     /** Return the gitlet directory for this staging area. */
@@ -147,27 +165,37 @@ public class StagingArea implements Serializable, Dumpable {
         return headPath;
     }
 
-    /** Returns the blobTreeMap of this staging area. */
-    TreeMap<String, Blob> getBlobTreeMap() {
-        return blobTreeMap;
-    }
-    /** Returns the blobNames of this staging area. */
-    TreeMap<String, Blob> getBlobNames() {
-        return blobNames;
+    /** Returns the files staged for addition, mapped to their blob hashes. */
+    TreeMap<String, String> getStagedFiles() {
+        return stagedFiles;
     }
+
     /** Returns the removed files of this staging area. */
-    ArrayList<String> getRemovedFiles() {
+    TreeSet<String> getRemovedFiles() {
         return removedFiles;
     }
 
-    /** Returns the head's staging area. */
-    StagingArea getHeadStage() {
-        return headStage;
+    /** Returns the hash of the head commit's root tree, or null if it
+     * tracks no files. */
+    String getHeadTree() {
+        return headTree;
+    }
+
+    /** Returns the manifest of the head commit. */
+    TreeMap<String, String> getHeadFiles() {
+        return Tree.flatten(trees, headTree);
     }
 
-    /** Returns the tracked files. */
-    TreeMap<String, Blob> getTrackedFiles() {
-        return trackedFiles;
+    /** Returns the tracked files, i.e. the manifest the next commit would
+     * record: the head commit's files, plus staged files, less removed
+     * files. */
+    TreeMap<String, String> getTrackedFiles() {
+        TreeMap<String, String> tracked = getHeadFiles();
+        tracked.putAll(stagedFiles);
+        for (String name : removedFiles) {
+            tracked.remove(name);
+        }
+        return tracked;
     }
     /** File object containing staging area reference. */
     private File stagePath;
@@ -175,33 +203,24 @@ public class StagingArea implements Serializable, Dumpable {
     /** File object containing gitlet directory reference. */
     private File gitletDir;
 
-    /** Treemap containing all blobs in the staging area,
-     * used to ensure lgN search time.  */
-    private TreeMap<String, Blob> blobTreeMap = new TreeMap<String, Blob>();
-
-    /** Treemap containing all the filenames in the staging area,
-     * used to overwrite files. */
-    private TreeMap<String, Blob> blobNames = new TreeMap<String, Blob>();
-
-    /** The files currently tracked. */
-    private TreeMap<String, Blob> trackedFiles = new TreeMap<String, Blob>();
+    /** The files staged for addition, mapped from file name to blob hash. */
+    private TreeMap<String, String> stagedFiles = new TreeMap<>();
 
     /** The files which will be removed from the next commit. */
-    private ArrayList<String> removedFiles = new ArrayList<String>();
+    private TreeSet<String> removedFiles = new TreeSet<>();
 
-    /** Staging Area of previous Commit. */
-    private StagingArea headStage;
+    /** The tree store. */
+    private ObjectStore trees;
+
+    /** Hash of the head commit's root tree, or null if it is empty. */
+    private String headTree;
 
     @Override
     public void dump() {
-        if (blobNames == null && blobTreeMap == null) {
-            System.out.println("No blobs added");
-        } else {
-            System.out.println("Blob Names :");
-            System.out.println(blobNames.toString());
-            System.out.println("Blob Tree Map: ");
-            System.out.println(blobTreeMap.toString());
-            System.out.println();
-        }
+        System.out.println("Staged Files :");
+        System.out.println(stagedFiles.toString());
+        System.out.println("Removed Files: ");
+        System.out.println(removedFiles.toString());
+        System.out.println();
     }
 }
@@ -0,0 +1,223 @@
+package gitlet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/** One directory of a commit's snapshot: the files directly in it,
+ *  mapped to their blob hashes, and its subdirectories, mapped to the
+ *  hashes of their own trees. Trees are stored by hash in .gitlet/trees,
+ *  so a directory that did not change between two commits is stored once
+ *  and shared by both, and two snapshots are compared without descending
+ *  into subtrees whose hashes agree.
+ *
+ *  Paths are relative to the working directory and separated by '/'. The
+ *  empty tree is never stored; its hash is null.
+ *  @author Aniruddh Khanwale
+ */
+class Tree implements Dumpable {
+
+    /** Returns the hash of the tree made by applying CHANGES to the tree
+     *  ROOT in TREES. CHANGES maps paths to their new blob hashes, or to
+     *  null for paths to remove. Only the trees of directories on changed
+     *  paths are read and written.
+     * @param trees the tree store.
+     * @param root the hash of the tree to change, or null if empty.
+     * @param changes the new blob hashes, by path.
+     * @return the hash of the new tree, or null if it is empty. */
+    static String update(ObjectStore trees, String root,
+                         SortedMap<String, String> changes) {
+        Tree tree = read(trees, root);
+        TreeMap<String, TreeMap<String, String>> below = new TreeMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String path = change.getKey();
+            int slash = path.indexOf('/');
+            if (slash >= 0) {
+                below.computeIfAbsent(path.substring(0, slash),
+                        k -> new TreeMap<>())
+                        .put(path.substring(slash + 1), change.getValue());
+            } else if (change.getValue() == null) {
+                tree._files.remove(path);
+            } else {
+                tree._files.put(path, change.getValue());
+            }
+        }
+        for (Map.Entry<String, TreeMap<String, String>> dir
+                 : below.entrySet()) {
+            String subtree = update(trees, tree._dirs.get(dir.getKey()),
+                    dir.getValue());
+            if (subtree == null) {
+                tree._dirs.remove(dir.getKey());
+            } else {
+                tree._dirs.put(dir.getKey(), subtree);
+            }
+        }
+        if (tree._files.isEmpty() && tree._dirs.isEmpty()) {
+            return null;
+        }
+        byte[] contents = tree.encode();
+        String hash = Utils.sha1(contents);
+        trees.write(hash, contents);
+        return hash;
+    }
+
+    /** Returns the blob hash of the file at PATH in the tree ROOT in
+     *  TREES, or null if there is none. Reads only the trees along PATH.
+     * @param trees the tree store.
+     * @param root the hash of a tree, or null.
+     * @param path a file path. */
+    static String lookup(ObjectStore trees, String root, String path) {
+        int slash = path.indexOf('/');
+        while (root != null && slash >= 0) {
+            root = read(trees, root)._dirs.get(path.substring(0, slash));
+            path = path.substring(slash + 1);
+            slash = path.indexOf('/');
+        }
+        return root == null ? null : read(trees, root)._files.get(path);
+    }
+
+    /** Returns the files of the tree ROOT in TREES, mapped from path to
+     *  blob hash.
+     * @param trees the tree store.
+     * @param root the hash of a tree, or null. */
+    static TreeMap<String, String> flatten(ObjectStore trees, String root) {
+        TreeMap<String, String> result = new TreeMap<>();
+        flatten(trees, root, "", result);
+        return result;
+    }
+
+    /** Adds the files of the tree ROOT in TREES to RESULT, with their
+     *  paths prefixed by PREFIX.
+     * @param trees the tree store.
+     * @param root the hash of a tree, or null.
+     * @param prefix the path of ROOT's directory, ending in '/', or "".
+     * @param result the manifest being built. */
+    private static void flatten(ObjectStore trees, String root,
+                                String prefix, Map<String, String> result) {
+        Tree tree = read(trees, root);
+        for (Map.Entry<String, String> file : tree._files.entrySet()) {
+            result.put(prefix + file.getKey(), file.getValue());
+        }
+        for (Map.Entry<String, String> dir : tree._dirs.entrySet()) {
+            flatten(trees, dir.getValue(), prefix + dir.getKey() + "/",
+                    result);
+        }
+    }
+
+    /** Returns the paths of the files that differ between the trees A and
+     *  B in TREES, each mapped to {its blob hash in A, its blob hash in
+     *  B}, with null for a side that lacks it. Subtrees with equal hashes
+     *  are skipped without being read.
+     * @param trees the tree store.
+     * @param a the hash of the old tree, or null.
+     * @param b the hash of the new tree, or null. */
+    static TreeMap<String, String[]> diff(ObjectStore trees, String a,
+                                          String b) {
+        TreeMap<String, String[]> result = new TreeMap<>();
+        diff(trees, a, b, "", result);
+        return result;
+    }
+
+    /** Adds the differences between the trees A and B in TREES to RESULT,
+     *  with their paths prefixed by PREFIX.
+     * @param trees the tree store.
+     * @param a the hash of the old tree, or null.
+     * @param b the hash of the new tree, or null.
+     * @param prefix the path of the trees' directory, ending in '/', or "".
+     * @param result the differences found so far. */
+    private static void diff(ObjectStore trees, String a, String b,
+                             String prefix, TreeMap<String, String[]> result) {
+        if (a == null ? b == null : a.equals(b)) {
+            return;
+        }
+        Tree old = read(trees, a), now = read(trees, b);
+        TreeMap<String, String> names = new TreeMap<>(old._files);
+        names.putAll(now._files);
+        for (String name : names.keySet()) {
+            String oldHash = old._files.get(name);
+            String newHash = now._files.get(name);
+            if (oldHash == null || !oldHash.equals(newHash)) {
+                result.put(prefix + name, new String[] {oldHash, newHash});
+            }
+        }
+        names = new TreeMap<>(old._dirs);
+        names.putAll(now._dirs);
+        for (String name : names.keySet()) {
+            diff(trees, old._dirs.get(name), now._dirs.get(name),
+                    prefix + name + "/", result);
+        }
+    }
+
+    /** Adds ROOT and the subtrees of the tree ROOT in TREES to TREEIDS,
+     *  and the hashes of their files to BLOBIDS, skipping the subtrees
+     *  (and files) of any tree that SKIP accepts or that is already in
+     *  TREEIDS.
+     * @param trees the tree store.
+     * @param root the hash of a tree, or null.
+     * @param skip the trees whose contents need not be collected.
+     * @param treeIds the trees collected so far.
+     * @param blobIds the blobs collected so far. */
+    static void collect(ObjectStore trees, String root, Predicate<String> skip,
+                        Set<String> treeIds, Set<String> blobIds) {
+        if (root == null || skip.test(root) || !treeIds.add(root)) {
+            return;
+        }
+        Tree tree = read(trees, root);
+        blobIds.addAll(tree._files.values());
+        for (String subtree : tree._dirs.values()) {
+            collect(trees, subtree, skip, treeIds, blobIds);
+        }
+    }
+
+    /** Returns the tree ID in TREES, or an empty tree if ID is null.
+     * @param trees the tree store.
+     * @param id the hash of a tree, or null. */
+    private static Tree read(ObjectStore trees, String id) {
+        return id == null ? new Tree() : decode(trees.read(id));
+    }
+
+    /** Returns the tree whose encoding is BYTES.
+     * @param bytes an encoded tree. */
+    static Tree decode(byte[] bytes) {
+        Codec.Decoder in = new Codec.Decoder(bytes, Codec.TREE);
+        Tree result = new Tree();
+        for (int n = in.count(); n > 0; n -= 1) {
+            result._files.put(in.string(), in.hash());
+        }
+        for (int n = in.count(); n > 0; n -= 1) {
+            result._dirs.put(in.string(), in.hash());
+        }
+        in.end();
+        return result;
+    }
+
+    /** Returns the encoding of this tree: its files and then its
+     *  subdirectories, each as a count followed by (name, hash) pairs in
+     *  name order. */
+    byte[] encode() {
+        Codec.Encoder out = new Codec.Encoder(Codec.TREE);
+        out.varint(_files.size());
+        for (Map.Entry<String, String> file : _files.entrySet()) {
+            out.string(file.getKey()).hash(file.getValue());
+        }
+        out.varint(_dirs.size());
+        for (Map.Entry<String, String> dir : _dirs.entrySet()) {
+            out.string(dir.getKey()).hash(dir.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void dump() {
+        System.out.println("Files: " + _files);
+        System.out.println("Directories: " + _dirs);
+    }
+
+    /** Blob hashes of the files in this directory, by name. */
+    private TreeMap<String, String> _files = new TreeMap<>();
+
+    /** Tree hashes of the subdirectories of this directory, by name. */
+    private TreeMap<String, String> _dirs = new TreeMap<>();
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/** Tests of hierarchical tree objects.
+ *  @author Aniruddh Khanwale
+ */
+public class TreeTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Returns a new, empty object store in a temporary directory, which
+     *  also holds the store's pack and pack index. */
+    private static ObjectStore newStore() throws IOException {
+        File dir = Utils.join(UnitTest.tempDirectory("gitlet-trees"), "trees");
+        dir.mkdir();
+        return new ObjectStore(dir);
+    }
+
+    /** Returns the stand-in blob hash named NAME. */
+    private static String h(String name) {
+        return Utils.sha1(name);
+    }
+
+    /** Returns a map of paths to hashes from alternating PAIRS of paths
+     *  and stand-in hash names, or nulls. */
+    private static TreeMap<String, String> changes(String... pairs) {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            result.put(pairs[i], pairs[i + 1] == null ? null
+                    : h(pairs[i + 1]));
+        }
+        return result;
+    }
+
+    @Test
+    public void testUpdateAndLookup() throws IOException {
+        ObjectStore trees = newStore();
+        String root = Tree.update(trees, null,
+                changes("top", "h1", "a/b/x", "h2", "a/y", "h3"));
+        assertEquals(h("h1"), Tree.lookup(trees, root, "top"));
+        assertEquals(h("h2"), Tree.lookup(trees, root, "a/b/x"));
+        assertEquals(h("h3"), Tree.lookup(trees, root, "a/y"));
+        assertNull(Tree.lookup(trees, root, "a/b/missing"));
+        assertNull(Tree.lookup(trees, root, "nowhere/x"));
+        assertEquals(changes("a/b/x", "h2", "a/y", "h3", "top", "h1"),
+                Tree.flatten(trees, root));
+        assertEquals(3, trees.ids().size());
+    }
+
+    @Test
+    public void testUnchangedSubtreesShared() throws IOException {
+        ObjectStore trees = newStore();
+        String one = Tree.update(trees, null,
+                changes("a/x", "h1", "b/x", "h2"));
+        int stored = trees.ids().size();
+        String two = Tree.update(trees, one, changes("b/x", "h3"));
+        assertEquals(stored + 2, trees.ids().size());
+        assertEquals(Tree.lookup(trees, one, "a/x"),
+                Tree.lookup(trees, two, "a/x"));
+        assertEquals(one, Tree.update(trees, two, changes("b/x", "h2")));
+        assertNull(Tree.update(trees, one,
+                changes("a/x", null, "b/x", null)));
+    }
+
+    @Test
+    public void testDiffSkipsEqualSubtrees() throws IOException {
+        ObjectStore trees = newStore();
+        String one = Tree.update(trees, null,
+                changes("a/x", "h1", "b/x", "h2", "c", "h4"));
+        String two = Tree.update(trees, one,
+                changes("b/x", null, "b/y", "h3", "c", "h5"));
+        TreeMap<String, String[]> diff = Tree.diff(trees, one, two);
+        assertEquals(3, diff.size());
+        assertArrayEquals(new String[] {h("h2"), null}, diff.get("b/x"));
+        assertArrayEquals(new String[] {null, h("h3")}, diff.get("b/y"));
+        assertArrayEquals(new String[] {h("h4"), h("h5")}, diff.get("c"));
+        assertTrue(Tree.diff(trees, two, two).isEmpty());
+        assertEquals(3, Tree.diff(trees, null, one).size());
+    }
+
+    @Test
+    public void testCollectStopsAtSkippedTrees() throws IOException {
+        ObjectStore trees = newStore();
+        String one = Tree.update(trees, null,
+                changes("a/x", "h1", "b/x", "h2"));
+        String two = Tree.update(trees, one, changes("b/x", "h3"));
+        HashSet<String> have = new HashSet<>();
+        Tree.collect(trees, one, id -> false, have, new HashSet<>());
+        HashSet<String> treeIds = new HashSet<>();
+        HashSet<String> blobIds = new HashSet<>();
+        Tree.collect(trees, two, have::contains, treeIds, blobIds);
+        assertEquals(2, treeIds.size());
+        assertEquals(Set.of(h("h3")), blobIds);
+    }
+}
@@ -3,7 +3,11 @@ package gitlet;
 import ucb.junit.textui;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 /** The suite of all JUnit tests for the gitlet package.
  *  @author Aniruddh Khanwale
@@ -13,7 +17,14 @@ public class UnitTest {
     /** Run the JUnit tests in the loa package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) throws IOException {
-        System.exit(textui.runClasses(UnitTest.class));
+        System.exit(textui.runClasses(UnitTest.class,
+                ObjectStoreTest.class, PrefixIndexTest.class,
+                MessageIndexTest.class, ObjectCacheTest.class,
+                DeltaTest.class, DiffTest.class, JournalTest.class,
+                TreeTest.class, CodecTest.class, WatcherTest.class,
+                BloomFilterTest.class, ChunkerTest.class,
+                BlameTest.class, BatchTest.class, CommitGraphTest.class,
+                IndexTest.class, CloneTest.class));
     }
 
 
@@ -22,6 +33,26 @@ public class UnitTest {
     public void placeholderTest() {
     }
 
+    /** Returns a new, empty temporary directory whose name starts with
+     *  PREFIX. It is deleted, with everything in it, by the next call of
+     *  deleteTempDirectories, which each test class makes after each of
+     *  its tests. */
+    static File tempDirectory(String prefix) throws IOException {
+        File dir = Files.createTempDirectory(prefix).toFile();
+        TEMP_DIRECTORIES.add(dir);
+        return dir;
+    }
+
+    /** Deletes the directories returned by tempDirectory so far. */
+    static void deleteTempDirectories() {
+        for (File dir : TEMP_DIRECTORIES) {
+            Utils.deleteRecursively(dir);
+        }
+        TEMP_DIRECTORIES.clear();
+    }
+
+    /** The directories made by tempDirectory and not yet deleted. */
+    private static final List<File> TEMP_DIRECTORIES = new ArrayList<>();
 }
 
 
@@ -1,6 +1,7 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -9,14 +10,23 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Formatter;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 /** Assorted utilities.
@@ -59,6 +69,27 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Returns BYTES as a lower-case hexadecimal numeral. */
+    static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16));
+            result.append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /** Returns the bytes denoted by the hexadecimal numeral HEX, which
+     *  must have an even number of digits. */
+    static byte[] fromHex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = (byte) Integer.parseInt(hex.substring(2 * i,
+                    2 * i + 2), 16);
+        }
+        return result;
+    }
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true
@@ -148,11 +179,177 @@ class Utils {
         }
     }
 
+    /** Return an object of type T deserialized from BYTES, casting it to
+     *  EXPECTEDCLASS.  Throws IllegalArgumentException in case of
+     *  problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /** Write OBJ to FILE. */
     static void writeObject(File file, Serializable obj) {
         writeContents(file, serialize(obj));
     }
 
+    /* ATOMIC UPDATES */
+
+    /** Replace the contents of FILE with the concatenation of CONTENTS, as
+     *  for writeContents, so that a crash leaves either the old or the new
+     *  contents.  The bytes go to a temporary file in the same directory,
+     *  which is forced to disk and then renamed over FILE; the directory is
+     *  forced afterwards so that the rename itself is durable.  Forcing is
+     *  skipped if turned off with setSync. */
+    static void writeAtomically(File file, Object... contents) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        try {
+            File tmp = Files.createTempFile(dir.toPath(),
+                    "." + file.getName(), ".tmp").toFile();
+            try {
+                writeContents(tmp, contents);
+                sync(tmp);
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                moved(tmp, file);
+            } finally {
+                tmp.delete();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        syncDirectory(dir);
+    }
+
+    /** Replace whatever FILE holds from byte END on with BYTES, creating
+     *  FILE if needed, and force it to disk as sync does.  Files
+     *  of fixed-size records are appended to this way, at the end of
+     *  their last whole record, so that a record torn by a crash is cut
+     *  off rather than left in front of the new one. */
+    static void writeAt(File file, long end, byte[] bytes) {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(end);
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                channel.write(buf, end + buf.position());
+            }
+            if (syncing) {
+                channel.force(true);
+            } else {
+                defer(file);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Force the contents of FILE to disk, or, if syncing is off, record
+     *  it for syncPending (see setDeferring). */
+    static void sync(File file) {
+        if (!syncing) {
+            defer(file);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Force the entries of directory DIR to disk, or, if syncing is off,
+     *  record it for syncPending.  Does nothing on systems that cannot open
+     *  directories. */
+    static void syncDirectory(File dir) {
+        if (!syncing) {
+            defer(dir);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir.toPath(),
+                StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            return;
+        }
+    }
+
+    /** Start or stop, according to ON, recording the files and
+     *  directories whose forcing is skipped while syncing is off, so that
+     *  syncPending can force them later.  A batch records them between
+     *  its checkpoints; otherwise a skipped forcing is simply dropped. */
+    static synchronized void setDeferring(boolean on) {
+        pending = on ? new LinkedHashSet<>() : null;
+    }
+
+    /** Force to disk every file and directory recorded since the last
+     *  call, in the order they were last written, and forget them.
+     *  Objects are therefore forced before the refs written after them.
+     *  Files deleted since are skipped; if syncing is off, nothing is
+     *  forced. */
+    static void syncPending() {
+        ArrayList<File> files;
+        synchronized (Utils.class) {
+            if (pending == null) {
+                return;
+            }
+            files = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (!syncing) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                syncDirectory(file);
+            } else if (file.isFile()) {
+                sync(file);
+            }
+        }
+    }
+
+    /** Note that FROM has been renamed to TO, so that a recorded forcing
+     *  of FROM is later done on TO. */
+    static synchronized void moved(File from, File to) {
+        if (pending != null && pending.remove(from.getAbsoluteFile())) {
+            defer(to);
+        }
+    }
+
+    /** Turn forcing of files to disk on or off, according to ON. */
+    static void setSync(boolean on) {
+        syncing = on;
+    }
+
+    /** Record FILE as one whose forcing was skipped, as the most recently
+     *  written, if recording is on. */
+    private static synchronized void defer(File file) {
+        if (pending != null) {
+            File absolute = file.getAbsoluteFile();
+            pending.remove(absolute);
+            pending.add(absolute);
+        }
+    }
+
+    /** True iff sync and syncDirectory force data to disk. */
+    private static volatile boolean syncing = true;
+
+    /** Files and directories whose forcing was skipped, in the order they
+     *  were last written, or null if they are not being recorded.
+     *  Guarded by the Utils class lock, since worker threads write
+     *  objects. */
+    private static LinkedHashSet<File> pending;
+
     /* DIRECTORIES */
 
     /** Filter out all but plain files. */
@@ -184,6 +381,19 @@ class Utils {
         return plainFilenamesIn(new File(dir));
     }
 
+    /** Deletes FILE and, if it is a directory, everything under it. */
+    static void deleteRecursively(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(file.toPath())) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /* OTHER FILE UTILITIES */
 
     /** Return the concatentation of FIRST and OTHERS into a File designator,
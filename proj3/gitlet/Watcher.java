@@ -0,0 +1,401 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/** The watch daemon, which records which paths of the working tree
+ *  change, and the means by which other commands use its record to avoid
+ *  walking and rereading the whole tree.
+ *
+ *  gitlet watch registers every directory of the working tree with a
+ *  WatchService and, after a header line "gitlet-watch TOKEN", appends
+ *  to the journal .gitlet/watch the path of every file or directory
+ *  created, modified or deleted, one per line. A line "/overflow" records
+ *  that events were lost. The daemon touches the journal at least once a
+ *  second, deletes it when it stops, and starts it afresh, with a new
+ *  token, when it grows past JOURNAL_LIMIT bytes.
+ *
+ *  workingFiles walks the whole tree unless the journal is live. If it
+ *  is, it starts from the file list that the last call saved in
+ *  .gitlet/watch-files, with the token and journal offset it covers, and
+ *  revisits only the paths logged since; only those files may have
+ *  changed. To be sure the daemon has logged every change made before the
+ *  call, it first creates a cookie file in .gitlet, which the daemon also
+ *  watches, and waits for the cookie's name to appear in the journal. If
+ *  the daemon does not answer, the token has changed or events were
+ *  lost, it falls back to a full walk.
+ *  @author Aniruddh Khanwale
+ */
+class Watcher {
+
+    /** A watcher of the working tree ROOT of the repository in GITLETDIR.
+     * @param root the working directory.
+     * @param gitletDir its .gitlet directory. */
+    Watcher(File root, File gitletDir) {
+        _root = root;
+        _gitletDir = gitletDir;
+        _rootPath = root.toPath().toAbsolutePath().normalize();
+        _gitletPath = gitletDir.toPath().toAbsolutePath().normalize();
+        _journal = Utils.join(gitletDir, "watch");
+        _baseline = Utils.join(gitletDir, "watch-files");
+    }
+
+    /** Watches the working tree, logging changes to the journal, until
+     *  the program stops or the thread is interrupted. */
+    void run() {
+        try (WatchService service =
+                     FileSystems.getDefault().newWatchService()) {
+            register(service, _rootPath);
+            _gitletPath.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE);
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(_journal::delete));
+            OutputStream out = restart(null);
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    WatchKey key = service.poll(HEARTBEAT_MS,
+                            TimeUnit.MILLISECONDS);
+                    StringBuilder lines = new StringBuilder();
+                    while (key != null) {
+                        Path dir = (Path) key.watchable();
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            record(service, dir, event, lines);
+                        }
+                        key.reset();
+                        key = service.poll();
+                    }
+                    out.write(lines.toString()
+                            .getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    _journal.setLastModified(System.currentTimeMillis());
+                    if (_journal.length() > JOURNAL_LIMIT) {
+                        out = restart(out);
+                    }
+                }
+            } finally {
+                out.close();
+                _journal.delete();
+            }
+        } catch (InterruptedException excp) {
+            _journal.delete();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the files of the working tree, outside .gitlet, by path.
+     *  Afterwards, isDirty tells which of them may have changed since the
+     *  last call made while the daemon was running. */
+    TreeMap<String, File> workingFiles() {
+        TreeMap<String, File> files = new TreeMap<>();
+        _dirty = null;
+        byte[] journal = isLive() ? awaitCookie() : null;
+        if (journal == null) {
+            scan(_root, "", files);
+            return files;
+        }
+        String text = new String(journal, StandardCharsets.UTF_8);
+        int end = text.lastIndexOf('\n') + 1;
+        String token = text.substring(0, text.indexOf('\n'));
+        String[] saved = _baseline.isFile()
+                ? Utils.readContentsAsString(_baseline).split("\n")
+                : new String[] {""};
+        String[] header = saved[0].split(" ");
+        if (header.length == 2 && (HEADER + header[0]).equals(token)
+                && Integer.parseInt(header[1]) <= end) {
+            String logged = text.substring(Integer.parseInt(header[1]), end);
+            if (!logged.contains(OVERFLOW + "\n")) {
+                _dirty = new HashSet<>();
+                for (int i = 1; i < saved.length; i += 1) {
+                    files.put(saved[i], Utils.join(_root, saved[i]));
+                }
+                for (String path : logged.split("\n")) {
+                    if (!path.isEmpty() && !path.startsWith("/")) {
+                        revisit(path, files);
+                    }
+                }
+            }
+        }
+        if (_dirty == null) {
+            files.clear();
+            scan(_root, "", files);
+        }
+        StringBuilder list = new StringBuilder();
+        list.append(token.substring(HEADER.length())).append(' ')
+                .append(end).append('\n');
+        for (String path : files.keySet()) {
+            list.append(path).append('\n');
+        }
+        Utils.writeAtomically(_baseline, list.toString());
+        return files;
+    }
+
+    /** Returns false iff the last call of workingFiles showed that the
+     *  working file at PATH has not changed since the call before it.
+     * @param path the path of a working file. */
+    boolean isDirty(String path) {
+        return _dirty == null || _dirty.contains(path);
+    }
+
+    /** Adds the files in the directory DIR, and in its subdirectories
+     *  other than .gitlet, to RESULT, by their paths prefixed by PREFIX.
+     * @param dir a working directory.
+     * @param prefix the path of DIR, ending in '/', or "".
+     * @param result the working files found so far. */
+    static void scan(File dir, String prefix, TreeMap<String, File> result) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isFile()) {
+                result.put(prefix + file.getName(), file);
+            } else if (file.isDirectory()
+                    && !file.getName().equals(".gitlet")) {
+                scan(file, prefix + file.getName() + "/", result);
+            }
+        }
+    }
+
+    /** Brings the entries of FILES at and below the logged PATH up to
+     *  date, and marks them dirty.
+     * @param path a path logged by the daemon.
+     * @param files the working files. */
+    private void revisit(String path, TreeMap<String, File> files) {
+        files.subMap(path + "/", path + "0").clear();
+        files.remove(path);
+        _dirty.add(path);
+        File file = Utils.join(_root, path);
+        if (file.isFile()) {
+            files.put(path, file);
+        } else if (file.isDirectory()) {
+            TreeMap<String, File> below = new TreeMap<>();
+            scan(file, path + "/", below);
+            files.putAll(below);
+            _dirty.addAll(below.keySet());
+        }
+    }
+
+    /** Returns true iff a daemon has touched the journal recently. */
+    private boolean isLive() {
+        return _journal.isFile() && System.currentTimeMillis()
+                - _journal.lastModified() <= STALE_MS;
+    }
+
+    /** Returns the contents of the journal once the daemon has logged a
+     *  cookie file created by this call, and with it every earlier change,
+     *  or null if it does not within COOKIE_WAIT_MS or starts a new
+     *  journal meanwhile. Each poll reads only what the daemon has
+     *  appended since the last, and polls back off from 1 ms to
+     *  MAX_POLL_MS. */
+    private byte[] awaitCookie() {
+        String name = COOKIE_PREFIX + UUID.randomUUID();
+        File cookie = Utils.join(_gitletDir, name);
+        byte[] logged = (COOKIE + name + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+        Path path = _journal.toPath();
+        try (FileChannel in = FileChannel.open(path)) {
+            Object key = fileKey(path);
+            Utils.writeContents(cookie, "");
+            long deadline = System.currentTimeMillis() + COOKIE_WAIT_MS;
+            byte[] journal = new byte[0];
+            int size = 0;
+            for (long wait = 1; System.currentTimeMillis() < deadline;
+                 wait = Math.min(2 * wait, MAX_POLL_MS)) {
+                long end = in.size();
+                if (end > size) {
+                    journal = Arrays.copyOf(journal, (int) end);
+                    ByteBuffer buf = ByteBuffer.wrap(journal, size,
+                            (int) end - size);
+                    while (buf.hasRemaining()) {
+                        if (in.read(buf, buf.position()) < 0) {
+                            break;
+                        }
+                    }
+                    int from = Math.max(0, size - logged.length + 1);
+                    size = buf.position();
+                    if (indexOf(journal, from, size, logged) >= 0) {
+                        return Arrays.copyOf(journal, size);
+                    }
+                }
+                if (!_journal.isFile()
+                        || key != null && !key.equals(fileKey(path))) {
+                    return null;
+                }
+                Thread.sleep(wait);
+            }
+            return null;
+        } catch (IOException | InterruptedException
+                 | IllegalArgumentException excp) {
+            return null;
+        } finally {
+            cookie.delete();
+        }
+    }
+
+    /** Returns the identity of the file at PATH, which changes when the
+     *  daemon starts a new journal, or null if there is none.
+     * @param path the path of the journal. */
+    private static Object fileKey(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class)
+                    .fileKey();
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Returns the position of the first copy of KEY in DATA between
+     *  positions FROM and END, or -1 if there is none.
+     * @param data the bytes to search.
+     * @param from the position at which to start.
+     * @param end the position just past the last byte to search.
+     * @param key the bytes to look for. */
+    private static int indexOf(byte[] data, int from, int end, byte[] key) {
+        for (int i = from; i + key.length <= end; i += 1) {
+            if (Arrays.equals(data, i, i + key.length, key, 0, key.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Appends to LINES the journal entry for EVENT in the watched
+     *  directory DIR, registering any new directory with SERVICE.
+     * @param service the watch service.
+     * @param dir the directory in which the event happened.
+     * @param event the event.
+     * @param lines the journal lines being gathered. */
+    private void record(WatchService service, Path dir, WatchEvent<?> event,
+                        StringBuilder lines) throws IOException {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            lines.append(OVERFLOW).append('\n');
+            return;
+        }
+        Path child = dir.resolve((Path) event.context());
+        if (dir.equals(_gitletPath)) {
+            String name = child.getFileName().toString();
+            if (name.startsWith(COOKIE_PREFIX)) {
+                lines.append(COOKIE).append(name).append('\n');
+            }
+            return;
+        } else if (child.equals(_gitletPath)) {
+            return;
+        }
+        lines.append(_rootPath.relativize(child).toString()
+                .replace(File.separatorChar, '/')).append('\n');
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            register(service, child);
+        }
+    }
+
+    /** Registers DIR and the directories below it, other than .gitlet,
+     *  with SERVICE.
+     * @param service the watch service.
+     * @param dir a working directory. */
+    private void register(WatchService service, Path dir)
+            throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(
+                    Path sub, BasicFileAttributes attrs) throws IOException {
+                if (sub.equals(_gitletPath)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                sub.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file,
+                                                   IOException excp) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Closes OUT, if not null, and starts a new journal with a fresh
+     *  token, returning a stream that appends to it.
+     * @param out the stream to the old journal, or null. */
+    private OutputStream restart(OutputStream out) throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        Utils.writeAtomically(_journal, HEADER + UUID.randomUUID() + "\n");
+        return new FileOutputStream(_journal, true);
+    }
+
+    /** Start of the first line of the journal, before the token. */
+    private static final String HEADER = "gitlet-watch ";
+
+    /** Journal line recording lost events. */
+    private static final String OVERFLOW = "/overflow";
+
+    /** Start of a journal line recording a cookie, before its name. */
+    private static final String COOKIE = "/cookie ";
+
+    /** Start of the names of cookie files. */
+    private static final String COOKIE_PREFIX = "watch-cookie-";
+
+    /** Longest time between touches of the journal by the daemon. */
+    private static final long HEARTBEAT_MS = 1000;
+
+    /** Age at which a journal is taken to have lost its daemon. */
+    private static final long STALE_MS = 3000;
+
+    /** Longest time to wait for the daemon to log a cookie. */
+    private static final long COOKIE_WAIT_MS = 2000;
+
+    /** Longest pause between reads of the journal while waiting for a
+     *  cookie. */
+    private static final long MAX_POLL_MS = 16;
+
+    /** Size in bytes at which the journal is started afresh. */
+    private static final long JOURNAL_LIMIT = 1 << 20;
+
+    /** The working directory. */
+    private final File _root;
+
+    /** The .gitlet directory. */
+    private final File _gitletDir;
+
+    /** The absolute path of the working directory. */
+    private final Path _rootPath;
+
+    /** The absolute path of the .gitlet directory. */
+    private final Path _gitletPath;
+
+    /** The journal file. */
+    private final File _journal;
+
+    /** The saved file list of the last call of workingFiles. */
+    private final File _baseline;
+
+    /** The paths that may have changed, as found by the last call of
+     *  workingFiles, or null if any may have. */
+    private HashSet<String> _dirty;
+}
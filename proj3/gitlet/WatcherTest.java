@@ -0,0 +1,83 @@
+package gitlet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/** Tests of the watch daemon and its dirty-path journal.
+ *  @author Aniruddh Khanwale
+ */
+public class WatcherTest {
+
+    /** Deletes the temporary directories made by the last test. */
+    @After
+    public void deleteTempDirectories() {
+        UnitTest.deleteTempDirectories();
+    }
+
+    /** Returns a new working directory with an empty .gitlet directory
+     *  and the files "top" and "a/b/x". */
+    private static File newTree() throws IOException {
+        File root = UnitTest.tempDirectory("gitlet-watch");
+        Utils.join(root, ".gitlet").mkdir();
+        Utils.join(root, "a", "b").mkdirs();
+        Utils.writeContents(Utils.join(root, "top"), "top");
+        Utils.writeContents(Utils.join(root, "a", "b", "x"), "x");
+        return root;
+    }
+
+    @Test
+    public void testFullScanWithoutDaemon() throws IOException {
+        File root = newTree();
+        Watcher watcher = new Watcher(root, Utils.join(root, ".gitlet"));
+        TreeMap<String, File> files = watcher.workingFiles();
+        assertEquals("[a/b/x, top]", files.keySet().toString());
+        assertTrue(watcher.isDirty("top"));
+        assertFalse(Utils.join(root, ".gitlet", "watch-files").exists());
+    }
+
+    @Test
+    public void testOnlyLoggedPathsAreDirty()
+            throws IOException, InterruptedException {
+        File root = newTree();
+        File gitletDir = Utils.join(root, ".gitlet");
+        Thread daemon = new Thread(new Watcher(root, gitletDir)::run);
+        daemon.setDaemon(true);
+        daemon.start();
+        File journal = Utils.join(gitletDir, "watch");
+        for (int i = 0; i < 500 && !journal.isFile(); i += 1) {
+            Thread.sleep(10);
+        }
+        assertTrue("daemon did not start", journal.isFile());
+        try {
+            Watcher watcher = new Watcher(root, gitletDir);
+            watcher.workingFiles();
+            assertTrue(watcher.isDirty("top"));
+
+            Utils.writeContents(Utils.join(root, "top"), "changed");
+            Utils.join(root, "a", "b", "x").delete();
+            Utils.join(root, "n", "m").mkdirs();
+            Utils.writeContents(Utils.join(root, "n", "m", "new"), "new");
+            watcher = new Watcher(root, gitletDir);
+            TreeMap<String, File> files = watcher.workingFiles();
+            assertEquals("[n/m/new, top]", files.keySet().toString());
+            assertTrue(watcher.isDirty("top"));
+            assertTrue(watcher.isDirty("n/m/new"));
+
+            watcher = new Watcher(root, gitletDir);
+            files = watcher.workingFiles();
+            assertEquals("[n/m/new, top]", files.keySet().toString());
+            assertFalse(watcher.isDirty("top"));
+            assertFalse(watcher.isDirty("n/m/new"));
+        } finally {
+            daemon.interrupt();
+            daemon.join();
+        }
+        assertFalse(journal.exists());
+    }
+}
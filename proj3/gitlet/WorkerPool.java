@@ -0,0 +1,93 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/** Runs independent per-file tasks, such as hashing, compressing and
+ *  writing files, on a bounded pool of threads. Results always come back
+ *  in the order of the inputs, so the caller can apply them to shared
+ *  state (the stage, the index) on one thread in a deterministic order.
+ *  @author Aniruddh Khanwale
+ */
+class WorkerPool {
+
+    /** A pool of WORKERS threads; 0 means one per available processor.
+     * @param workers the number of threads. */
+    WorkerPool(int workers) {
+        if (workers < 0) {
+            throw Utils.error("Bad number of workers: %d", workers);
+        }
+        _workers = workers == 0
+                ? Runtime.getRuntime().availableProcessors() : workers;
+    }
+
+    /** Returns the number of threads this pool uses. */
+    int workers() {
+        return _workers;
+    }
+
+    /** Returns the results of applying TASK to each of ITEMS, in order.
+     *  Runs on the calling thread when there is one worker or one item.
+     *  If any task throws, rethrows the exception of the earliest failing
+     *  item after all tasks have finished.
+     * @param items the task inputs.
+     * @param task the work to do for each input.
+     * @param <T> the type of the inputs.
+     * @param <R> the type of the results. */
+    <T, R> List<R> map(List<T> items, Function<T, R> task) {
+        ArrayList<R> results = new ArrayList<>(items.size());
+        if (_workers == 1 || items.size() <= 1) {
+            for (T item : items) {
+                results.add(task.apply(item));
+            }
+            return results;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(_workers, items.size()));
+        try {
+            ArrayList<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(pool.submit(() -> task.apply(item)));
+            }
+            RuntimeException failure = null;
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException excp) {
+                    if (failure == null) {
+                        failure = asRuntime(excp.getCause());
+                    }
+                    results.add(null);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return results;
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Returns CAUSE as an unchecked exception.
+     * @param cause the exception thrown by a task. */
+    private static RuntimeException asRuntime(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalArgumentException(cause.getMessage());
+    }
+
+    /** Number of threads. */
+    private final int _workers;
+}